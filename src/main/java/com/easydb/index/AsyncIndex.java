@@ -0,0 +1,49 @@
+package com.easydb.index;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Asynchronous wrapper around an {@link Index}.
+ * Each operation is handed to an executor and completes a future, which costs
+ * a thread hop per call; storage uses the synchronous index directly and this
+ * wrapper is only for callers that want to overlap index work with other tasks.
+ */
+public class AsyncIndex<K extends Comparable<K>> {
+    private final Index<K> index;
+    private final Executor executor;
+
+    public AsyncIndex(Index<K> index) {
+        this(index, ForkJoinPool.commonPool());
+    }
+
+    public AsyncIndex(Index<K> index, Executor executor) {
+        this.index = index;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Void> insert(K key, long rowId) {
+        return CompletableFuture.runAsync(() -> index.insert(key, rowId), executor);
+    }
+
+    public CompletableFuture<long[]> search(K key) {
+        return CompletableFuture.supplyAsync(() -> index.search(key), executor);
+    }
+
+    public CompletableFuture<long[]> range(K start, K end) {
+        return CompletableFuture.supplyAsync(() -> index.range(start, end), executor);
+    }
+
+    public CompletableFuture<Void> delete(K key, long rowId) {
+        return CompletableFuture.runAsync(() -> index.delete(key, rowId), executor);
+    }
+
+    public CompletableFuture<Void> clear() {
+        return CompletableFuture.runAsync(index::clear, executor);
+    }
+
+    public Index<K> getIndex() {
+        return index;
+    }
+}
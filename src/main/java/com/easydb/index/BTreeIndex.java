@@ -1,148 +1,244 @@
 package com.easydb.index;
 
-import com.easydb.storage.Tuple;
-import com.easydb.storage.TupleId;
-import com.easydb.storage.metadata.IndexMetadata;
-import com.easydb.storage.transaction.Transaction;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
 
 /**
- * B-tree index implementation.
- * Similar to PostgreSQL's BTree index implementation.
+ * B+tree index implementation.
+ * Similar to PostgreSQL's nbtree: nodes split when they exceed the order and
+ * are rebalanced or merged when they underflow, internal nodes hold separator
+ * keys only, and leaves form a doubly linked chain so range scans are a
+ * sequential walk over the leaf level. Each leaf entry holds the
+ * {@link PostingList} of row IDs for its key.
  */
-public class BTreeIndex implements Index {
-    private final BTreeNode root;
-    private final IndexMetadata metadata;
+public class BTreeIndex<K extends Comparable<K>> implements Index<K> {
+    public static final int DEFAULT_ORDER = 100;  // Typical B-tree order
+
     private final int order;
+    private final int maxKeys;
+    private final int minKeys;
     private final ReadWriteLock lock;
+    private final AtomicLong nextPageId;
+    private BTreeNode<K, PostingList> root;
+    private volatile long modificationCount;
     private long numEntries;
     private long height;
 
-    public BTreeIndex(IndexMetadata metadata) {
-        this.metadata = metadata;
-        this.order = 100;  // Typical B-tree order
-        this.root = new BTreeNode(order, true);
+    public BTreeIndex() {
+        this(DEFAULT_ORDER);
+    }
+
+    public BTreeIndex(int order) {
+        if (order < 3) {
+            throw new IllegalArgumentException("B-tree order must be at least 3: " + order);
+        }
+        this.order = order;
+        this.maxKeys = order - 1;
+        this.minKeys = maxKeys / 2;
         this.lock = new ReentrantReadWriteLock();
+        this.nextPageId = new AtomicLong(0);
+        this.root = new BTreeNode<>(nextPageId.getAndIncrement(), true);
         this.numEntries = 0;
         this.height = 1;
     }
 
     @Override
-    public void insert(Tuple tuple, Transaction txn) {
+    public void insert(K key, long rowId) {
         lock.writeLock().lock();
         try {
-            Comparable key = extractKey(tuple);
-            TupleId tid = tuple.id();
-            root.insert(key, tid);
-            numEntries++;
-            
-            // Update statistics
-            updateStatistics();
+            List<K> separator = new ArrayList<>(1);
+            BTreeNode<K, PostingList> right = insert(root, key, rowId, separator);
+            if (right != null) {
+                // Root split: grow the tree by one level
+                BTreeNode<K, PostingList> newRoot = new BTreeNode<>(nextPageId.getAndIncrement(), false);
+                newRoot.addChild(root);
+                newRoot.insertChild(0, separator.get(0), right);
+                root = newRoot;
+                height++;
+            }
+            modificationCount++;
         } finally {
             lock.writeLock().unlock();
         }
     }
 
-    @Override
-    public void delete(Tuple tuple, Transaction txn) {
-        lock.writeLock().lock();
-        try {
-            Comparable key = extractKey(tuple);
-            root.delete(key);
-            numEntries--;
-            
-            // Update statistics
-            updateStatistics();
-        } finally {
-            lock.writeLock().unlock();
+    /**
+     * Inserts into the subtree and splits the node if it overflows.
+     *
+     * @return the new right sibling if the node split, otherwise null
+     */
+    private BTreeNode<K, PostingList> insert(BTreeNode<K, PostingList> node, K key, long rowId,
+                                            List<K> separatorOut) {
+        if (node.isLeaf()) {
+            int pos = node.search(key);
+            if (pos >= 0) {
+                // Existing key: only its postings grow
+                node.getValue(pos).add(rowId);
+                return null;
+            }
+            PostingList postings = new PostingList();
+            postings.add(rowId);
+            node.insertEntry(-pos - 1, key, postings);
+            numEntries++;
+            if (node.keyCount() <= maxKeys) {
+                return null;
+            }
+            BTreeNode<K, PostingList> right = node.splitLeaf(nextPageId.getAndIncrement());
+            separatorOut.add(right.getMinKey());
+            return right;
+        }
+
+        int childIndex = node.childIndex(key);
+        BTreeNode<K, PostingList> childSplit = insert(node.getChild(childIndex), key, rowId, separatorOut);
+        if (childSplit == null) {
+            return null;
+        }
+        K childSeparator = separatorOut.remove(0);
+        node.insertChild(childIndex, childSeparator, childSplit);
+        if (node.keyCount() <= maxKeys) {
+            return null;
         }
+        return node.splitInternal(nextPageId.getAndIncrement(), separatorOut);
     }
 
     @Override
-    public List<TupleId> find(Object key, Transaction txn) {
+    public long[] search(K key) {
         lock.readLock().lock();
         try {
-            return root.find((Comparable) key);
+            BTreeNode<K, PostingList> leaf = findLeaf(key);
+            int pos = leaf.search(key);
+            return pos >= 0 ? leaf.getValue(pos).toArray() : PostingList.EMPTY;
         } finally {
             lock.readLock().unlock();
         }
     }
 
     @Override
-    public List<TupleId> findRange(Object start, Object end, Transaction txn) {
-        lock.readLock().lock();
-        try {
-            return root.findRange((Comparable) start, (Comparable) end);
-        } finally {
-            lock.readLock().unlock();
+    public long[] range(K start, K end) {
+        LongStream.Builder results = LongStream.builder();
+        BTreeScan<K> scan = scan(start, true, end, true);
+        long[] rowIds;
+        while ((rowIds = scan.getNext()) != null) {
+            for (long rowId : rowIds) {
+                results.add(rowId);
+            }
         }
+        return results.build().toArray();
     }
 
-    @Override
-    public IndexMetadata getMetadata() {
-        return metadata;
+    /**
+     * Opens an ordered scan over the keys between two bounds; a null bound
+     * leaves that side of the range open.
+     */
+    public BTreeScan<K> scan(K startKey, boolean includeStart, K endKey, boolean includeEnd) {
+        return new BTreeScan<>(this, startKey, endKey, includeStart, includeEnd);
     }
 
-    private Comparable extractKey(Tuple tuple) {
-        List<String> indexColumns = metadata.columns();
-        if (indexColumns.size() == 1) {
-            return (Comparable) tuple.getValue(indexColumns.get(0));
-        } else {
-            // Handle composite keys
-            return new CompositeKey(tuple, indexColumns);
+    @Override
+    public void delete(K key, long rowId) {
+        lock.writeLock().lock();
+        try {
+            if (delete(root, key, rowId)) {
+                numEntries--;
+                // Shrink the tree when the root is left with a single child
+                if (!root.isLeaf() && root.isEmpty()) {
+                    root = root.getChild(0);
+                    height--;
+                }
+            }
+            modificationCount++;
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
-    private void updateStatistics() {
-        // Update index statistics
-        height = calculateHeight(root);
-        // TODO: Update other statistics like space usage, key distribution, etc.
+    /**
+     * Removes the row ID from the key's postings.
+     *
+     * @return true if the postings became empty and the key was removed
+     */
+    private boolean delete(BTreeNode<K, PostingList> node, K key, long rowId) {
+        if (node.isLeaf()) {
+            int pos = node.search(key);
+            if (pos < 0 || !node.getValue(pos).remove(rowId) || !node.getValue(pos).isEmpty()) {
+                return false;
+            }
+            node.removeEntry(pos);
+            return true;
+        }
+
+        int childIndex = node.childIndex(key);
+        BTreeNode<K, PostingList> child = node.getChild(childIndex);
+        boolean removed = delete(child, key, rowId);
+        if (removed && child.keyCount() < minKeys) {
+            node.rebalanceChild(childIndex, minKeys);
+        }
+        return removed;
     }
 
-    private long calculateHeight(BTreeNode node) {
-        if (node.isLeaf()) {
-            return 1;
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root = new BTreeNode<>(nextPageId.getAndIncrement(), true);
+            numEntries = 0;
+            height = 1;
+            modificationCount++;
+        } finally {
+            lock.writeLock().unlock();
         }
-        BTreeNode firstChild = (BTreeNode) node.getValues().get(0);
-        return 1 + calculateHeight(firstChild);
     }
 
     /**
-     * Represents a composite key for multi-column indexes.
+     * Descends from the root to the leaf that covers the key, or to the
+     * leftmost leaf when the key is null. Callers must hold the lock.
      */
-    private static class CompositeKey implements Comparable<CompositeKey> {
-        private final List<Comparable> components;
-
-        public CompositeKey(Tuple tuple, List<String> columns) {
-            this.components = columns.stream()
-                .map(col -> (Comparable) tuple.getValue(col))
-                .toList();
+    BTreeNode<K, PostingList> findLeaf(K key) {
+        BTreeNode<K, PostingList> node = root;
+        while (!node.isLeaf()) {
+            node = node.getChild(key == null ? 0 : node.childIndex(key));
         }
+        return node;
+    }
 
-        @Override
-        public int compareTo(CompositeKey other) {
-            for (int i = 0; i < components.size(); i++) {
-                int result = components.get(i).compareTo(other.components.get(i));
-                if (result != 0) {
-                    return result;
-                }
-            }
-            return 0;
-        }
+    BTreeNode<K, PostingList> getRoot() {
+        return root;
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof CompositeKey)) return false;
-            CompositeKey that = (CompositeKey) o;
-            return components.equals(that.components);
+    ReadWriteLock getLock() {
+        return lock;
+    }
+
+    long getModificationCount() {
+        return modificationCount;
+    }
+
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * Returns the number of distinct keys in the index.
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return numEntries;
+        } finally {
+            lock.readLock().unlock();
         }
+    }
 
-        @Override
-        public int hashCode() {
-            return components.hashCode();
+    public long height() {
+        lock.readLock().lock();
+        try {
+            return height;
+        } finally {
+            lock.readLock().unlock();
         }
     }
-} 
\ No newline at end of file
+}
@@ -1,116 +1,182 @@
 package com.easydb.index;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
-import com.easydb.storage.TupleId;
 
 /**
- * Represents a node in the B-tree index.
- * Similar to PostgreSQL's BTNode structure.
+ * Represents a node in the B+tree index.
+ * Similar to PostgreSQL's BTPageOpaque layout: leaves hold the key/value
+ * entries and are doubly linked to their siblings, internal nodes hold
+ * separator keys and child pointers.
+ *
+ * Child i of an internal node covers keys k with keys[i-1] <= k < keys[i].
  */
-public class BTreeNode {
+public class BTreeNode<K extends Comparable<K>, V> {
     private final long pageId;
     private final boolean isLeaf;
-    private final List<Comparable> keys;
-    private final List<Object> values;
-    private BTreeNode parent;
+    private final List<K> keys;
+    private final List<V> values;                  // Leaf entries
+    private final List<BTreeNode<K, V>> children;  // Internal child pointers
+    private BTreeNode<K, V> prev;                  // Left sibling leaf (btpo_prev)
+    private BTreeNode<K, V> next;                  // Right sibling leaf (btpo_next)
 
     public BTreeNode(long pageId, boolean isLeaf) {
         this.pageId = pageId;
         this.isLeaf = isLeaf;
         this.keys = new ArrayList<>();
-        this.values = new ArrayList<>();
+        this.values = isLeaf ? new ArrayList<>() : Collections.emptyList();
+        this.children = isLeaf ? Collections.emptyList() : new ArrayList<>();
     }
 
-    public void insert(Comparable key, Object value) {
-        int index = findInsertIndex(key);
-        keys.add(index, key);
-        values.add(index, value);
+    /**
+     * Binary search for a key.
+     *
+     * @return the key's position, or (-(insertion point) - 1) if absent
+     */
+    public int search(K key) {
+        return Collections.binarySearch(keys, key);
     }
 
-    public void delete(Comparable key) {
-        int index = findKeyIndex(key);
-        if (index >= 0) {
-            keys.remove(index);
-            values.remove(index);
-        }
+    /**
+     * Finds the child of an internal node that covers the key.
+     */
+    public int childIndex(K key) {
+        int pos = search(key);
+        return pos >= 0 ? pos + 1 : -pos - 1;
     }
 
-    public void split(int mid, BTreeNode newNode) {
-        // Move half of the keys and values to the new node
-        for (int i = mid; i < keys.size(); i++) {
-            newNode.keys.add(keys.get(i));
-            newNode.values.add(values.get(i));
-        }
+    // Leaf operations
 
-        // Remove the moved keys and values from this node
-        for (int i = keys.size() - 1; i >= mid; i--) {
-            keys.remove(i);
-            values.remove(i);
-        }
+    public void insertEntry(int position, K key, V value) {
+        keys.add(position, key);
+        values.add(position, value);
+    }
 
-        // Update parent references
-        if (!isLeaf) {
-            for (int i = 0; i < newNode.values.size(); i++) {
-                BTreeNode child = (BTreeNode) newNode.values.get(i);
-                child.setParent(newNode);
-            }
-        }
+    public void removeEntry(int position) {
+        keys.remove(position);
+        values.remove(position);
     }
 
-    public void merge(BTreeNode other) {
-        // Append all keys and values from the other node
-        keys.addAll(other.keys);
-        values.addAll(other.values);
+    /**
+     * Moves the upper half of this leaf into a new right sibling and links it
+     * into the leaf chain.
+     *
+     * @return the new right leaf; its first key is the separator for the parent
+     */
+    public BTreeNode<K, V> splitLeaf(long newPageId) {
+        BTreeNode<K, V> right = new BTreeNode<>(newPageId, true);
+        int mid = keys.size() / 2;
+        moveTail(keys, mid, right.keys);
+        moveTail(values, mid, right.values);
 
-        // Update parent references for non-leaf nodes
-        if (!isLeaf) {
-            for (Object value : other.values) {
-                BTreeNode child = (BTreeNode) value;
-                child.setParent(this);
-            }
+        right.next = next;
+        if (next != null) {
+            next.prev = right;
+        }
+        right.prev = this;
+        next = right;
+        return right;
+    }
+
+    // Internal node operations
+
+    public void addChild(BTreeNode<K, V> child) {
+        children.add(child);
+    }
+
+    public void insertChild(int position, K separator, BTreeNode<K, V> rightChild) {
+        keys.add(position, separator);
+        children.add(position + 1, rightChild);
+    }
+
+    /**
+     * Moves the upper half of this internal node into a new right sibling.
+     * The middle key is removed from both nodes and returned through the
+     * caller-supplied list, since it moves up into the parent.
+     */
+    public BTreeNode<K, V> splitInternal(long newPageId, List<K> separatorOut) {
+        BTreeNode<K, V> right = new BTreeNode<>(newPageId, false);
+        int mid = keys.size() / 2;
+        separatorOut.add(keys.get(mid));
+        moveTail(keys, mid + 1, right.keys);
+        keys.remove(mid);
+        moveTail(children, mid + 1, right.children);
+        return right;
+    }
+
+    /**
+     * Rebalances the underflowing child at the given position by borrowing
+     * an entry from a sibling or, if neither can spare one, merging it with
+     * a sibling.
+     */
+    public void rebalanceChild(int position, int minKeys) {
+        BTreeNode<K, V> child = children.get(position);
+        BTreeNode<K, V> left = position > 0 ? children.get(position - 1) : null;
+        BTreeNode<K, V> right = position < children.size() - 1 ? children.get(position + 1) : null;
+
+        if (left != null && left.keyCount() > minKeys) {
+            borrowFromLeft(position, left, child);
+        } else if (right != null && right.keyCount() > minKeys) {
+            borrowFromRight(position, child, right);
+        } else if (left != null) {
+            mergeChildren(position - 1, left, child);
+        } else if (right != null) {
+            mergeChildren(position, child, right);
         }
     }
 
-    private int findInsertIndex(Comparable key) {
-        int left = 0;
-        int right = keys.size() - 1;
-
-        while (left <= right) {
-            int mid = (left + right) / 2;
-            int cmp = key.compareTo(keys.get(mid));
-            
-            if (cmp == 0) {
-                return mid;
-            } else if (cmp < 0) {
-                right = mid - 1;
-            } else {
-                left = mid + 1;
-            }
+    private void borrowFromLeft(int position, BTreeNode<K, V> left, BTreeNode<K, V> child) {
+        int last = left.keyCount() - 1;
+        if (child.isLeaf) {
+            child.insertEntry(0, left.keys.get(last), left.values.get(last));
+            left.removeEntry(last);
+            keys.set(position - 1, child.keys.get(0));
+        } else {
+            child.keys.add(0, keys.get(position - 1));
+            child.children.add(0, left.children.remove(last + 1));
+            keys.set(position - 1, left.keys.remove(last));
         }
-
-        return left;
     }
 
-    private int findKeyIndex(Comparable key) {
-        int left = 0;
-        int right = keys.size() - 1;
+    private void borrowFromRight(int position, BTreeNode<K, V> child, BTreeNode<K, V> right) {
+        if (child.isLeaf) {
+            child.insertEntry(child.keyCount(), right.keys.get(0), right.values.get(0));
+            right.removeEntry(0);
+            keys.set(position, right.keys.get(0));
+        } else {
+            child.keys.add(keys.get(position));
+            child.children.add(right.children.remove(0));
+            keys.set(position, right.keys.remove(0));
+        }
+    }
 
-        while (left <= right) {
-            int mid = (left + right) / 2;
-            int cmp = key.compareTo(keys.get(mid));
-            
-            if (cmp == 0) {
-                return mid;
-            } else if (cmp < 0) {
-                right = mid - 1;
-            } else {
-                left = mid + 1;
+    /**
+     * Merges the right node into the left one and drops the separator
+     * between them from this node.
+     */
+    private void mergeChildren(int separatorIndex, BTreeNode<K, V> left, BTreeNode<K, V> right) {
+        K separator = keys.remove(separatorIndex);
+        children.remove(separatorIndex + 1);
+
+        if (left.isLeaf) {
+            left.keys.addAll(right.keys);
+            left.values.addAll(right.values);
+            left.next = right.next;
+            if (right.next != null) {
+                right.next.prev = left;
             }
+        } else {
+            left.keys.add(separator);
+            left.keys.addAll(right.keys);
+            left.children.addAll(right.children);
         }
+    }
 
-        return -1;
+    private static <T> void moveTail(List<T> from, int fromIndex, List<T> to) {
+        List<T> tail = from.subList(fromIndex, from.size());
+        to.addAll(tail);
+        tail.clear();
     }
 
     public long getPageId() {
@@ -121,20 +187,32 @@ public class BTreeNode {
         return isLeaf;
     }
 
-    public List<Comparable> getKeys() {
-        return keys;
+    public int keyCount() {
+        return keys.size();
+    }
+
+    public K getKey(int position) {
+        return keys.get(position);
+    }
+
+    public V getValue(int position) {
+        return values.get(position);
+    }
+
+    public void setValue(int position, V value) {
+        values.set(position, value);
     }
 
-    public List<Object> getValues() {
-        return values;
+    public BTreeNode<K, V> getChild(int position) {
+        return children.get(position);
     }
 
-    public BTreeNode getParent() {
-        return parent;
+    public BTreeNode<K, V> getPrev() {
+        return prev;
     }
 
-    public void setParent(BTreeNode parent) {
-        this.parent = parent;
+    public BTreeNode<K, V> getNext() {
+        return next;
     }
 
     public boolean isFull(int maxKeys) {
@@ -145,11 +223,11 @@ public class BTreeNode {
         return keys.isEmpty();
     }
 
-    public Comparable getMinKey() {
+    public K getMinKey() {
         return keys.isEmpty() ? null : keys.get(0);
     }
 
-    public Comparable getMaxKey() {
+    public K getMaxKey() {
         return keys.isEmpty() ? null : keys.get(keys.size() - 1);
     }
-} 
\ No newline at end of file
+}
@@ -1,168 +1,121 @@
 package com.easydb.index;
 
-import com.easydb.storage.TupleId;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Stack;
+import java.util.concurrent.locks.Lock;
 
 /**
- * Implements B-tree index scanning.
- * Similar to PostgreSQL's BTScan structure.
+ * Implements B+tree index scanning.
+ * Similar to PostgreSQL's BTScanOpaque: the scan descends once to the leaf
+ * holding the start key and then walks the leaf sibling chain. If the tree
+ * changes between two calls, the scan re-descends to the key after the last
+ * one it returned.
  */
-public class BTreeScan {
-    private final BTreeIndex index;
-    private final Comparable startKey;
-    private final Comparable endKey;
+public class BTreeScan<K extends Comparable<K>> {
+    private final BTreeIndex<K> index;
+    private final K startKey;
+    private final K endKey;
     private final boolean includeStart;
     private final boolean includeEnd;
-    private final Stack<BTreeNode> nodeStack;
-    private final Stack<Integer> keyStack;
-    private BTreeNode currentNode;
+    private BTreeNode<K, PostingList> currentNode;
     private int currentKeyIndex;
+    private K lastKey;
+    private long modificationCount;
     private boolean initialized;
+    private boolean exhausted;
 
-    public BTreeScan(BTreeIndex index, Comparable startKey, Comparable endKey,
+    public BTreeScan(BTreeIndex<K> index, K startKey, K endKey,
                     boolean includeStart, boolean includeEnd) {
         this.index = index;
         this.startKey = startKey;
         this.endKey = endKey;
         this.includeStart = includeStart;
         this.includeEnd = includeEnd;
-        this.nodeStack = new Stack<>();
-        this.keyStack = new Stack<>();
         this.initialized = false;
+        this.exhausted = false;
     }
 
-    public void initialize() {
-        if (initialized) {
-            return;
+    /**
+     * Returns the row IDs of the next key in key order, or null at the end of
+     * the range.
+     */
+    public long[] getNext() {
+        if (exhausted) {
+            return null;
         }
 
-        // Find the starting leaf node
-        currentNode = index.getRoot();
-        while (!currentNode.isLeaf()) {
-            int childIndex = findChildIndex(currentNode, startKey);
-            nodeStack.push(currentNode);
-            keyStack.push(childIndex);
-            currentNode = (BTreeNode) currentNode.getValues().get(childIndex);
-        }
-
-        // Find the starting key in the leaf node
-        currentKeyIndex = findKeyIndex(currentNode, startKey);
-        if (currentKeyIndex >= currentNode.getKeys().size()) {
-            currentKeyIndex = 0;
-            moveToNextLeaf();
-        }
-
-        initialized = true;
-    }
-
-    public TupleId getNext() {
-        if (!initialized) {
-            initialize();
-        }
-
-        while (currentNode != null) {
-            if (currentKeyIndex < currentNode.getKeys().size()) {
-                Comparable key = currentNode.getKeys().get(currentKeyIndex);
-                
-                // Check if we've reached the end of the range
-                if (endKey != null) {
-                    int cmp = key.compareTo(endKey);
-                    if (cmp > 0 || (cmp == 0 && !includeEnd)) {
-                        return null;
-                    }
-                }
+        Lock readLock = index.getLock().readLock();
+        readLock.lock();
+        try {
+            if (!initialized || modificationCount != index.getModificationCount()) {
+                position();
+            }
 
-                // Check if we should include this key
-                if (startKey != null) {
-                    int cmp = key.compareTo(startKey);
-                    if (cmp < 0 || (cmp == 0 && !includeStart)) {
-                        currentKeyIndex++;
-                        continue;
+            while (currentNode != null) {
+                if (currentKeyIndex < currentNode.keyCount()) {
+                    K key = currentNode.getKey(currentKeyIndex);
+                    if (isPastEnd(key)) {
+                        break;
                     }
+                    long[] rowIds = currentNode.getValue(currentKeyIndex).toArray();
+                    currentKeyIndex++;
+                    lastKey = key;
+                    return rowIds;
                 }
-
-                TupleId tupleId = (TupleId) currentNode.getValues().get(currentKeyIndex);
-                currentKeyIndex++;
-                return tupleId;
-            } else {
-                if (!moveToNextLeaf()) {
-                    return null;
-                }
+                // Continue on the right sibling leaf
+                currentNode = currentNode.getNext();
+                currentKeyIndex = 0;
             }
-        }
 
-        return null;
+            exhausted = true;
+            currentNode = null;
+            return null;
+        } finally {
+            readLock.unlock();
+        }
     }
 
-    private boolean moveToNextLeaf() {
-        while (!nodeStack.isEmpty()) {
-            currentNode = nodeStack.pop();
-            currentKeyIndex = keyStack.pop();
-
-            if (currentKeyIndex < currentNode.getKeys().size()) {
-                currentKeyIndex++;
-                currentNode = (BTreeNode) currentNode.getValues().get(currentKeyIndex);
-                while (!currentNode.isLeaf()) {
-                    nodeStack.push(currentNode);
-                    keyStack.push(0);
-                    currentNode = (BTreeNode) currentNode.getValues().get(0);
-                }
-                currentKeyIndex = 0;
-                return true;
-            }
-        }
-        currentNode = null;
-        return false;
+    /**
+     * Returns the key of the entry last returned by {@link #getNext()}.
+     */
+    public K getCurrentKey() {
+        return lastKey;
     }
 
-    private int findChildIndex(BTreeNode node, Comparable key) {
-        List<Comparable> keys = node.getKeys();
-        int left = 0;
-        int right = keys.size() - 1;
+    /**
+     * Descends to the first entry after the last returned key, or to the
+     * start of the range if nothing was returned yet.
+     */
+    private void position() {
+        K from = lastKey != null ? lastKey : startKey;
+        boolean inclusive = lastKey == null && includeStart;
 
-        while (left <= right) {
-            int mid = (left + right) / 2;
-            int cmp = key.compareTo(keys.get(mid));
-            
-            if (cmp < 0) {
-                right = mid - 1;
+        currentNode = index.findLeaf(from);
+        if (from == null) {
+            currentKeyIndex = 0;
+        } else {
+            int pos = currentNode.search(from);
+            if (pos >= 0) {
+                currentKeyIndex = inclusive ? pos : pos + 1;
             } else {
-                left = mid + 1;
+                currentKeyIndex = -pos - 1;
             }
         }
-
-        return left;
+        modificationCount = index.getModificationCount();
+        initialized = true;
     }
 
-    private int findKeyIndex(BTreeNode node, Comparable key) {
-        List<Comparable> keys = node.getKeys();
-        int left = 0;
-        int right = keys.size() - 1;
-
-        while (left <= right) {
-            int mid = (left + right) / 2;
-            int cmp = key.compareTo(keys.get(mid));
-            
-            if (cmp == 0) {
-                return mid;
-            } else if (cmp < 0) {
-                right = mid - 1;
-            } else {
-                left = mid + 1;
-            }
+    private boolean isPastEnd(K key) {
+        if (endKey == null) {
+            return false;
         }
-
-        return left;
+        int cmp = key.compareTo(endKey);
+        return cmp > 0 || (cmp == 0 && !includeEnd);
     }
 
     public void reset() {
         initialized = false;
-        nodeStack.clear();
-        keyStack.clear();
+        exhausted = false;
         currentNode = null;
         currentKeyIndex = 0;
+        lastKey = null;
     }
-} 
\ No newline at end of file
+}
@@ -1,39 +1,53 @@
 package com.easydb.index;
 
-import java.util.concurrent.atomic.AtomicReferenceArray;
-import java.util.concurrent.ConcurrentHashMap;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Function;
-import java.util.List;
-import java.util.ArrayList;
-import java.util.concurrent.CompletableFuture;
 
 /**
- * Lock-free Bloom Filter implementation
+ * Lock-free blocked Bloom filter.
+ * Bits live in a packed long[] split into 512-bit blocks, one cache line
+ * each. An item hashes to a single block and all of its k bits are set
+ * inside that block, so a lookup touches one cache line. The k bit
+ * positions come from Kirsch-Mitzenmacher double hashing (h1 + i * h2) over
+ * a 64-bit mix of the item's hashCode, and bits are set with atomic ORs.
  */
 public class BloomFilter<T> {
-    private final AtomicReferenceArray<Boolean> bits;
-    private final int size;
-    private final List<Function<T, Integer>> hashFunctions;
+    private static final int BLOCK_BITS = 512;
+    private static final int WORDS_PER_BLOCK = BLOCK_BITS / Long.SIZE;
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] words;
+    private final int numBlocks;
+    private final int numHashes;
     private final AtomicInteger elementCount;
-    
+
+    /**
+     * @param size the number of bits, rounded up to whole 512-bit blocks
+     * @param numHashes the number of bits set per item
+     */
     public BloomFilter(int size, int numHashes) {
-        this.size = size;
-        this.bits = new AtomicReferenceArray<>(size);
-        this.hashFunctions = new ArrayList<>();
+        this.numBlocks = Math.max(1, (size + BLOCK_BITS - 1) / BLOCK_BITS);
+        this.words = new long[numBlocks * WORDS_PER_BLOCK];
+        this.numHashes = Math.max(1, numHashes);
         this.elementCount = new AtomicInteger(0);
-        
-        for (int i = 0; i < numHashes; i++) {
-            final int seed = i;
-            hashFunctions.add(item -> Math.abs((item.hashCode() + seed) % size));
-        }
     }
-    
+
     public void add(T item) {
+        long hash = mix64(item.hashCode());
+        int base = blockBase(hash);
+        int h1 = (int) hash;
+        int h2 = secondHash(hash);
+
         boolean added = false;
-        for (Function<T, Integer> hashFunction : hashFunctions) {
-            int index = hashFunction.apply(item);
-            if (bits.compareAndSet(index, null, true)) {
+        for (int i = 0; i < numHashes; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            int index = base + (bit >>> 6);
+            long mask = 1L << bit;
+            // Skip the atomic write when the bit is already set
+            if (((long) WORDS.getAcquire(words, index) & mask) == 0
+                && ((long) WORDS.getAndBitwiseOr(words, index, mask) & mask) == 0) {
                 added = true;
             }
         }
@@ -41,28 +55,61 @@ public class BloomFilter<T> {
             elementCount.incrementAndGet();
         }
     }
-    
+
     public boolean mightContain(T item) {
-        for (Function<T, Integer> hashFunction : hashFunctions) {
-            int index = hashFunction.apply(item);
-            if (bits.get(index) == null || !bits.get(index)) {
+        long hash = mix64(item.hashCode());
+        int base = blockBase(hash);
+        int h1 = (int) hash;
+        int h2 = secondHash(hash);
+
+        for (int i = 0; i < numHashes; i++) {
+            int bit = (h1 + i * h2) & (BLOCK_BITS - 1);
+            if (((long) WORDS.getAcquire(words, base + (bit >>> 6)) & (1L << bit)) == 0) {
                 return false;
             }
         }
         return true;
     }
-    
+
     public double getFalsePositiveRate() {
-        double k = hashFunctions.size();
+        double k = numHashes;
         double n = elementCount.get();
-        double m = size;
+        double m = getNumBits();
         return Math.pow(1 - Math.exp(-k * n / m), k);
     }
 
+    public long getNumBits() {
+        return (long) words.length * Long.SIZE;
+    }
+
     public void clear() {
-        for (int i = 0; i < size; i++) {
-            bits.set(i, null);
-        }
+        Arrays.fill(words, 0L);
         elementCount.set(0);
     }
-}
\ No newline at end of file
+
+    /**
+     * Picks the block from the high half of the hash, by multiply-shift
+     * instead of a modulo.
+     */
+    private int blockBase(long hash) {
+        int block = (int) (((hash >>> 32) * numBlocks) >>> 32);
+        return block * WORDS_PER_BLOCK;
+    }
+
+    /**
+     * Second hash for double hashing, forced odd so the k probes of an item
+     * are distinct within the block.
+     */
+    private static int secondHash(long hash) {
+        return (int) (mix64(hash) >>> 32) | 1;
+    }
+
+    /**
+     * Finalizer of SplitMix64: spreads every input bit over all 64 output bits.
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,25 +1,58 @@
 package com.easydb.index;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.List;
-import java.util.ArrayList;
-import java.util.concurrent.CompletableFuture;
+import java.util.stream.LongStream;
 
 /**
- * Lock-free Hash Index implementation
+ * Lock-free Hash Index implementation.
+ * Each key maps to a {@link PostingList} of row IDs, so a key shared by many
+ * rows is answered by a single probe.
+ *
+ * A Bloom filter answers most lookups of absent keys without touching the
+ * segments. Bloom filters cannot forget deleted keys, so the filter's
+ * estimated false positive rate is checked periodically and the filter is
+ * rebuilt from the live keys in the background once it drifts too far from
+ * the target, which also resizes it for the current number of keys.
  */
-public class HashIndex<K extends Comparable<K>, V> implements Index<K, V> {
-    private final BloomFilter<K> bloomFilter;
+public class HashIndex<K extends Comparable<K>> implements Index<K> {
+    private static final double TARGET_FALSE_POSITIVE_RATE = 0.01;
+    private static final double REBUILD_FALSE_POSITIVE_RATE = 0.05;
+    private static final int CHECK_INTERVAL = 1024;  // Writes between rate checks, power of two
+
+    private static final ExecutorService REBUILD_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hash-index-bloom-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int expectedSize;
+    private final Executor rebuildExecutor;
+    private final AtomicBoolean rebuilding;
+    private final AtomicInteger writes;
+    private volatile BloomFilter<K> bloomFilter;
+    private volatile BloomFilter<K> pendingFilter;  // Filter being rebuilt, receives new keys too
     private final AtomicInteger size;
     
-    // Segment the index into multiple sub-maps for better concurrency
+    // Segment the index into multiple sub-maps for better concurrency (power of two)
     private static final int NUM_SEGMENTS = 64;
-    private final ConcurrentHashMap<K, V>[] segments;
+    private final ConcurrentHashMap<K, PostingList>[] segments;
     
-    @SuppressWarnings("unchecked")
     public HashIndex(int expectedSize) {
+        this(expectedSize, REBUILD_EXECUTOR);
+    }
+
+    @SuppressWarnings("unchecked")
+    public HashIndex(int expectedSize, Executor rebuildExecutor) {
         this.size = new AtomicInteger(0);
+        this.expectedSize = Math.max(1, expectedSize);
+        this.rebuildExecutor = rebuildExecutor;
+        this.rebuilding = new AtomicBoolean(false);
+        this.writes = new AtomicInteger(0);
         
         // Initialize segments
         this.segments = new ConcurrentHashMap[NUM_SEGMENTS];
@@ -27,79 +60,145 @@ public class HashIndex<K extends Comparable<K>, V> implements Index<K, V> {
             segments[i] = new ConcurrentHashMap<>(expectedSize / NUM_SEGMENTS);
         }
         
-        // Configure Bloom filter
-        int bloomSize = calculateOptimalBloomSize(expectedSize, 0.01);
-        int numHashes = calculateOptimalNumHashes(expectedSize, bloomSize);
-        this.bloomFilter = new BloomFilter<>(bloomSize, numHashes);
+        this.bloomFilter = newBloomFilter(this.expectedSize);
     }
     
     private int getSegment(K key) {
-        return Math.abs(key.hashCode() % NUM_SEGMENTS);
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (NUM_SEGMENTS - 1);
     }
     
     @Override
-    public CompletableFuture<Void> insert(K key, V value) {
-        return CompletableFuture.runAsync(() -> {
-            int segment = getSegment(key);
-            if (segments[segment].put(key, value) == null) {
+    public void insert(K key, long rowId) {
+        // Set the filter bits first, so a reader that finds the key in its
+        // segment never gets a false negative from the filter
+        BloomFilter<K> filter = bloomFilter;
+        filter.add(key);
+        // compute() holds the bin lock, so postings of one key are updated atomically
+        segments[getSegment(key)].compute(key, (k, postings) -> {
+            if (postings == null) {
+                postings = new PostingList();
                 size.incrementAndGet();
             }
-            bloomFilter.add(key);
+            postings.add(rowId);
+            return postings;
         });
+
+        // A rebuild may have copied the segment before the key was published:
+        // also add it to the filter being rebuilt, or to the filter that
+        // replaced the one written above
+        BloomFilter<K> pending = pendingFilter;
+        if (pending != null) {
+            pending.add(key);
+        }
+        BloomFilter<K> current = bloomFilter;
+        if (current != filter && current != pending) {
+            current.add(key);
+        }
+        maybeRebuildFilter();
     }
     
     @Override
-    public CompletableFuture<V> search(K key) {
-        return CompletableFuture.supplyAsync(() -> {
-            if (!bloomFilter.mightContain(key)) {
-                return null;
-            }
-            return segments[getSegment(key)].get(key);
-        });
+    public long[] search(K key) {
+        if (!bloomFilter.mightContain(key)) {
+            return PostingList.EMPTY;
+        }
+        PostingList postings = segments[getSegment(key)].get(key);
+        return postings == null ? PostingList.EMPTY : postings.toArray();
     }
     
     @Override
-    public CompletableFuture<List<V>> range(K start, K end) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<V> results = new ArrayList<>();
-            for (ConcurrentHashMap<K, V> segment : segments) {
-                segment.forEach((key, value) -> {
-                    if (key.compareTo(start) >= 0 && key.compareTo(end) <= 0) {
-                        results.add(value);
-                    }
-                });
-            }
-            return results;
-        });
+    public long[] range(K start, K end) {
+        LongStream.Builder results = LongStream.builder();
+        for (ConcurrentHashMap<K, PostingList> segment : segments) {
+            segment.forEach((key, postings) -> {
+                // A null bound leaves that side of the range open
+                if ((start == null || key.compareTo(start) >= 0) &&
+                    (end == null || key.compareTo(end) <= 0)) {
+                    postings.forEach(results);
+                }
+            });
+        }
+        return results.build().toArray();
     }
     
     @Override
-    public CompletableFuture<Void> delete(K key) {
-        return CompletableFuture.runAsync(() -> {
-            int segment = getSegment(key);
-            if (segments[segment].remove(key) != null) {
+    public void delete(K key, long rowId) {
+        segments[getSegment(key)].computeIfPresent(key, (k, postings) -> {
+            postings.remove(rowId);
+            if (postings.isEmpty()) {
                 size.decrementAndGet();
+                return null;
             }
+            return postings;
         });
+        maybeRebuildFilter();
     }
     
     @Override
-    public CompletableFuture<Void> clear() {
-        return CompletableFuture.runAsync(() -> {
-            for (ConcurrentHashMap<K, V> segment : segments) {
-                segment.clear();
-            }
-            size.set(0);
-            // Create new Bloom filter since we can't clear the old one
-            int bloomSize = calculateOptimalBloomSize(segments.length * 16, 0.01);
-            int numHashes = calculateOptimalNumHashes(segments.length * 16, bloomSize);
-            this.bloomFilter.clear();
-        });
+    public void clear() {
+        for (ConcurrentHashMap<K, PostingList> segment : segments) {
+            segment.clear();
+        }
+        size.set(0);
+        bloomFilter.clear();
     }
     
+    /**
+     * Returns the number of distinct keys in the index.
+     */
     public int size() {
         return size.get();
     }
+
+    /**
+     * Returns the estimated false positive rate of the current Bloom filter.
+     */
+    public double getFalsePositiveRate() {
+        return bloomFilter.getFalsePositiveRate();
+    }
+
+    /**
+     * Schedules a filter rebuild every few writes if deleted or
+     * unanticipated keys pushed the false positive rate over the threshold.
+     */
+    private void maybeRebuildFilter() {
+        if ((writes.incrementAndGet() & (CHECK_INTERVAL - 1)) != 0) {
+            return;
+        }
+        if (bloomFilter.getFalsePositiveRate() > REBUILD_FALSE_POSITIVE_RATE
+            && rebuilding.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                try {
+                    rebuildFilter();
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Builds a fresh filter from the live keys and swaps it in. Keys inserted
+     * while the segments are copied are added to the fresh filter by insert().
+     */
+    void rebuildFilter() {
+        // Room for twice the current keys, so a growing table does not
+        // trigger a rebuild on every check
+        BloomFilter<K> fresh = newBloomFilter(Math.max(expectedSize, size.get() * 2));
+        pendingFilter = fresh;
+        for (ConcurrentHashMap<K, PostingList> segment : segments) {
+            segment.forEachKey(Long.MAX_VALUE, fresh::add);
+        }
+        bloomFilter = fresh;
+        pendingFilter = null;
+    }
+
+    private static <K> BloomFilter<K> newBloomFilter(int expectedKeys) {
+        int bloomSize = calculateOptimalBloomSize(expectedKeys, TARGET_FALSE_POSITIVE_RATE);
+        int numHashes = calculateOptimalNumHashes(expectedKeys, bloomSize);
+        return new BloomFilter<>(bloomSize, numHashes);
+    }
     
     private static int calculateOptimalBloomSize(int n, double p) {
         return (int) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
@@ -108,4 +207,4 @@ public class HashIndex<K extends Comparable<K>, V> implements Index<K, V> {
     private static int calculateOptimalNumHashes(int n, int m) {
         return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
     }
-}
\ No newline at end of file
+}
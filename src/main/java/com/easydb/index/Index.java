@@ -1,50 +1,51 @@
 package com.easydb.index;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.List;
-
 /**
  * Interface for index operations in EasyDB.
+ * An index maps each key to the row IDs of the rows carrying it, so
+ * non-unique keys keep one posting list instead of overwriting each other.
+ * Operations run synchronously on the calling thread, which is what the
+ * storage hot path needs; wrap an index in {@link AsyncIndex} to run
+ * operations on an executor instead.
  */
-public interface Index<K extends Comparable<K>, V> {
+public interface Index<K extends Comparable<K>> {
     /**
-     * Insert a key-value pair into the index.
+     * Add a row ID to the postings of a key.
      *
      * @param key The key to insert
-     * @param value The value to insert
-     * @return A future that completes when the insertion is done
+     * @param rowId The row ID to add
      */
-    CompletableFuture<Void> insert(K key, V value);
+    void insert(K key, long rowId);
 
     /**
      * Search for a key in the index.
      *
      * @param key The key to search for
-     * @return A future that completes with the value
+     * @return The row IDs stored under the key in ascending order, empty if
+     *         the key is not present
      */
-    CompletableFuture<V> search(K key);
+    long[] search(K key);
 
     /**
      * Range search in the index.
      *
-     * @param start The start key (inclusive)
-     * @param end The end key (exclusive)
-     * @return A future that completes with the list of values in the range
+     * @param start The start key (inclusive), or null for no lower bound
+     * @param end The end key (inclusive), or null for no upper bound
+     * @return The row IDs of all keys in the range
      */
-    CompletableFuture<List<V>> range(K start, K end);
+    long[] range(K start, K end);
 
     /**
-     * Delete a key from the index.
+     * Remove a row ID from the postings of a key, dropping the key once its
+     * postings are empty.
      *
-     * @param key The key to delete
-     * @return A future that completes when the deletion is done
+     * @param key The key to delete from
+     * @param rowId The row ID to remove
      */
-    CompletableFuture<Void> delete(K key);
+    void delete(K key, long rowId);
 
     /**
      * Clear the index.
-     *
-     * @return A future that completes when the clear is done
      */
-    CompletableFuture<Void> clear();
-} 
\ No newline at end of file
+    void clear();
+}
@@ -0,0 +1,63 @@
+package com.easydb.index;
+
+import java.util.Arrays;
+
+/**
+ * Encoded index key produced by {@link IndexKeyEncoder}.
+ * The bytes are memcomparable: composite keys of any column types compare
+ * with a single unsigned byte comparison, so both hash and B-tree indexes
+ * can use them directly without decoding.
+ */
+public final class IndexKey implements Comparable<IndexKey> {
+    private final byte[] bytes;
+    private final int hash;
+
+    IndexKey(byte[] bytes) {
+        this.bytes = bytes;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    /**
+     * Returns a key that sorts after this key and after every key that has
+     * this key as a prefix, for use as the upper bound of a prefix range.
+     * Each encoded column starts with a tag byte below 0xFF, so appending
+     * 0xFF is enough.
+     */
+    public IndexKey prefixEnd() {
+        byte[] end = Arrays.copyOf(bytes, bytes.length + 1);
+        end[bytes.length] = (byte) 0xFF;
+        return new IndexKey(end);
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    @Override
+    public int compareTo(IndexKey other) {
+        return Arrays.compareUnsigned(bytes, other.bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IndexKey)) return false;
+        IndexKey that = (IndexKey) o;
+        return hash == that.hash && Arrays.equals(bytes, that.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,221 @@
+package com.easydb.index;
+
+import com.easydb.core.DataType;
+
+import java.util.List;
+
+/**
+ * Encodes column values into memcomparable {@link IndexKey}s.
+ * Similar to the key encoding of ordered key-value stores: each column is
+ * written as a tag byte followed by a type-specific encoding whose unsigned
+ * byte order matches the value order.
+ *
+ * - INTEGER and LONG: 8 bytes big-endian with the sign bit flipped
+ * - DOUBLE: 8 bytes of the IEEE bits, sign bit flipped for positives and all
+ *   bits flipped for negatives
+ * - BOOLEAN: 1 byte
+ * - STRING (UTF-8) and BYTES: 0x00 escaped as 0x00 0xFF, terminated by 0x00 0x01
+ *
+ * NULLs get a higher tag than any value and sort last, as in PostgreSQL's
+ * default btree ordering. Keys are sized in one pass and written into a
+ * single exactly-sized array in a second.
+ */
+public class IndexKeyEncoder {
+    private static final byte TAG_VALUE = 0x01;
+    private static final byte TAG_NULL = 0x02;
+    private static final byte ESCAPE = 0x00;
+    private static final byte ESCAPED_ZERO = (byte) 0xFF;
+    private static final byte TERMINATOR = 0x01;
+
+    private final DataType[] types;
+    private final int[] rowPositions;
+
+    /**
+     * @param types the types of the key columns
+     * @param rowPositions the position of each key column in a table row
+     */
+    public IndexKeyEncoder(List<DataType> types, int[] rowPositions) {
+        if (types.size() != rowPositions.length) {
+            throw new IllegalArgumentException("Expected a row position for each of " + types.size() + " key columns");
+        }
+        this.types = types.toArray(new DataType[0]);
+        this.rowPositions = rowPositions.clone();
+    }
+
+    public int columnCount() {
+        return types.length;
+    }
+
+    /**
+     * Encodes the key columns of a table row.
+     */
+    public IndexKey encodeRow(List<Object> row) {
+        int size = 0;
+        for (int i = 0; i < types.length; i++) {
+            size += encodedSize(types[i], row.get(rowPositions[i]));
+        }
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (int i = 0; i < types.length; i++) {
+            offset = write(types[i], row.get(rowPositions[i]), bytes, offset);
+        }
+        return new IndexKey(bytes);
+    }
+
+    /**
+     * Encodes values of the leading key columns, for example a lookup key or
+     * a range bound. Fewer values than key columns give a prefix key.
+     */
+    public IndexKey encode(List<Object> values) {
+        if (values.size() > types.length) {
+            throw new IllegalArgumentException("Expected at most " + types.length + " key values, got " + values.size());
+        }
+        int size = 0;
+        for (int i = 0; i < values.size(); i++) {
+            size += encodedSize(types[i], values.get(i));
+        }
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (int i = 0; i < values.size(); i++) {
+            offset = write(types[i], values.get(i), bytes, offset);
+        }
+        return new IndexKey(bytes);
+    }
+
+    private static int encodedSize(DataType type, Object value) {
+        if (value == null) {
+            return 1;
+        }
+        switch (type) {
+            case INTEGER:
+            case LONG:
+            case DOUBLE:
+                return 1 + Long.BYTES;
+            case BOOLEAN:
+                return 2;
+            case STRING:
+                return 1 + utf8Size(value.toString()) + 2;
+            case BYTES: {
+                byte[] data = (byte[]) value;
+                int zeros = 0;
+                for (byte b : data) {
+                    if (b == 0) zeros++;
+                }
+                return 1 + data.length + zeros + 2;
+            }
+            default:
+                throw new IllegalArgumentException("Cannot encode " + type + " value: " + value);
+        }
+    }
+
+    private static int write(DataType type, Object value, byte[] out, int offset) {
+        if (value == null) {
+            out[offset] = TAG_NULL;
+            return offset + 1;
+        }
+        out[offset++] = TAG_VALUE;
+        switch (type) {
+            case INTEGER:
+            case LONG:
+                return writeLong(toNumber(type, value).longValue() ^ Long.MIN_VALUE, out, offset);
+            case DOUBLE: {
+                long bits = Double.doubleToLongBits(toNumber(type, value).doubleValue());
+                // Positives: flip the sign bit; negatives: flip everything
+                bits ^= (bits >> 63) | Long.MIN_VALUE;
+                return writeLong(bits, out, offset);
+            }
+            case BOOLEAN:
+                out[offset] = (byte) (Boolean.TRUE.equals(value) ? 1 : 0);
+                return offset + 1;
+            case STRING:
+                return writeUtf8(value.toString(), out, offset);
+            case BYTES:
+                for (byte b : (byte[]) value) {
+                    offset = writeEscaped(b, out, offset);
+                }
+                return writeTerminator(out, offset);
+            default:
+                throw new IllegalArgumentException("Cannot encode " + type + " value: " + value);
+        }
+    }
+
+    private static Number toNumber(DataType type, Object value) {
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException("Cannot encode " + value.getClass().getSimpleName() + " as " + type);
+        }
+        return (Number) value;
+    }
+
+    private static int writeLong(long v, byte[] out, int offset) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out[offset++] = (byte) (v >>> shift);
+        }
+        return offset;
+    }
+
+    private static int utf8Size(String s) {
+        int size = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == 0) {
+                size += 2;  // Escaped
+            } else if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                       && Character.isLowSurrogate(s.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                size += 1;  // Unpaired surrogate, replaced by '?'
+            } else {
+                size += 3;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes the string as escaped UTF-8 without an intermediate byte array.
+     */
+    private static int writeUtf8(String s, byte[] out, int offset) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                offset = writeEscaped((byte) c, out, offset);
+            } else if (c < 0x800) {
+                out[offset++] = (byte) (0xC0 | (c >> 6));
+                out[offset++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                       && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                out[offset++] = (byte) (0xF0 | (cp >> 18));
+                out[offset++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                out[offset++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                out[offset++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out[offset++] = (byte) '?';
+            } else {
+                out[offset++] = (byte) (0xE0 | (c >> 12));
+                out[offset++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[offset++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return writeTerminator(out, offset);
+    }
+
+    private static int writeEscaped(byte b, byte[] out, int offset) {
+        out[offset++] = b;
+        if (b == ESCAPE) {
+            out[offset++] = ESCAPED_ZERO;
+        }
+        return offset;
+    }
+
+    private static int writeTerminator(byte[] out, int offset) {
+        out[offset++] = ESCAPE;
+        out[offset++] = TERMINATOR;
+        return offset;
+    }
+}
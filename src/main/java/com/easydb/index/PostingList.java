@@ -0,0 +1,102 @@
+package com.easydb.index;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Sorted set of row IDs stored under one index key.
+ * Similar to a posting list tuple in PostgreSQL's nbtree deduplication: a
+ * non-unique key keeps all of its heap pointers in one entry, here as a
+ * primitive long array of 8 bytes per row.
+ *
+ * Mutators are called under the owning index's per-key lock; readers may run
+ * concurrently and synchronize on the list.
+ */
+public class PostingList {
+    static final long[] EMPTY = new long[0];
+
+    private static final int INITIAL_CAPACITY = 2;
+
+    private long[] rowIds;
+    private int size;
+
+    public PostingList() {
+        this.rowIds = new long[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Adds a row ID.
+     *
+     * @return false if the row ID was already present
+     */
+    public synchronized boolean add(long rowId) {
+        // Row IDs are mostly allocated in increasing order, so check the tail first
+        int pos;
+        if (size == 0 || rowIds[size - 1] < rowId) {
+            pos = size;
+        } else {
+            pos = Arrays.binarySearch(rowIds, 0, size, rowId);
+            if (pos >= 0) {
+                return false;
+            }
+            pos = -pos - 1;
+        }
+
+        if (size == rowIds.length) {
+            rowIds = Arrays.copyOf(rowIds, size + (size >> 1) + 1);
+        }
+        System.arraycopy(rowIds, pos, rowIds, pos + 1, size - pos);
+        rowIds[pos] = rowId;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a row ID.
+     *
+     * @return false if the row ID was not present
+     */
+    public synchronized boolean remove(long rowId) {
+        int pos = Arrays.binarySearch(rowIds, 0, size, rowId);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(rowIds, pos + 1, rowIds, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    public synchronized boolean contains(long rowId) {
+        return Arrays.binarySearch(rowIds, 0, size, rowId) >= 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Passes each row ID to the consumer in ascending order.
+     */
+    public synchronized void forEach(LongConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(rowIds[i]);
+        }
+    }
+
+    /**
+     * Returns a copy of the row IDs in ascending order.
+     */
+    public synchronized long[] toArray() {
+        return size == 0 ? EMPTY : Arrays.copyOf(rowIds, size);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return Arrays.toString(Arrays.copyOf(rowIds, size));
+    }
+}
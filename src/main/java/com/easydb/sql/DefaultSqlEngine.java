@@ -1,7 +1,10 @@
 package com.easydb.sql;
 
 import com.easydb.sql.result.ResultSet;
+import com.easydb.storage.FileWriteAheadLog;
 import com.easydb.storage.InMemoryStorage;
+import com.easydb.storage.RecoveryStats;
+import com.easydb.storage.WalRecovery;
 import com.easydb.storage.Tuple;
 import com.easydb.storage.transaction.Transaction;
 import com.easydb.storage.transaction.IsolationLevel;
@@ -15,8 +18,10 @@ import com.easydb.sql.planner.QueryTreeGenerator;
 import com.easydb.storage.metadata.TableMetadata;
 import com.easydb.storage.metadata.IndexMetadata;
 import com.easydb.sql.ddl.*;
+import com.easydb.storage.transaction.SnapshotMode;
 import com.easydb.storage.transaction.TransactionManager;
 import com.easydb.storage.transaction.TransactionStatus;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -24,11 +29,48 @@ public class DefaultSqlEngine implements SqlEngine {
     private final InMemoryStorage storage;
     private final SqlParserFactory parserFactory;
     private final TransactionManager transactionManager;
+    private final RecoveryStats recoveryStats;  // Null unless opened from a log
 
     public DefaultSqlEngine(InMemoryStorage storage) {
-        this.transactionManager = new TransactionManager();
+        // Statements must run in the storage's proc array and commit log
+        this(storage, storage.getTransactionManager(), null);
+    }
+
+    private DefaultSqlEngine(InMemoryStorage storage, TransactionManager transactionManager, RecoveryStats recoveryStats) {
+        this.transactionManager = transactionManager;
         this.storage = storage;
         this.parserFactory = new SqlParserFactory();
+        this.recoveryStats = recoveryStats;
+    }
+
+    /**
+     * Opens a database that logs to the directory, after rebuilding its
+     * tables, row versions, commit status and indexes from the log already
+     * there. Redo runs on one thread per processor.
+     */
+    public static DefaultSqlEngine open(Path walDirectory) {
+        FileWriteAheadLog wal = new FileWriteAheadLog(walDirectory);
+        TransactionManager transactionManager = new TransactionManager(SnapshotMode.XID, wal);
+        InMemoryStorage storage = new InMemoryStorage(transactionManager);
+        RecoveryStats stats = new WalRecovery(storage, transactionManager, Runtime.getRuntime().availableProcessors())
+            .recover(walDirectory);
+        return new DefaultSqlEngine(storage, transactionManager, stats);
+    }
+
+    /**
+     * Returns the engine's transaction manager, the storage's own, so
+     * execution contexts must be created on it.
+     */
+    public TransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    /**
+     * Returns what recovery did at startup, or null if the engine was not
+     * opened from a log.
+     */
+    public RecoveryStats getRecoveryStats() {
+        return recoveryStats;
     }
 
     @Override
@@ -44,7 +44,7 @@ public class IndexMetadataBuilder {
         }
 
         // Get index type (default to BTREE if not specified)
-        IndexType indexType = IndexType.HASH;
+        IndexType indexType = IndexType.BTREE;
         ParseTree typeNode = findChildOfType(parseTree, ParseTreeType.USING_CLAUSE);
         if (typeNode != null) {
             indexType = parseIndexType(typeNode.getValue());
@@ -50,11 +50,13 @@ public class DeleteExecutor implements PlanExecutor {
             if (whereClause == null || 
                 (Boolean) ExpressionEvaluator.evaluate(whereClause, tuple)) {
                 
-                // Delete tuple (mark as deleted in version chain)
-                storage.deleteTuple(
-                    tuple.id(),
-                    state.getCurrentTransaction()
-                );
+                // Delete tuple (mark as deleted in version chain); a row
+                // deleted concurrently is skipped and not counted
+                if (!storage.deleteTuple(
+                        tuple.id(),
+                        state.getCurrentTransaction())) {
+                    continue;
+                }
                 
                 return Optional.of(tuple);
             }
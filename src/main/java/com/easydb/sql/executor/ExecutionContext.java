@@ -21,10 +21,11 @@ public class ExecutionContext {
     }
 
     /**
-     * Starts a new transaction with specified isolation level
+     * Starts a new transaction with specified isolation level. It stays
+     * virtual, without an xid, unless the statement writes.
      */
     public Transaction beginTransaction() {
-        Transaction txn = transactionManager.beginTransaction(isolationLevel);
+        Transaction txn = transactionManager.beginVirtualTransaction(isolationLevel);
         currentTransaction.set(txn);
         
         // Track active transactions for isolation
@@ -76,14 +77,6 @@ public class ExecutionContext {
         }
     }
 
-    /**
-     * Ensures isolation level guarantees are met
-     */
-    public boolean checkVisibility(long xmin, long xmax) {
-        Transaction txn = getCurrentTransaction();
-        return txn.isVisible(xmin, xmax);
-    }
-
     /**
      * Releases resources when transaction completes
      */
@@ -93,10 +86,12 @@ public class ExecutionContext {
     }
 
     /**
-     * Gets active transaction IDs for snapshot isolation
+     * Gets active transaction IDs for snapshot isolation. Transactions that
+     * have not written have none.
      */
     public Set<Long> getActiveTransactionIds() {
         return activeTransactions.stream()
+            .filter(Transaction::hasXid)
             .map(Transaction::getXid)
             .collect(Collectors.toSet());
     }
@@ -1,22 +1,23 @@
 package com.easydb.sql.executor;
 
+import com.easydb.storage.IndexKeyRange;
 import com.easydb.storage.Storage;
 import com.easydb.storage.Tuple;
-import com.easydb.sql.executor.QueryExecutorState;
-import com.easydb.sql.executor.PlanExecutor;
-import com.easydb.sql.planner.QueryPredicate;
-import com.easydb.storage.metadata.IndexMetadata;
-import com.easydb.sql.planner.QueryPredicate.PredicateType;
+import com.easydb.sql.planner.expression.Expression;
+import com.easydb.sql.planner.expression.Expression.ExpressionType;
+import com.easydb.sql.planner.expression.Expression.Operator;
 import com.easydb.sql.planner.operation.IndexScanOperation;
-import com.easydb.sql.executor.PredicateEvaluator;
-import java.util.Collections;
+import com.easydb.storage.metadata.IndexMetadata;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
 
+/**
+ * Executes index scans, similar to PostgreSQL's nodeIndexscan.c.
+ * Probes the index with the key range derived from the index condition and
+ * only fetches the matching tuples from the heap.
+ */
 public class IndexScanExecutor implements PlanExecutor {
     private final IndexScanOperation operation;
     private final Storage storage;
@@ -34,16 +35,14 @@ public class IndexScanExecutor implements PlanExecutor {
 
     @Override
     public void init() {
-        // Get table and index information
-        String tableName = operation.getRangeTableEntry().getTableName();
         IndexMetadata indexMetadata = operation.getIndexMetadata();
-        
-        // Extract index search conditions
-        Map<String, Object> indexConditions = extractIndexConditions(
-            operation.getIndexCondition());
-        
+
+        // Translate the index condition into key bounds on the index columns
+        IndexKeyRange keyRange = buildKeyRange(operation.getIndexCondition(), indexMetadata);
+
         // Perform index lookup
-        List<Tuple> tuples = storage.scanTuples(tableName, indexConditions, state.getCurrentTransaction());
+        List<Tuple> tuples = storage.scanIndex(
+            indexMetadata.indexName(), keyRange, state.getCurrentTransaction());
         this.tupleIterator = tuples.iterator();
     }
 
@@ -51,14 +50,12 @@ public class IndexScanExecutor implements PlanExecutor {
     public Optional<Tuple> next() {
         while (tupleIterator.hasNext()) {
             Tuple tuple = tupleIterator.next();
-            // Apply any additional filter predicates
             List<Object> values = tuple.getValues();
 
-            if (operation.getExpression() == null || 
-                ExpressionEvaluator.evaluate(
-                    operation.getExpression(), 
-                    values,
-                    operation.getRangeTableEntry())) {
+            // Recheck the index condition (like PostgreSQL's indexqualorig), since
+            // not every indexable operator narrows the key range, then apply filters
+            if (matches(operation.getIndexCondition(), values) &&
+                matches(operation.getPredicate(), values)) {
                 return Optional.of(tuple);
             }
         }
@@ -76,29 +73,90 @@ public class IndexScanExecutor implements PlanExecutor {
         init();
     }
 
-    private Map<String, Object> extractIndexConditions(QueryPredicate indexCondition) {
-        Map<String, Object> conditions = new HashMap<>();
-        if (indexCondition == null) {
-            return conditions;
+    private boolean matches(Expression predicate, List<Object> values) {
+        return predicate == null ||
+            Boolean.TRUE.equals(PredicateEvaluator.evaluate(
+                predicate, values, operation.getRangeTableEntry()));
+    }
+
+    /**
+     * Builds the key range for the index condition: equality on a prefix of the
+     * index columns, optionally followed by bounds on the next index column.
+     */
+    private IndexKeyRange buildKeyRange(Expression indexCondition, IndexMetadata indexMetadata) {
+        List<Expression> comparisons = new ArrayList<>();
+        collectComparisons(indexCondition, comparisons);
+
+        List<Object> prefix = new ArrayList<>();
+        for (String column : indexMetadata.columnNames()) {
+            Optional<Expression> equality = findComparison(comparisons, column, Operator.EQUALS);
+            if (equality.isEmpty()) {
+                return buildRangeOnColumn(comparisons, column, prefix);
+            }
+            prefix.add(equality.get().getRight().getValue());
         }
+        return IndexKeyRange.equalTo(prefix);
+    }
 
-        switch (indexCondition.getPredicateType()) {
-            case EQUALS -> {
-                conditions.put(indexCondition.getColumn(), indexCondition.getValue());
+    private IndexKeyRange buildRangeOnColumn(List<Expression> comparisons, String column, List<Object> prefix) {
+        List<Object> lower = prefix.isEmpty() ? null : prefix;
+        List<Object> upper = lower;
+        boolean lowerInclusive = true;
+        boolean upperInclusive = true;
+
+        for (Expression comparison : comparisons) {
+            if (!column.equals(columnName(comparison.getLeft()))) {
+                continue;
             }
-            case AND -> {
-                // For compound index conditions
-                for (QueryPredicate subPred : indexCondition.getSubPredicates()) {
-                    if (subPred.getPredicateType() == PredicateType.EQUALS) {
-                        conditions.put(subPred.getColumn(), subPred.getValue());
-                    }
+            Object value = comparison.getRight().getValue();
+            switch (comparison.getOperator()) {
+                case GREATER_THAN, GREATER_EQUAL -> {
+                    lower = append(prefix, value);
+                    lowerInclusive = comparison.getOperator() == Operator.GREATER_EQUAL;
+                }
+                case LESS_THAN, LESS_EQUAL -> {
+                    upper = append(prefix, value);
+                    upperInclusive = comparison.getOperator() == Operator.LESS_EQUAL;
+                }
+                default -> {
+                    // Not a range operator, handled by the recheck
                 }
             }
-            default -> 
-                throw new IllegalStateException(
-                    "Unsupported index condition type: " + indexCondition.getPredicateType());
         }
-        return conditions;
+        return IndexKeyRange.between(lower, lowerInclusive, upper, upperInclusive);
+    }
+
+    private void collectComparisons(Expression expr, List<Expression> comparisons) {
+        if (expr == null) {
+            return;
+        }
+        if (expr.getType() == ExpressionType.LOGICAL && expr.getOperator() == Operator.AND) {
+            collectComparisons(expr.getLeft(), comparisons);
+            collectComparisons(expr.getRight(), comparisons);
+        } else if (expr.getType() == ExpressionType.COMPARISON &&
+                   expr.getLeft().getType() == ExpressionType.COLUMN_REF &&
+                   expr.getRight().getType() == ExpressionType.CONSTANT) {
+            comparisons.add(expr);
+        }
     }
 
-} 
\ No newline at end of file
+    private Optional<Expression> findComparison(List<Expression> comparisons, String column, Operator operator) {
+        return comparisons.stream()
+            .filter(comparison -> comparison.getOperator() == operator)
+            .filter(comparison -> column.equals(columnName(comparison.getLeft())))
+            .findFirst();
+    }
+
+    private static String columnName(Expression columnRef) {
+        // Strip any table qualifier, index metadata holds bare column names
+        String name = columnRef.getValue().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 ? name.substring(dot + 1) : name;
+    }
+
+    private static List<Object> append(List<Object> prefix, Object value) {
+        List<Object> key = new ArrayList<>(prefix);
+        key.add(value);
+        return key;
+    }
+}
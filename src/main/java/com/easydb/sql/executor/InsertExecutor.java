@@ -47,7 +47,6 @@ public class InsertExecutor implements PlanExecutor {
         List<Object> rowValues = values.get(currentValueIndex++);
         TupleId tupleId = TupleId.create(operation.getRangeTableEntry().getTableName());
         TupleHeader header = new TupleHeader(
-            tupleId,
             operation.getRangeTableEntry().getMetadata(),
             state.getCurrentTransaction().getXid(),
             0L
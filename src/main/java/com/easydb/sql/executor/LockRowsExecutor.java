@@ -0,0 +1,62 @@
+package com.easydb.sql.executor;
+
+import com.easydb.sql.planner.operation.LockRowsOperation;
+import com.easydb.storage.Storage;
+import com.easydb.storage.Tuple;
+import java.util.Optional;
+
+/**
+ * Locks each row returned by its child before passing it on, like
+ * PostgreSQL's LockRows node. Under read committed a row updated
+ * concurrently is returned in its newest version, and a row deleted
+ * concurrently is skipped.
+ */
+public class LockRowsExecutor implements PlanExecutor {
+    private final LockRowsOperation operation;
+    private final Storage storage;
+    private final QueryExecutorState state;
+    private final PlanExecutor childExecutor;
+
+    public LockRowsExecutor(
+            LockRowsOperation operation,
+            Storage storage,
+            QueryExecutorState state,
+            PlanExecutor childExecutor) {
+        this.operation = operation;
+        this.storage = storage;
+        this.state = state;
+        this.childExecutor = childExecutor;
+    }
+
+    @Override
+    public void init() {
+        childExecutor.init();
+    }
+
+    @Override
+    public Optional<Tuple> next() {
+        Optional<Tuple> tuple;
+        while ((tuple = childExecutor.next()).isPresent()) {
+            Optional<Tuple> locked = storage.lockTuple(tuple.get().id(), state.getCurrentTransaction());
+            if (locked.isPresent()) {
+                return locked;
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() {
+        childExecutor.close();
+    }
+
+    @Override
+    public void rescan() {
+        childExecutor.rescan();
+    }
+
+    @Override
+    public String toString() {
+        return operation.toString();
+    }
+}
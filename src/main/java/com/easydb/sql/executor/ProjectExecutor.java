@@ -2,6 +2,7 @@ package com.easydb.sql.executor;
 
 import com.easydb.storage.Storage;
 import com.easydb.storage.Tuple;
+import com.easydb.storage.TupleDescriptor;
 import com.easydb.storage.TupleHeader;
 import com.easydb.sql.executor.QueryExecutorState;
 import com.easydb.sql.executor.PlanExecutor;
@@ -23,6 +24,9 @@ public class ProjectExecutor implements PlanExecutor {
     private final ProjectOperation operation;
     private final PlanExecutor childExecutor;
     private final QueryExecutorState state;
+    // Projected layout, built once for the input layout it was derived from
+    private TupleDescriptor inputDescriptor;
+    private TupleDescriptor projectedDescriptor;
 
     public ProjectExecutor(
             ProjectOperation operation,
@@ -48,7 +52,7 @@ public class ProjectExecutor implements PlanExecutor {
 
         // Project selected columns
         List<Object> projectedValues = projectTuple(childTuple.get());
-        TupleHeader projHeader = projectHeader(childTuple.get().getHeader(), childTuple.get().getMetadata());
+        TupleHeader projHeader = projectHeader(childTuple.get().getHeader());
         // Create new tuple with projected values
         return Optional.of(new Tuple(
             childTuple.get().id(),  // Maintain original tuple ID
@@ -91,26 +95,31 @@ public class ProjectExecutor implements PlanExecutor {
         return result;
     }
 
-    private TupleHeader projectHeader(TupleHeader inputHeader, TableMetadata inputTable) {
-        List<String> targetColumnNames = operation.getTargetList();
+    private TupleHeader projectHeader(TupleHeader inputHeader) {
+        if (inputHeader.getDescriptor() != inputDescriptor) {
+            inputDescriptor = inputHeader.getDescriptor();
+            projectedDescriptor = projectTable(inputDescriptor.getMetadata()).tupleDescriptor();
+        }
+        return new TupleHeader(
+            projectedDescriptor,
+            inputHeader.getXmin(),
+            inputHeader.getXmax()
+        );
+    }
+
+    private TableMetadata projectTable(TableMetadata inputTable) {
         List<Integer> columnIndexes = operation.getColumnIndexes();
         
         List<Column> targetColumns = columnIndexes.stream()
             .map(inputTable::getColumn)
             .collect(Collectors.toList());
 
-        TableMetadata projectedTable = new TableMetadata(
+        return new TableMetadata(
             inputTable.tableName(),
             targetColumns,
             inputTable.indexes(),
             inputTable.constraints()
         );
-        return new TupleHeader(
-            inputHeader.getId(),
-            projectedTable,
-            inputHeader.getXmin(),
-            inputHeader.getXmax()
-        );
     }
 
     private Object evaluateExpression(Expression expr, Tuple tuple) {
@@ -10,6 +10,7 @@ import com.easydb.sql.planner.operation.DeleteOperation;
 import com.easydb.sql.planner.operation.UpdateOperation;
 import com.easydb.sql.planner.operation.ProjectOperation;
 import com.easydb.sql.planner.operation.FilterOperation;
+import com.easydb.sql.planner.operation.LockRowsOperation;
 import com.easydb.sql.executor.SequentialScanExecutor;
 import com.easydb.sql.executor.IndexScanExecutor;
 import com.easydb.sql.executor.InsertExecutor;
@@ -110,6 +111,12 @@ public class QueryExecutor {
                 children.get(0),
                 state
             );
+            case LOCK_ROWS -> new LockRowsExecutor(
+                (LockRowsOperation)node.getOperation(),
+                storage,
+                state,
+                children.get(0)
+            );
             case UPDATE -> new UpdateExecutor(
                 (UpdateOperation)node.getOperation(),
                 storage,
@@ -6,7 +6,6 @@ import com.easydb.sql.executor.QueryExecutorState;
 import com.easydb.sql.executor.PlanExecutor;
 import com.easydb.sql.planner.operation.SequentialScanOperation;
 import com.easydb.sql.executor.PredicateEvaluator;
-import com.easydb.sql.planner.QueryPredicate;
 
 import java.util.Collections;
 import java.util.Iterator;
@@ -50,10 +49,10 @@ public class SequentialScanExecutor implements PlanExecutor {
             
             // Use shared PredicateEvaluator
             if (operation.getPredicate() == null || 
-                PredicateEvaluator.evaluate(
+                Boolean.TRUE.equals(PredicateEvaluator.evaluate(
                     operation.getPredicate(), 
                     values,
-                    operation.getRangeTableEntry())) {
+                    operation.getRangeTableEntry()))) {
                 return Optional.of(tuple);
             }
         }
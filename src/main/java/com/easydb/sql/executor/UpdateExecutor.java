@@ -55,12 +55,14 @@ public class UpdateExecutor implements PlanExecutor {
                 System.out.println("UpdateExecutor - Updates: " + updates);
                 Tuple updatedTuple = tuple.withUpdatedValues(updates, state.getCurrentTransaction().getXid());
                 
-                // Update tuple with new version
-                storage.updateTuple(
-                    updatedTuple.id(),
-                    updatedTuple.getValues(),
-                    state.getCurrentTransaction()
-                );
+                // Update tuple with new version; a row deleted concurrently
+                // is skipped and not counted
+                if (!storage.updateTuple(
+                        updatedTuple.id(),
+                        updatedTuple.getValues(),
+                        state.getCurrentTransaction())) {
+                    continue;
+                }
                 
             return Optional.of(updatedTuple);
         }
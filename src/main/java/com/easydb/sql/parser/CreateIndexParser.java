@@ -81,10 +81,8 @@ public class CreateIndexParser extends Parser {
             Token type = consume(TokenType.IDENTIFIER, "Expected index type after USING");
             String indexType = type.value().toUpperCase();
             
-            // Validate index type
-            try {
-                Enum.valueOf(IndexType.class, indexType);
-            } catch (IllegalArgumentException e) {
+            // Validate index type, storage only implements btree and hash
+            if (!indexType.equals(IndexType.BTREE.name()) && !indexType.equals(IndexType.HASH.name())) {
                 throw error(type, "Invalid index type: " + indexType);
             }
             
@@ -32,6 +32,7 @@ public class Lexer {
         KEYWORDS.put("GROUP", TokenType.GROUP);
         KEYWORDS.put("ON", TokenType.ON);
         KEYWORDS.put("USING", TokenType.USING);
+        KEYWORDS.put("FOR", TokenType.FOR);
         KEYWORDS.put(">", TokenType.GREATER_THAN);
         KEYWORDS.put(">=", TokenType.GREATER_THAN_EQUALS);
         KEYWORDS.put("<", TokenType.LESS_THAN);
@@ -24,6 +24,7 @@ public enum ParseTreeType {
     VALUES_CLAUSE,
     SET_CLAUSE,
     USING_CLAUSE,
+    LOCKING_CLAUSE,
 
     // Expressions
     COLUMN_REF,
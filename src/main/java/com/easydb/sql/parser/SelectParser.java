@@ -57,6 +57,12 @@ public class SelectParser extends Parser {
             selectNode.addChild(orderByClause);
         }
 
+        // FOR UPDATE clause (optional)
+        if (match(TokenType.FOR)) {
+            consume(TokenType.UPDATE, "Expected 'UPDATE' after 'FOR'");
+            selectNode.addChild(new ParseTree(ParseTreeType.LOCKING_CLAUSE, "UPDATE"));
+        }
+
         // Semicolon (optional)
         match(TokenType.SEMICOLON);
 
@@ -45,6 +45,7 @@ public enum TokenType {
     UNIQUE,
     ON,
     USING,
+    FOR,
 
     // Transaction related keywords
     SET,
@@ -24,6 +24,7 @@ public enum QueryOperator {
     DISTINCT("Distinct"),
     MATERIALIZE("Materialize"),
     APPEND("Append"),
+    LOCK_ROWS("LockRows"),
     UNION("Union"),
     UNION_ALL("Union All"),
     INTERSECT("Intersect"),
@@ -85,6 +85,12 @@ public class QueryTreeGenerator {
             result = addSort(result, orderByClause);
         }
 
+        // Lock the rows before projection, while tuples still carry their ids
+        ParseTree lockingClause = findChildOfType(parseTree, ParseTreeType.LOCKING_CLAUSE);
+        if (lockingClause != null) {
+            result = addLockRows(result);
+        }
+
         // Finally, handle SELECT list projection
         ParseTree selectList = findChildOfType(parseTree, ParseTreeType.SELECT_LIST);
         if (selectList != null) {
@@ -232,14 +238,16 @@ public class QueryTreeGenerator {
         switch (predicate.getOperator()) {
             case EQUALS:
             case NOT_EQUALS:
-                return index.columns().contains(column);
+                return index.columnNames().contains(column);
                 
             case LESS_THAN:
             case GREATER_THAN:
             case LESS_EQUAL:
             case GREATER_EQUAL:
-                return !index.columns().isEmpty() && 
-                       index.columns().get(0).equals(column);
+                // Only a B-tree keeps its keys in order for a range scan
+                return index.type() == IndexType.BTREE &&
+                       !index.columnNames().isEmpty() &&
+                       index.columnNames().get(0).equals(column);
                        
             default:
                 return false;
@@ -420,6 +428,17 @@ public class QueryTreeGenerator {
         return sort;
     }
 
+    private QueryTree addLockRows(QueryTree input) {
+        QueryTree lockRows = new QueryTree(
+            QueryOperator.LOCK_ROWS,
+            new LockRowsOperation(input.getRangeTable().get(0)),
+            input.getOutputColumns(),
+            input.getRangeTable()
+        );
+        lockRows.addChild(input);
+        return lockRows;
+    }
+
     private QueryTree addGroupBy(QueryTree input, ParseTree groupByClause) {
         // Extract group by columns and create aggregate node
         List<String> groupColumns = extractGroupColumns(groupByClause);
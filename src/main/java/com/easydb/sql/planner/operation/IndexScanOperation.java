@@ -2,7 +2,7 @@ package com.easydb.sql.planner.operation;
 
 import com.easydb.sql.planner.QueryOperator;
 import com.easydb.sql.planner.RangeTableEntry;
-import com.easydb.sql.planner.QueryPredicate;
+import com.easydb.sql.planner.expression.Expression;
 import com.easydb.storage.metadata.IndexMetadata;
 
 /**
@@ -10,13 +10,13 @@ import com.easydb.storage.metadata.IndexMetadata;
  */
 public class IndexScanOperation extends ScanOperation {
     private final IndexMetadata indexMetadata;
-    private final QueryPredicate indexCondition;  // Condition used for index lookup
+    private final Expression indexCondition;  // Condition used for index lookup
 
     public IndexScanOperation(
             RangeTableEntry rte, 
             IndexMetadata indexMetadata,
-            QueryPredicate indexCondition,
-            QueryPredicate filterPredicate) {  // Additional filter after index lookup
+            Expression indexCondition,
+            Expression filterPredicate) {  // Additional filter after index lookup
         super(rte, filterPredicate);
         this.indexMetadata = indexMetadata;
         this.indexCondition = indexCondition;
@@ -26,7 +26,7 @@ public class IndexScanOperation extends ScanOperation {
         return indexMetadata;
     }
 
-    public QueryPredicate getIndexCondition() {
+    public Expression getIndexCondition() {
         return indexCondition;
     }
 
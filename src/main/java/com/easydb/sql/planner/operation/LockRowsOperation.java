@@ -0,0 +1,32 @@
+package com.easydb.sql.planner.operation;
+
+import com.easydb.sql.planner.Operation;
+import com.easydb.sql.planner.QueryOperator;
+import com.easydb.sql.planner.RangeTableEntry;
+import java.util.Objects;
+
+/**
+ * Locks every row its input returns, for SELECT ... FOR UPDATE.
+ * Similar to PostgreSQL's LockRows node.
+ */
+public class LockRowsOperation implements Operation {
+    private final RangeTableEntry targetTable;
+
+    public LockRowsOperation(RangeTableEntry targetTable) {
+        this.targetTable = Objects.requireNonNull(targetTable, "Target table cannot be null");
+    }
+
+    @Override
+    public QueryOperator getOperator() {
+        return QueryOperator.LOCK_ROWS;
+    }
+
+    public RangeTableEntry getTargetTable() {
+        return targetTable;
+    }
+
+    @Override
+    public String toString() {
+        return "LockRows FOR UPDATE OF " + targetTable.getTableName();
+    }
+}
@@ -2,16 +2,16 @@ package com.easydb.sql.planner.operation;
 
 import com.easydb.sql.planner.QueryOperator;
 import com.easydb.sql.planner.RangeTableEntry;
-import com.easydb.sql.planner.QueryPredicate;
+import com.easydb.sql.planner.expression.Expression;
 import com.easydb.sql.planner.Operation;
 /**
  * Base class for scan operations, similar to PostgreSQL's Scan node.
  */
 public abstract class ScanOperation implements Operation {
     private final RangeTableEntry rte;
-    private final QueryPredicate predicate;  // Filter condition, if any
+    private final Expression predicate;  // Filter condition, if any
 
-    protected ScanOperation(RangeTableEntry rte, QueryPredicate predicate) {
+    protected ScanOperation(RangeTableEntry rte, Expression predicate) {
         this.rte = rte;
         this.predicate = predicate;
     }
@@ -20,7 +20,7 @@ public abstract class ScanOperation implements Operation {
         return rte;
     }
 
-    public QueryPredicate getPredicate() {
+    public Expression getPredicate() {
         return predicate;
     }
 } 
\ No newline at end of file
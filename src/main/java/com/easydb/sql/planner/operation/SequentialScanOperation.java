@@ -2,14 +2,14 @@ package com.easydb.sql.planner.operation;
 
 import com.easydb.sql.planner.QueryOperator;
 import com.easydb.sql.planner.RangeTableEntry;
-import com.easydb.sql.planner.QueryPredicate;
+import com.easydb.sql.planner.expression.Expression;
 
 /**
  * Represents a sequential scan operation, similar to PostgreSQL's SeqScan node.
  */
 public class SequentialScanOperation extends ScanOperation {
     
-    public SequentialScanOperation(RangeTableEntry rte, QueryPredicate predicate) {
+    public SequentialScanOperation(RangeTableEntry rte, Expression predicate) {
         super(rte, predicate);
     }
 
@@ -1,6 +1,7 @@
 package com.easydb.storage;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -83,10 +84,85 @@ public class ByteUtils {
             return 1;
         } else if (value instanceof String) {
             return ((String) value).getBytes().length;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
         } else if (value == null) {
             return 0;
         } else {
             throw new IllegalArgumentException("Unsupported type: " + value.getClass());
         }
     }
-} 
\ No newline at end of file
+
+    // Type tags of the self-describing value encoding
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_INTEGER = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_BOOLEAN = 4;
+    private static final byte TAG_STRING = 5;
+    private static final byte TAG_BYTES = 6;
+
+    /**
+     * Returns the length of a value in the tagged encoding, which carries
+     * its own type and length so it can be read back without the table
+     * layout, as log records must be.
+     */
+    public static int getTaggedLength(Object value) {
+        if (value instanceof String) {
+            return 1 + Integer.BYTES + ((String) value).getBytes(StandardCharsets.UTF_8).length;
+        } else if (value instanceof byte[]) {
+            return 1 + Integer.BYTES + ((byte[]) value).length;
+        }
+        return 1 + getSerializedLength(value);
+    }
+
+    public static void putTagged(ByteBuffer buffer, Object value) {
+        if (value == null) {
+            buffer.put(TAG_NULL);
+        } else if (value instanceof Integer) {
+            buffer.put(TAG_INTEGER).putInt((Integer) value);
+        } else if (value instanceof Long) {
+            buffer.put(TAG_LONG).putLong((Long) value);
+        } else if (value instanceof Double) {
+            buffer.put(TAG_DOUBLE).putDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            buffer.put(TAG_BOOLEAN).put((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof String) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            buffer.put(TAG_STRING).putInt(bytes.length).put(bytes);
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            buffer.put(TAG_BYTES).putInt(bytes.length).put(bytes);
+        } else {
+            throw new IllegalArgumentException("Unsupported type: " + value.getClass());
+        }
+    }
+
+    public static Object getTagged(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_INTEGER:
+                return buffer.getInt();
+            case TAG_LONG:
+                return buffer.getLong();
+            case TAG_DOUBLE:
+                return buffer.getDouble();
+            case TAG_BOOLEAN:
+                return buffer.get() == 1;
+            case TAG_STRING: {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            case TAG_BYTES: {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                return bytes;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown value tag: " + tag);
+        }
+    }
+}
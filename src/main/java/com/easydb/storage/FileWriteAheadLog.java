@@ -0,0 +1,467 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.storage.metadata.IndexMetadata;
+import com.easydb.storage.metadata.TableMetadata;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log in preallocated, fixed-size segment files, after
+ * PostgreSQL's xlog.c.
+ *
+ * Records are addressed by LSN, the byte position in the log as a whole:
+ * segment number times segment size plus the offset in the segment. Each
+ * record has a header of its total length, a CRC-32C over the rest of the
+ * record, the record type and the xid, followed by the payload. A record
+ * never crosses a segment boundary; the unused tail of a segment stays
+ * zero, and a zero length is where a reader moves on to the next segment.
+ *
+ * Inserts append to a direct buffer under the insert lock, like the WAL
+ * buffers. The buffer is written out when it fills, and {@link #flush}
+ * writes it out and forces the segment without holding the lock, so
+ * inserts go on while the disk is busy and group commit can batch.
+ */
+public class FileWriteAheadLog implements WriteAheadLog, AutoCloseable {
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    // int length, int crc, byte type, long xid
+    public static final int HEADER_SIZE = 17;
+
+    private static final int ZERO_FILL_CHUNK = 64 * 1024;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ByteBuffer buffer;
+    private final ReentrantLock insertLock = new ReentrantLock();
+    private final AtomicLong flushedLsn = new AtomicLong();
+
+    // Guarded by insertLock
+    private FileChannel segment;
+    private long segmentNumber;
+    private long insertLsn;     // End of the last inserted record
+    private long writtenLsn;    // Everything before is in the segment file
+    private long recordCount;
+    private long bytesLogged;
+
+    public FileWriteAheadLog(Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a log in the directory. Logging starts in a new segment after
+     * the last one found there, so an existing log is never overwritten.
+     */
+    public FileWriteAheadLog(Path directory, int segmentSize, int bufferSize) {
+        if (segmentSize < HEADER_SIZE || bufferSize < HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment and buffer must hold at least a record header");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create WAL directory " + directory, e);
+        }
+        List<Long> existing = listSegments(directory);
+        this.segmentNumber = existing.isEmpty() ? 0 : existing.get(existing.size() - 1) + 1;
+        this.segment = createSegment(segmentNumber);
+        this.insertLsn = segmentStart(segmentNumber);
+        this.writtenLsn = insertLsn;
+        this.flushedLsn.set(insertLsn);
+    }
+
+    /**
+     * Returns the file name of a segment, the segment number in hex.
+     */
+    public static String segmentFileName(long segmentNumber) {
+        return String.format("%016X", segmentNumber);
+    }
+
+    /**
+     * Returns the numbers of the segments in the directory, in order.
+     */
+    public static List<Long> listSegments(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .map(path -> path.getFileName().toString())
+                .filter(name -> name.matches("[0-9A-F]{16}"))
+                .map(name -> Long.parseUnsignedLong(name, 16))
+                .sorted()
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list WAL directory " + directory, e);
+        }
+    }
+
+    @Override
+    public void logBegin(Long transactionId) {
+        append(WalRecordType.BEGIN, transactionId, 0, payload -> { });
+    }
+
+    @Override
+    public long logCommit(Long transactionId) {
+        return append(WalRecordType.COMMIT, transactionId, 0, payload -> { });
+    }
+
+    @Override
+    public void logAbort(Long transactionId) {
+        append(WalRecordType.ABORT, transactionId, 0, payload -> { });
+    }
+
+    @Override
+    public void logInsert(Long transactionId, String tableName, Tuple tuple) {
+        byte[] table = utf8(tableName);
+        List<Object> values = tuple.getValues();
+        int length = stringLength(table) + 2 * Long.BYTES + valuesLength(values);
+        append(WalRecordType.INSERT, transactionId, length, payload -> {
+            putString(payload, table);
+            payload.putLong(tuple.id().rowId()).putLong(tuple.id().version());
+            putValues(payload, values);
+        });
+    }
+
+    /**
+     * Logs the new version with the old version it replaces. The old values
+     * are not needed for redo, so only the new ones are logged.
+     */
+    @Override
+    public void logUpdate(Long transactionId, String tableName, Tuple oldTuple, Tuple newTuple) {
+        byte[] table = utf8(tableName);
+        List<Object> values = newTuple.getValues();
+        int length = stringLength(table) + 3 * Long.BYTES + valuesLength(values);
+        append(WalRecordType.UPDATE, transactionId, length, payload -> {
+            putString(payload, table);
+            payload.putLong(newTuple.id().rowId())
+                .putLong(oldTuple.id().version())
+                .putLong(newTuple.id().version());
+            putValues(payload, values);
+        });
+    }
+
+    @Override
+    public void logDelete(Long transactionId, String tableName, Tuple tuple) {
+        byte[] table = utf8(tableName);
+        int length = stringLength(table) + 2 * Long.BYTES;
+        append(WalRecordType.DELETE, transactionId, length, payload -> {
+            putString(payload, table);
+            payload.putLong(tuple.id().rowId()).putLong(tuple.id().version());
+        });
+    }
+
+    /**
+     * Logs the table name and its columns. Constraints are not logged.
+     */
+    @Override
+    public void logCreateTable(TableMetadata metadata) {
+        byte[] table = utf8(metadata.tableName());
+        List<Column> columns = metadata.columns();
+        List<byte[]> names = columns.stream().map(column -> utf8(column.name())).toList();
+        List<byte[]> types = columns.stream().map(column -> utf8(column.type().name())).toList();
+        int length = stringLength(table) + Short.BYTES;
+        for (int i = 0; i < columns.size(); i++) {
+            length += stringLength(names.get(i)) + stringLength(types.get(i)) + 3
+                + ByteUtils.getTaggedLength(columns.get(i).defaultValue());
+        }
+        append(WalRecordType.CREATE_TABLE, 0, length, payload -> {
+            putString(payload, table);
+            payload.putShort((short) columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                Column column = columns.get(i);
+                putString(payload, names.get(i));
+                putString(payload, types.get(i));
+                payload.put((byte) (column.nullable() ? 1 : 0))
+                    .put((byte) (column.primaryKey() ? 1 : 0))
+                    .put((byte) (column.autoIncrement() ? 1 : 0));
+                ByteUtils.putTagged(payload, column.defaultValue());
+            }
+        });
+    }
+
+    @Override
+    public void logCreateIndex(IndexMetadata metadata) {
+        byte[] table = utf8(metadata.tableName());
+        byte[] index = utf8(metadata.indexName());
+        byte[] type = utf8(metadata.type().name());
+        List<byte[]> columns = metadata.columnNames().stream().map(FileWriteAheadLog::utf8).toList();
+        int length = stringLength(table) + stringLength(index) + Short.BYTES + 1 + stringLength(type);
+        for (byte[] column : columns) {
+            length += stringLength(column);
+        }
+        append(WalRecordType.CREATE_INDEX, 0, length, payload -> {
+            putString(payload, table);
+            putString(payload, index);
+            payload.putShort((short) columns.size());
+            for (byte[] column : columns) {
+                putString(payload, column);
+            }
+            payload.put((byte) (metadata.isUnique() ? 1 : 0));
+            putString(payload, type);
+        });
+    }
+
+    /**
+     * Writes out the buffer and forces the current segment, like XLogFlush.
+     * A segment that was switched away from was forced when it was closed.
+     */
+    @Override
+    public long flush() {
+        long end;
+        FileChannel channel;
+        insertLock.lock();
+        try {
+            writeOut();
+            end = insertLsn;
+            channel = segment;
+        } finally {
+            insertLock.unlock();
+        }
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            insertLock.lock();
+            try {
+                // A segment switched away from was forced before it was
+                // closed. Any other failure, an interrupt closing the
+                // channel included, leaves the records not durable.
+                if (!(e instanceof ClosedChannelException) || channel == segment) {
+                    reopenSegment(e);
+                    throw new UncheckedIOException("Failed to flush WAL segment " + segmentFileName(segmentNumber), e);
+                }
+            } finally {
+                insertLock.unlock();
+            }
+        }
+        flushedLsn.accumulateAndGet(end, Math::max);
+        return end;
+    }
+
+    @Override
+    public void close() {
+        insertLock.lock();
+        try {
+            writeOut();
+            segment.force(false);
+            segment.close();
+            flushedLsn.accumulateAndGet(insertLsn, Math::max);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close WAL segment", e);
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    private long append(WalRecordType type, long xid, int payloadLength, Consumer<ByteBuffer> payload) {
+        int length = HEADER_SIZE + payloadLength;
+        if (length > segmentSize) {
+            throw new IllegalArgumentException("WAL record of " + length + " bytes does not fit in a segment");
+        }
+        insertLock.lock();
+        try {
+            if (insertLsn - segmentStart(segmentNumber) + length > segmentSize) {
+                switchSegment();
+            }
+            if (length > buffer.remaining()) {
+                writeOut();
+            }
+            // Records larger than the whole buffer bypass it
+            ByteBuffer target = length > buffer.capacity() ? ByteBuffer.allocateDirect(length) : buffer;
+            int start = target.position();
+            target.putInt(length).putInt(0).put(type.code()).putLong(xid);
+            payload.accept(target);
+            CRC32C crc = new CRC32C();
+            crc.update(target.duplicate().position(start + 8).limit(start + length));
+            target.putInt(start + 4, (int) crc.getValue());
+
+            if (target != buffer) {
+                target.flip();
+                write(target, insertLsn);
+                writtenLsn = insertLsn + length;
+            }
+            insertLsn += length;
+            recordCount++;
+            bytesLogged += length;
+            return insertLsn;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the buffered records to the segment file, like XLogWrite.
+     */
+    private void writeOut() {
+        if (buffer.position() == 0) {
+            return;
+        }
+        // A failed write leaves the buffer as it was, to be written again
+        write(buffer.duplicate().flip(), writtenLsn);
+        buffer.clear();
+        writtenLsn = insertLsn;
+    }
+
+    private void write(ByteBuffer data, long lsn) {
+        long position = lsn - segmentStart(segmentNumber);
+        try {
+            while (data.hasRemaining()) {
+                position += segment.write(data, position);
+            }
+        } catch (IOException e) {
+            reopenSegment(e);
+            throw new UncheckedIOException("Failed to write WAL segment " + segmentFileName(segmentNumber), e);
+        }
+    }
+
+    /**
+     * Reopens the current segment if a failure closed its channel, as an
+     * interrupt of a thread in a channel operation does, so later appends
+     * and flushes are not cut off until a restart. Called with the insert
+     * lock held.
+     */
+    private void reopenSegment(IOException cause) {
+        if (segment.isOpen()) {
+            return;
+        }
+        Path path = directory.resolve(segmentFileName(segmentNumber));
+        try {
+            segment = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Finishes the current segment and moves the insert position to the
+     * start of the next one. The finished segment is forced before it is
+     * closed, so later flushes need not reopen it.
+     */
+    private void switchSegment() {
+        writeOut();
+        try {
+            segment.force(false);
+            segment.close();
+        } catch (IOException e) {
+            reopenSegment(e);
+            throw new UncheckedIOException("Failed to finish WAL segment " + segmentFileName(segmentNumber), e);
+        }
+        flushedLsn.accumulateAndGet(insertLsn, Math::max);
+        segmentNumber++;
+        segment = createSegment(segmentNumber);
+        insertLsn = segmentStart(segmentNumber);
+        writtenLsn = insertLsn;
+    }
+
+    /**
+     * Creates a segment zero-filled to its full size and forced, so writes
+     * into it never have to extend the file, like XLogFileInit.
+     */
+    private FileChannel createSegment(long number) {
+        Path path = directory.resolve(segmentFileName(number));
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer zeros = ByteBuffer.allocateDirect(Math.min(ZERO_FILL_CHUNK, segmentSize));
+            long position = 0;
+            while (position < segmentSize) {
+                zeros.clear().limit((int) Math.min(zeros.capacity(), segmentSize - position));
+                position += channel.write(zeros, position);
+            }
+            channel.force(true);
+            return channel;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create WAL segment " + path, e);
+        }
+    }
+
+    private long segmentStart(long number) {
+        return number * segmentSize;
+    }
+
+    private static byte[] utf8(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringLength(byte[] string) {
+        return Short.BYTES + string.length;
+    }
+
+    private static void putString(ByteBuffer payload, byte[] string) {
+        payload.putShort((short) string.length).put(string);
+    }
+
+    private static int valuesLength(List<Object> values) {
+        int length = Short.BYTES;
+        for (Object value : values) {
+            length += ByteUtils.getTaggedLength(value);
+        }
+        return length;
+    }
+
+    private static void putValues(ByteBuffer payload, List<Object> values) {
+        payload.putShort((short) values.size());
+        for (Object value : values) {
+            ByteUtils.putTagged(payload, value);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Returns the LSN just past the last inserted record.
+     */
+    public long getInsertLsn() {
+        insertLock.lock();
+        try {
+            return insertLsn;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    public long getFlushedLsn() {
+        return flushedLsn.get();
+    }
+
+    public long getRecordCount() {
+        insertLock.lock();
+        try {
+            return recordCount;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the bytes of records logged, without segment tails.
+     */
+    public long getBytesLogged() {
+        insertLock.lock();
+        try {
+            return bytesLogged;
+        } finally {
+            insertLock.unlock();
+        }
+    }
+}
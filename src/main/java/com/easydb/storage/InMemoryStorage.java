@@ -2,7 +2,12 @@ package com.easydb.storage;
 
 import com.easydb.storage.metadata.TableMetadata;
 import com.easydb.storage.metadata.IndexMetadata;
+import com.easydb.index.BTreeIndex;
 import com.easydb.index.HashIndex;
+import com.easydb.index.Index;
+import com.easydb.index.IndexKey;
+import com.easydb.index.IndexKeyEncoder;
+import com.easydb.core.DataType;
 
 import java.time.Instant;
 import java.util.*;
@@ -10,6 +15,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 import com.easydb.storage.transaction.*;
 import java.util.Optional;
 
@@ -18,52 +24,123 @@ import java.util.Optional;
  * In-memory implementation of the storage engine.
  */
 public class InMemoryStorage implements Storage {
-    private final Map<String, TableMetadata> tables;
-    private final Map<TupleId, Tuple> tableTuples;
-    private final Map<String, HashIndex<String, TupleId>> indexMap;
+    // Fixed per-version overhead counted by vacuum, like PostgreSQL's 24-byte
+    // aligned HeapTupleHeaderData
+    private static final int TUPLE_OVERHEAD_BYTES = 24;
+
+    private final Map<String, TableHeap> heaps;
+    private final Map<String, Index<IndexKey>> indexMap;
+    private final Map<String, IndexMetadata> indexDefinitions;
+    private final Map<String, IndexKeyEncoder> keyEncoders;
     private final TransactionManager transactionManager;
 
     public InMemoryStorage(TransactionManager transactionManager) {
-        this.tables = new ConcurrentHashMap<>();
-        this.tableTuples = new ConcurrentHashMap<>();
+        this.heaps = new ConcurrentHashMap<>();
         this.indexMap = new ConcurrentHashMap<>();
+        this.indexDefinitions = new ConcurrentHashMap<>();
+        this.keyEncoders = new ConcurrentHashMap<>();
         this.transactionManager = transactionManager;
+        transactionManager.registerAbortCallback(this::undo);
+    }
+
+    /**
+     * Returns the transaction manager whose xids, snapshots and commit log
+     * this storage checks visibility against. Transactions that write to the
+     * storage must come from it.
+     */
+    public TransactionManager getTransactionManager() {
+        return transactionManager;
     }
 
     @Override
     public void createTable(TableMetadata metadata) {
-        tables.put(metadata.tableName(), metadata);
+        addTable(metadata);
+        // DDL takes effect at once, so it is flushed at once
+        WriteAheadLog wal = transactionManager.getWriteAheadLog();
+        if (wal != null) {
+            wal.logCreateTable(metadata);
+            wal.flush();
+        }
+    }
+
+    void addTable(TableMetadata metadata) {
+        // Assign the table's OID before any tuple refers to it
+        TableOids.assign(metadata.tableName());
+        heaps.put(metadata.tableName(), new TableHeap(metadata));
     }
 
     @Override
     public void createIndex(IndexMetadata metadata) {
-            TableMetadata tableMetadata = tables.get(metadata.tableName());
-            if (tableMetadata == null) {
-                throw new IllegalArgumentException("Table not found: " + metadata.tableName());
-            }
+        addIndex(metadata);
+        WriteAheadLog wal = transactionManager.getWriteAheadLog();
+        if (wal != null) {
+            wal.logCreateIndex(metadata);
+            wal.flush();
+        }
+    }
+
+    /**
+     * Creates the index and fills it from every version in the heap.
+     */
+    void addIndex(IndexMetadata metadata) {
+        TableHeap heap = getHeap(metadata.tableName());
+
+        String indexName = metadata.indexName();
+        IndexKeyEncoder encoder = newKeyEncoder(metadata, heap.getMetadata());
+        Index<IndexKey> index = newIndex(metadata);
+        keyEncoders.put(indexName, encoder);
+        indexMap.put(indexName, index);
+        indexDefinitions.put(indexName, metadata);
+
+        heap.getMetadata().indexes().put(indexName, metadata);
+
+        // Index existing tuples of this table only
+        heap.tuples().forEach(tuple -> index.insert(encoder.encodeRow(tuple.getValues()), tuple.id().rowId()));
+    }
+
+    /**
+     * Returns the access method built for an index.
+     */
+    Index<IndexKey> getIndex(String indexName) {
+        getIndexMetadata(indexName);
+        return indexMap.get(indexName);
+    }
 
-            String indexName = metadata.indexName();
-            indexMap.put(indexName, new HashIndex<>(1000));
+    private IndexKeyEncoder newKeyEncoder(IndexMetadata metadata, TableMetadata tableMetadata) {
+        List<DataType> types = new ArrayList<>();
+        int[] positions = new int[metadata.columnNames().size()];
+        for (int i = 0; i < positions.length; i++) {
+            String columnName = metadata.columnNames().get(i);
+            positions[i] = tableMetadata.columnNames().indexOf(columnName);
+            if (positions[i] < 0) {
+                throw new IllegalArgumentException("Column not found: " + columnName);
+            }
+            types.add(tableMetadata.getColumn(positions[i]).type());
+        }
+        return new IndexKeyEncoder(types, positions);
+    }
 
-            tableMetadata.indexes().put(indexName, metadata);
-            
-            // Index existing tuples
-            tableTuples.values().stream()
-                .filter(tuple -> tuple.id().tableName().equals(metadata.tableName()))
-                .forEach(tuple -> {
-                    String indexKey = buildIndexKey(metadata, tuple);
-                indexMap.get(indexName).insert(indexKey, tuple.id()).join();
-            });
-            
+    /**
+     * Creates the access method for an index, similar to PostgreSQL's amhandler
+     * lookup by pg_am entry.
+     */
+    private Index<IndexKey> newIndex(IndexMetadata metadata) {
+        switch (metadata.type()) {
+            case BTREE:
+                return new BTreeIndex<>();
+            case HASH:
+                return new HashIndex<>(1000);
+            default:
+                throw new UnsupportedOperationException("Unsupported index type: " + metadata.type());
+        }
     }
 
     @Override
     public void insertTuple(Tuple tuple, Transaction txn) {
-        String tableName = tuple.id().tableName();
-        TableMetadata metadata = tables.get(tableName);
-        if (metadata == null) {
-            throw new IllegalArgumentException("Table not found: " + tableName);
-        }
+        // The first write assigns the xid; read-only transactions never get one
+        transactionManager.assignXid(txn);
+        TableHeap heap = getHeap(tuple.id().tableName());
+        TableMetadata metadata = heap.getMetadata();
 
         // Create initial version (v0) of the tuple
         TupleId v0Id = tuple.id().withVersion(0);  // Ensure we're using version 0
@@ -75,37 +152,38 @@ public class InMemoryStorage implements Storage {
             0L               // xmax (not deleted)
         );
 
+        // A new row is a phantom to serializable scans of the table
+        transactionManager.getPredicateLockManager().checkConflictIn(txn, v0Id);
+
         // Record write in transaction
         txn.recordWrite(v0Id);
         
-        // Store in primary storage
-        tableTuples.put(v0Id, v0Tuple);
+        // Store in the table's heap
+        heap.put(v0Tuple);
 
         // Update indexes
         updateIndexes(metadata, v0Tuple, txn);
+        WriteAheadLog wal = transactionManager.getWriteAheadLog();
+        if (wal != null) {
+            wal.logInsert(txn.getXid(), metadata.tableName(), v0Tuple);
+        }
     }
 
     @Override
     public TableMetadata getTableMetadata(String tableName) {
-        if (!tables.containsKey(tableName)) {
-            throw new IllegalArgumentException("Table not found: " + tableName);
-        }
-
-        return tables.get(tableName);
+        return getHeap(tableName).getMetadata();
     }
 
     @Override
     public List<Tuple> scanTuples(String tableName, Map<String, Object> conditions, Transaction txn) {
-        // First get all base tuple IDs for the table
-        List<TupleId> tableTupleIds = tableTuples.keySet().stream()
-            .filter(id -> id.tableName().equals(tableName))
-            .map(TupleId::getBaseId)  // Get base version IDs
-            .distinct()  // Remove duplicates
-            .collect(Collectors.toList());
-        
+        // Only walk the heap of the scanned table, one base tuple ID per row
+        TableHeap heap = getHeap(tableName);
+        // A table lock also covers rows inserted after the scan
+        transactionManager.getPredicateLockManager().lockRelation(txn, TableOids.oidOf(tableName));
+
         // For each base tuple ID, get the visible version using getTuple
-        List<Tuple> tuples = tableTupleIds.stream()
-            .map(tupleId -> getTuple(tupleId, txn))  // Use getTuple for MVCC visibility
+        List<Tuple> tuples = heap.baseTupleIds()
+            .map(tupleId -> getTuple(heap, tupleId, txn))  // Use getTuple for MVCC visibility
             .filter(Optional::isPresent)
             .map(Optional::get)
             .filter(tuple -> matchesConditions(tuple, conditions))
@@ -113,6 +191,63 @@ public class InMemoryStorage implements Storage {
         return tuples;
     }
 
+    @Override
+    public List<TupleId> lookupIndex(String indexName, IndexKeyRange range) {
+        IndexMetadata indexMetadata = getIndexMetadata(indexName);
+        Index<IndexKey> index = indexMap.get(indexName);
+
+        IndexKeyEncoder encoder = keyEncoders.get(indexName);
+
+        long[] rowIds;
+        if (range.isPoint() && range.getLowerBound().size() == encoder.columnCount()) {
+            rowIds = index.search(encoder.encode(range.getLowerBound()));
+        } else {
+            // Scan between inclusive bounds on the encoded keys and leave exclusive
+            // bounds to the recheck in scanIndex. A B-tree walks only the leaves in
+            // the range and returns entries in key order; a hash index keeps no key
+            // order and has to visit every entry.
+            IndexKey lowerKey = range.getLowerBound() == null ? null : encoder.encode(range.getLowerBound());
+            IndexKey upperKey = null;
+            if (range.getUpperBound() != null) {
+                upperKey = encoder.encode(range.getUpperBound());
+                if (range.getUpperBound().size() < encoder.columnCount()) {
+                    // A prefix bound must also cover the keys that extend it
+                    upperKey = upperKey.prefixEnd();
+                }
+            }
+            rowIds = index.range(lowerKey, upperKey);
+        }
+
+        // Index entries hold row IDs, which identify the row's version chain
+        int tableOid = TableOids.oidOf(indexMetadata.tableName());
+        List<TupleId> tupleIds = new ArrayList<>(rowIds.length);
+        for (long rowId : rowIds) {
+            tupleIds.add(new TupleId(tableOid, rowId, 0));
+        }
+        return tupleIds;
+    }
+
+    @Override
+    public List<Tuple> scanIndex(String indexName, IndexKeyRange range, Transaction txn) {
+        IndexMetadata indexMetadata = getIndexMetadata(indexName);
+        TableHeap heap = getHeap(indexMetadata.tableName());
+        // Index pages are not locked, so the range is covered by a table lock
+        transactionManager.getPredicateLockManager().lockRelation(txn, TableOids.oidOf(indexMetadata.tableName()));
+
+        // A row may be listed under several keys, one per indexed version;
+        // resolve each row once
+        Set<TupleId> baseIds = new LinkedHashSet<>(lookupIndex(indexName, range));
+
+        List<Tuple> tuples = new ArrayList<>();
+        for (TupleId baseId : baseIds) {
+            // Recheck: the visible version may carry a different key than the indexed one
+            getTuple(heap, baseId, txn)
+                .filter(tuple -> range.contains(extractIndexValues(indexMetadata, heap.getMetadata(), tuple)))
+                .ifPresent(tuples::add);
+        }
+        return tuples;
+    }
+
     @Override
     public List<Tuple> getTuples(List<TupleId> tupleIds, Transaction txn) {
         return tupleIds.stream()
@@ -123,14 +258,17 @@ public class InMemoryStorage implements Storage {
     }
 
     @Override
-    public void updateTuple(TupleId tupleId, List<Object> newValues, Transaction txn) {
-        Tuple currentTuple = tableTuples.getOrDefault(tupleId, null);
-        if (currentTuple == null || !currentTuple.isVisible(txn)) {
-            throw new IllegalStateException("Tuple not visible to transaction");
+    public boolean updateTuple(TupleId tupleId, List<Object> newValues, Transaction txn) {
+        transactionManager.assignXid(txn);
+        TableHeap heap = getHeap(tupleId.tableName());
+        transactionManager.getPredicateLockManager().checkConflictIn(txn, tupleId);
+        Tuple currentTuple = lockForUpdate(heap, tupleId, txn, false);
+        if (currentTuple == null) {
+            return false;
         }
 
         // Create new version
-        TupleId newVersionId = tupleId.nextVersion();
+        TupleId newVersionId = currentTuple.id().nextVersion();
         Tuple newVersion = new Tuple(
             newVersionId,
             newValues,
@@ -139,90 +277,515 @@ public class InMemoryStorage implements Storage {
             0L            // xmax (not deleted)
         );
 
-        // Update version chain
-        currentTuple = new Tuple(
-            currentTuple.id(),
-            currentTuple.getValues(),
-            currentTuple.getHeader(),
-            currentTuple.getXmin(),
-            txn.getXid()
-        );
-        currentTuple.setNextVersion(newVersionId);  // Point to new version
-       
-        // Store new version
-        tableTuples.put(newVersionId, newVersion);
+        // The old version already carries our xmax, so no other writer can
+        // push a version on top of it
+        heap.pushVersion(currentTuple, newVersion);
+        heap.countDeadVersion();
         txn.recordWrite(newVersionId);
 
-        tableTuples.put(currentTuple.id(), currentTuple);
-
         // Update indexes with new version
-        TableMetadata metadata = tables.get(newVersionId.tableName());
-        updateIndexes(metadata, newVersion, txn);
+        updateIndexes(heap.getMetadata(), newVersion, txn);
+        WriteAheadLog wal = transactionManager.getWriteAheadLog();
+        if (wal != null) {
+            wal.logUpdate(txn.getXid(), heap.getMetadata().tableName(), currentTuple, newVersion);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean deleteTuple(TupleId tupleId, Transaction txn) {
+        transactionManager.assignXid(txn);
+        TableHeap heap = getHeap(tupleId.tableName());
+        // Locking the version sets its xmax, which is all a delete does.
+        // Index entries stay until vacuum, since older snapshots still see
+        // the row.
+        transactionManager.getPredicateLockManager().checkConflictIn(txn, tupleId);
+        Tuple currentTuple = lockForUpdate(heap, tupleId, txn, false);
+        if (currentTuple == null) {
+            return false;
+        }
+        heap.countDeadVersion();
+        txn.recordWrite(currentTuple.id());
+        WriteAheadLog wal = transactionManager.getWriteAheadLog();
+        if (wal != null) {
+            wal.logDelete(txn.getXid(), heap.getMetadata().tableName(), currentTuple);
+        }
+        return true;
+    }
+
+    /**
+     * Replays a logged insert of a committed transaction. Recovery runs
+     * before any transaction starts, so redo takes no locks and leaves the
+     * indexes to be built afterwards.
+     */
+    void redoInsert(TupleId tupleId, List<Object> values, long xid) {
+        TableHeap heap = getHeap(tupleId.tableName());
+        heap.put(new Tuple(tupleId, values, new TupleHeader(heap.getMetadata(), xid, 0L), xid));
+    }
+
+    /**
+     * Replays a logged update: the current version gets the updater's xmax
+     * and the new version is pushed on top of it.
+     */
+    void redoUpdate(TupleId oldId, TupleId newId, List<Object> values, long xid) {
+        TableHeap heap = getHeap(newId.tableName());
+        Tuple current = heap.head(oldId);
+        if (current == null || current.id().version() != oldId.version()) {
+            throw new IllegalStateException("Cannot redo update of " + oldId + ": version not found");
+        }
+        current.setXmax(xid);
+        heap.pushVersion(current, new Tuple(newId, values, current.getHeader(), xid, 0L));
+        heap.countDeadVersion();
+    }
+
+    void redoDelete(TupleId tupleId, long xid) {
+        TableHeap heap = getHeap(tupleId.tableName());
+        Tuple current = heap.head(tupleId);
+        if (current == null || current.id().version() != tupleId.version()) {
+            throw new IllegalStateException("Cannot redo delete of " + tupleId + ": version not found");
+        }
+        current.setXmax(xid);
+        heap.countDeadVersion();
     }
 
     @Override
-    public void deleteTuple(TupleId tupleId, Transaction txn) {
-        Tuple currentTuple = tableTuples.get(tupleId);
-        if (currentTuple == null || !currentTuple.isVisible(txn)) {
+    public Optional<Tuple> lockTuple(TupleId tupleId, Transaction txn) {
+        // A row lock is stored as xmax, so it takes an xid like a write
+        transactionManager.assignXid(txn);
+        TableHeap heap = getHeap(tupleId.tableName());
+        return Optional.ofNullable(lockForUpdate(heap, tupleId, txn, true));
+    }
+
+    /**
+     * Claims the newest version of a row by setting its xmax with a
+     * compare-and-set, like heap_update's and heap_lock_tuple's tuple lock.
+     * An update or delete stores its xid; a row lock stores the lock-only
+     * form, which keeps the version live and is void once the locker ends.
+     *
+     * The first updater wins: a later one meets the winner's xmax and, under
+     * read committed, waits for it to finish and goes on with the version it
+     * left behind, like EvalPlanQual. Under repeatable read and serializable
+     * it fails at once. A row lock only makes others wait. Waiters queue on
+     * the row's lock in the lock manager, so they take turns in arrival
+     * order and their waits show up in deadlock detection.
+     *
+     * @return the claimed version, or null if the row was deleted
+     *         concurrently or already replaced by this transaction
+     * @throws SerializationException if a snapshot transaction meets a
+     *         concurrent update or delete
+     * @throws DeadlockException if waiting for the row closed a cycle
+     */
+    private Tuple lockForUpdate(TableHeap heap, TupleId tupleId, Transaction txn, boolean lockOnly) {
+        boolean snapshotIsolation = txn.getIsolationLevel() != IsolationLevel.READ_COMMITTED;
+        Tuple target = heap.get(tupleId);
+        // Under read committed the version may have been replaced since the
+        // caller read it; only its creation has to be visible
+        boolean visible = target != null && (snapshotIsolation
+            ? isVisible(target, txn)
+            : target.getXmin() == txn.getXid() || target.isXminCommitted(transactionManager));
+        if (!visible) {
             throw new IllegalStateException("Tuple not visible to transaction");
         }
 
-        // Mark tuple as deleted by setting xmax
-        currentTuple = new Tuple(
-            currentTuple.id(),
-            currentTuple.getValues(),
-            currentTuple.getHeader(),
-            currentTuple.getXmin(),
-            txn.getXid()
-        );
-        txn.recordWrite(tupleId);
+        long xid = txn.getXid();
+        long ownLock = Tuple.lockOnlyXmax(xid);
+        LockManager lockManager = transactionManager.getLockManager();
+        LockTag rowTag = null;
+        try {
+            while (true) {
+                long xmax = target.getXmax();
+                if (xmax == xid) {
+                    return null;  // Already replaced or deleted by this transaction
+                }
+                if (xmax == ownLock) {
+                    // Already locked by this transaction; an update upgrades it
+                    if (lockOnly || target.compareAndSetXmax(xmax, xid)) {
+                        return target;
+                    }
+                    continue;
+                }
 
-        // Remove from indexes
-        TableMetadata metadata = tables.get(tupleId.tableName());
-        removeFromIndexes(metadata, currentTuple);
+                long writer = Tuple.xmaxXid(xmax);
+                boolean lockedOnly = Tuple.isLockOnly(xmax);
+                if (xmax == 0 || transactionManager.isAborted(writer) ||
+                        (lockedOnly && !transactionManager.isActive(writer))) {
+                    // Uncontended path: a single compare-and-set
+                    if (target.compareAndSetXmax(xmax, lockOnly ? ownLock : xid)) {
+                        return target;
+                    }
+                    continue;
+                }
+                if (lockedOnly || !target.isXmaxCommitted(xmax, transactionManager)) {
+                    // Still running. A row lock never changes the row, so
+                    // snapshot transactions wait for it like read committed.
+                    if (snapshotIsolation && !lockedOnly) {
+                        throw new SerializationException(
+                            "Could not serialize access due to concurrent update: " + target.id());
+                    }
+                    if (rowTag == null) {
+                        rowTag = LockTag.row(target.id());
+                        lockManager.lock(txn, rowTag, LockMode.EXCLUSIVE);
+                        continue;  // The writer may have ended meanwhile
+                    }
+                    transactionManager.waitForTransaction(txn, writer);
+                    continue;
+                }
+                if (snapshotIsolation) {
+                    throw new SerializationException(
+                        "Could not serialize access due to concurrent update: " + target.id());
+                }
+
+                // Read committed: go on with the newest committed version, or
+                // give up on the row if the winner deleted it
+                Tuple latest = heap.head(target.id());
+                while (latest != null && latest != target && !latest.isXminCommitted(transactionManager)) {
+                    latest = latest.getOlderVersion();
+                }
+                if (latest == null || latest == target) {
+                    return null;
+                }
+                target = latest;
+            }
+        } finally {
+            if (rowTag != null) {
+                lockManager.unlock(txn, rowTag);
+            }
+        }
     }
 
     @Override
     public Optional<Tuple> getTuple(TupleId tupleId, Transaction txn) {
-        // Get base version (v0)
-        TupleId baseId = tupleId.getBaseId();
-        Tuple tuple = tableTuples.get(baseId);
-        
-        if (tuple == null) {
+        TableHeap heap = heaps.get(tupleId.tableName());
+        if (heap == null) {
             return Optional.empty();
         }
+        return getTuple(heap, tupleId, txn);
+    }
 
-        // Follow version chain until we find a visible version
-        Tuple currentVersion = tuple;
-        Tuple visibleVersion = null;
+    private Optional<Tuple> getTuple(TableHeap heap, TupleId tupleId, Transaction txn) {
+        // Walk from the newest version towards older ones; the first visible
+        // version is the one this transaction sees
+        boolean serializable = txn.getIsolationLevel() == IsolationLevel.SERIALIZABLE;
+        Tuple head;
+        Tuple visibleVersion;
+        do {
+            head = heap.head(tupleId);
+            visibleVersion = head;
+            while (visibleVersion != null && !isVisible(visibleVersion, txn)) {
+                if (serializable) {
+                    checkConflictOut(visibleVersion, false, txn);
+                }
+                visibleVersion = visibleVersion.getOlderVersion();
+            }
+        } while (chainMovedDuringWalk(heap, head, visibleVersion, txn));
 
-        while (currentVersion != null) {
-            if (isVisible(currentVersion, txn)) {
-                visibleVersion = currentVersion;
+        if (visibleVersion != null) {
+            txn.recordRead(visibleVersion.id());
+            if (serializable) {
+                checkConflictOut(visibleVersion, true, txn);
+                transactionManager.getPredicateLockManager().lockTuple(txn, tupleId);
             }
-            
-            TupleId nextId = currentVersion.getNextVersionId();
-            // Move to next version
-            if (nextId == null || nextId.equals(currentVersion.id())) {
+        }
+
+        return Optional.ofNullable(visibleVersion);
+    }
+
+    /**
+     * Checks whether a read committed walk has to start over because the
+     * chain moved under it: the head it skipped as uncommitted committed
+     * before the walk reached the older versions, which then read as
+     * replaced by a committed update, or a newer head was pushed since.
+     * Either way the walk could find no version of a row that exists.
+     * Snapshot reads never retry, as the updaters stay running to them.
+     */
+    private boolean chainMovedDuringWalk(TableHeap heap, Tuple head, Tuple visibleVersion, Transaction txn) {
+        if (head == null || visibleVersion == head || txn.getSnapshot() != null) {
+            return false;
+        }
+        return heap.head(head.id()) != head || isVisible(head, txn);
+    }
+
+    /**
+     * Records an rw-conflict when a serializable reader meets a version
+     * written by a transaction its snapshot does not see, like
+     * HeapCheckForSerializableConflictOut: the creator of a version skipped
+     * as too new, or the updater of the version read.
+     */
+    private void checkConflictOut(Tuple version, boolean visible, Transaction txn) {
+        Snapshot snapshot = txn.getSnapshot();
+        long writer = visible ? version.getUpdateXid() : version.getXmin();
+        if (snapshot == null || writer == 0 || writer == txn.getXid()) {
+            return;
+        }
+        if (snapshot.isRunning(writer) && !transactionManager.isAborted(writer)) {
+            transactionManager.getPredicateLockManager().checkConflictOut(txn, writer);
+        }
+    }
+
+    /**
+     * Undoes the writes of an aborting transaction from its write set, so
+     * readers and vacuum never have to skip them: the versions it created
+     * are unlinked from their chains and indexes, and the versions it
+     * replaced or deleted become live again.
+     */
+    private void undo(Transaction txn) {
+        Set<TupleId> rows = new HashSet<>();
+        for (TupleId tupleId : txn.getWriteSet()) {
+            rows.add(tupleId.getBaseId());
+        }
+        for (TupleId baseId : rows) {
+            TableHeap heap = heaps.get(baseId.tableName());
+            if (heap != null) {
+                undoRow(heap, baseId, txn.getXid());
+            }
+        }
+    }
+
+    private void undoRow(TableHeap heap, TupleId baseId, long xid) {
+        // Nobody else can see the transaction's own versions to update them,
+        // so they all sit at the head of the chain
+        List<Tuple> removed = new ArrayList<>();
+        Tuple head = heap.head(baseId);
+        while (head != null && head.getXmin() == xid) {
+            Tuple older = head.getOlderVersion();
+            if (!heap.replaceHead(baseId, head, older)) {
+                break;  // Left for vacuum
+            }
+            removed.add(head);
+            if (head.getXmax() == xid) {
+                heap.discountDeadVersion();
+            }
+            if (older != null) {
+                older.setNextVersion(older.id());
+            }
+            head = older;
+        }
+        if (head != null && head.getXmin() != xid && head.compareAndSetXmax(xid, 0L)) {
+            heap.discountDeadVersion();
+        }
+
+        if (!removed.isEmpty()) {
+            unlinkFromIndexes(heap, baseId, removed);
+        }
+    }
+
+    /**
+     * Removes the tuple versions of a table that no transaction can see any
+     * more and unlinks them from the table's indexes, similar to PostgreSQL's
+     * lazy vacuum of one heap. A version is dead once it was created by an
+     * aborted transaction, or replaced or deleted by a transaction that
+     * committed below the oldest xmin of the running transactions.
+     *
+     * @param cost charged VacuumWorker.COST_ROW_VISIT for every row and
+     *        VacuumWorker.COST_VERSION_REMOVED for every removed version, so
+     *        the caller can throttle the pass
+     */
+    public VacuumStats vacuumTable(String tableName, IntConsumer cost) {
+        return vacuumTable(tableName, transactionManager.getOldestXmin(), cost);
+    }
+
+    /**
+     * Vacuums every table against one horizon, then truncates the commit log
+     * below it if no row had to be skipped. Every transaction below the
+     * horizon has ended, and after a complete pass no version refers to one
+     * that aborted, so they can all read as committed.
+     */
+    public List<VacuumStats> vacuumAll(IntConsumer cost) {
+        long horizon = transactionManager.getOldestXmin();
+        List<VacuumStats> stats = new ArrayList<>();
+        boolean complete = true;
+        for (String tableName : new ArrayList<>(heaps.keySet())) {
+            VacuumStats tableStats = vacuumTable(tableName, horizon, cost);
+            complete &= tableStats.getSkippedRows() == 0;
+            stats.add(tableStats);
+        }
+        if (complete) {
+            transactionManager.truncateCommitLog(horizon);
+        }
+        return stats;
+    }
+
+    /**
+     * Returns how many transaction IDs the commit log holds, like age of
+     * datfrozenxid; vacuumAll brings it back down.
+     */
+    public long getFrozenXidAge() {
+        return transactionManager.getNextXid() - transactionManager.getFrozenXid();
+    }
+
+    private VacuumStats vacuumTable(String tableName, long horizon, IntConsumer cost) {
+        TableHeap heap = getHeap(tableName);
+        heap.resetDeadVersionCount();
+
+        long removedVersions = 0;
+        long reclaimedBytes = 0;
+        long skippedRows = 0;
+        for (Tuple head : heap.heads()) {
+            cost.accept(VacuumWorker.COST_ROW_VISIT);
+            TupleId baseId = head.id().getBaseId();
+            List<Tuple> removed = new ArrayList<>();
+            if (!pruneRow(heap, baseId, horizon, removed)) {
+                skippedRows++;
+            }
+            if (removed.isEmpty()) {
+                continue;
+            }
+
+            unlinkFromIndexes(heap, baseId, removed);
+            for (Tuple version : removed) {
+                reclaimedBytes += estimateSize(version);
+            }
+            removedVersions += removed.size();
+            cost.accept(VacuumWorker.COST_VERSION_REMOVED * removed.size());
+        }
+        return new VacuumStats(tableName, removedVersions, reclaimedBytes, skippedRows);
+    }
+
+    /**
+     * Returns the tables that have accumulated more dead versions than the
+     * given threshold plus scale factor times their row count, like
+     * autovacuum_vacuum_threshold and autovacuum_vacuum_scale_factor.
+     */
+    public List<String> tablesNeedingVacuum(long threshold, double scaleFactor) {
+        List<String> tableNames = new ArrayList<>();
+        for (Map.Entry<String, TableHeap> entry : heaps.entrySet()) {
+            TableHeap heap = entry.getValue();
+            if (heap.getDeadVersionCount() > threshold + scaleFactor * heap.size()) {
+                tableNames.add(entry.getKey());
+            }
+        }
+        return tableNames;
+    }
+
+    /**
+     * Unlinks the dead versions of one row from its chain and returns them.
+     * Versions of aborted transactions can only sit at the head, since nobody
+     * else could see them to update them. Below the first version whose
+     * creator committed before the horizon, every version was replaced by a
+     * transaction all snapshots see as committed.
+     *
+     * @return false if the row changed meanwhile and has to be retried on
+     *         the next pass
+     */
+    private boolean pruneRow(TableHeap heap, TupleId baseId, long horizon, List<Tuple> removed) {
+        Tuple head = heap.head(baseId);
+        while (head != null && transactionManager.isAborted(head.getXmin())) {
+            Tuple older = head.getOlderVersion();
+            if (!heap.replaceHead(baseId, head, older)) {
+                return false;
+            }
+            removed.add(head);
+            if (older != null) {
+                older.setNextVersion(older.id());
+            }
+            head = older;
+        }
+        if (head == null) {
+            return true;
+        }
+
+        // An aborted delete or update leaves the version live again
+        long xmax = head.getUpdateXid();
+        if (xmax != 0 && transactionManager.isAborted(xmax)) {
+            if (!head.compareAndSetXmax(xmax, 0L)) {
+                return false;
+            }
+        } else if (xmax != 0 && xmax < horizon && head.isXmaxCommitted(xmax, transactionManager)) {
+            // Deleted before every running snapshot: drop the whole row
+            if (!heap.replaceHead(baseId, head, null)) {
+                return false;
+            }
+            for (Tuple version = head; version != null; version = version.getOlderVersion()) {
+                removed.add(version);
+            }
+            return true;
+        }
+
+        for (Tuple version = head; version != null; version = version.getOlderVersion()) {
+            if (version.getXmin() < horizon && version.isXminCommitted(transactionManager)) {
+                Tuple older = version.getOlderVersion();
+                version.setOlderVersion(null);
+                for (; older != null; older = older.getOlderVersion()) {
+                    removed.add(older);
+                }
                 break;
             }
-            currentVersion = tableTuples.get(nextId);
         }
+        return true;
+    }
 
-        if (visibleVersion != null) {
-            txn.recordRead(visibleVersion.id());
+    /**
+     * Deletes the index entries of removed versions whose key no remaining
+     * version of the row carries. An update that re-adds such a key links its
+     * version before inserting the entry, so checking the chain again after
+     * the delete puts back an entry it raced with.
+     */
+    private void unlinkFromIndexes(TableHeap heap, TupleId baseId, List<Tuple> removed) {
+        for (String indexName : heap.getMetadata().indexes().keySet()) {
+            Index<IndexKey> index = indexMap.get(indexName);
+            if (index == null) {
+                continue;
+            }
+            IndexKeyEncoder encoder = keyEncoders.get(indexName);
+            Set<IndexKey> liveKeys = rowKeys(heap, baseId, encoder);
+            for (Tuple version : removed) {
+                IndexKey key = encoder.encodeRow(version.getValues());
+                if (!liveKeys.contains(key)) {
+                    index.delete(key, baseId.rowId());
+                    if (rowKeys(heap, baseId, encoder).contains(key)) {
+                        index.insert(key, baseId.rowId());
+                    }
+                }
+            }
         }
+    }
 
-        return Optional.ofNullable(visibleVersion);
+    private Set<IndexKey> rowKeys(TableHeap heap, TupleId baseId, IndexKeyEncoder encoder) {
+        Set<IndexKey> keys = new HashSet<>();
+        for (Tuple version = heap.head(baseId); version != null; version = version.getOlderVersion()) {
+            keys.add(encoder.encodeRow(version.getValues()));
+        }
+        return keys;
+    }
+
+    private static long estimateSize(Tuple tuple) {
+        long size = TUPLE_OVERHEAD_BYTES;
+        for (Object value : tuple.getValues()) {
+            size += ByteUtils.getSerializedLength(value);
+        }
+        return size;
+    }
+
+    private TableHeap getHeap(String tableName) {
+        TableHeap heap = heaps.get(tableName);
+        if (heap == null) {
+            throw new IllegalArgumentException("Table not found: " + tableName);
+        }
+        return heap;
+    }
+
+    private IndexMetadata getIndexMetadata(String indexName) {
+        IndexMetadata indexMetadata = indexDefinitions.get(indexName);
+        if (indexMetadata == null) {
+            throw new IllegalArgumentException("Index not found: " + indexName);
+        }
+        return indexMetadata;
     }
 
     private boolean isVisible(Tuple tuple, Transaction txn) {
         long xmin = tuple.getXmin();  // Creating transaction
-        long xmax = tuple.getXmax();  // Deleting transaction
+        long xmax = tuple.getUpdateXid();  // Deleting transaction; row locks do not hide it
+        Snapshot snapshot = txn.getSnapshot();
 
-        // Check if creating transaction is visible
-        if (!transactionManager.isCommitted(xmin) && xmin != txn.getXid()) {
-            return false;
+        // Check if creating transaction is visible. A snapshot check comes
+        // first; the commit status itself usually comes from the hint bits.
+        if (xmin != txn.getXid()) {
+            if (snapshot != null && snapshot.isRunning(xmin)) {
+                return false;
+            }
+            if (!tuple.isXminCommitted(transactionManager)) {
+                return false;
+            }
         }
 
         // Check if tuple is deleted
@@ -230,7 +793,10 @@ public class InMemoryStorage implements Storage {
             if (xmax == txn.getXid()) {
                 return false;
             }
-            if (transactionManager.isCommitted(xmax)) {
+            if (snapshot != null && snapshot.isRunning(xmax)) {
+                return true;
+            }
+            if (tuple.isXmaxCommitted(xmax, transactionManager)) {
                 return false;
             }
         }
@@ -244,7 +810,7 @@ public class InMemoryStorage implements Storage {
         }
 
         List<Object> values = tuple.getValues();
-        List<String> columnNames = tables.get(tuple.id().tableName()).columns().stream()
+        List<String> columnNames = getHeap(tuple.id().tableName()).getMetadata().columns().stream()
             .map(column -> column.name())
             .collect(Collectors.toList());
 
@@ -261,70 +827,30 @@ public class InMemoryStorage implements Storage {
         return matches;
     }
 
-    private String buildIndexKey(IndexMetadata indexMetadata, Tuple tuple) {
-        List<String> indexedColumns = indexMetadata.columnNames();
-        TableMetadata metadata = tables.get(tuple.id().tableName());
+    private List<Object> extractIndexValues(IndexMetadata indexMetadata, TableMetadata metadata, Tuple tuple) {
         List<Object> values = tuple.getValues();
         List<Object> indexValues = new ArrayList<>();
-        
+
         // Only use values from indexed columns
-        for (String columnName : indexedColumns) {
+        for (String columnName : indexMetadata.columnNames()) {
             int columnIndex = metadata.columnNames().indexOf(columnName);
             if (columnIndex >= 0) {
                 indexValues.add(values.get(columnIndex));
             }
         }
-        
-        return buildTypedKey(indexValues);
-    }
-
-    private String buildTypedKey(List<Object> values) {
-        StringBuilder key = new StringBuilder();
-        for (int i = 0; i < values.size(); i++) {
-            Object value = values.get(i);
-            if (i > 0) key.append(":");
-            
-            if (value instanceof Number) {
-                // Pad numbers for proper lexicographical ordering
-                key.append(String.format("%020d", ((Number) value).longValue()));
-            } else if (value instanceof String) {
-                // Escape special characters
-                key.append(((String) value).replace(":", "\\:"));
-            } else {
-                key.append(value);
-            }
-        }
-        return key.toString();
+        return indexValues;
     }
 
     private void updateIndexes(TableMetadata metadata, Tuple tuple, Transaction txn) {
         if (metadata.indexes() != null) {
-            for (Map.Entry<String, IndexMetadata> indexEntry : metadata.indexes().entrySet()) {
-                String indexName = indexEntry.getKey();
-                IndexMetadata indexMetadata = indexEntry.getValue();
-                HashIndex<String, TupleId> index = indexMap.get(indexName);
+            for (String indexName : metadata.indexes().keySet()) {
+                Index<IndexKey> index = indexMap.get(indexName);
                 
                 if (index != null) {
-                    String indexKey = buildIndexKey(indexMetadata, tuple);
-                    index.insert(indexKey, tuple.id()).join();
-                }
-            }
-        }
-    }
-
-    private void removeFromIndexes(TableMetadata metadata, Tuple tuple) {
-        if (metadata.indexes() != null) {
-            for (Map.Entry<String, IndexMetadata> indexEntry : metadata.indexes().entrySet()) {
-                String indexName = indexEntry.getKey();
-                IndexMetadata indexMetadata = indexEntry.getValue();
-                HashIndex<String, TupleId> index = indexMap.get(indexName);
-                
-                if (index != null) {
-                    String indexKey = buildIndexKey(indexMetadata, tuple);
-                    index.delete(indexKey).join();
+                    IndexKey indexKey = keyEncoders.get(indexName).encodeRow(tuple.getValues());
+                    index.insert(indexKey, tuple.id().rowId());
                 }
             }
         }
     }
 }
-
@@ -0,0 +1,112 @@
+package com.easydb.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Key bounds for an index lookup, similar to PostgreSQL's ScanKey array.
+ * Bounds are values of the leading index columns; a null bound is unbounded.
+ */
+public class IndexKeyRange {
+    private final List<Object> lowerBound;
+    private final boolean lowerInclusive;
+    private final List<Object> upperBound;
+    private final boolean upperInclusive;
+
+    private IndexKeyRange(List<Object> lowerBound, boolean lowerInclusive,
+                          List<Object> upperBound, boolean upperInclusive) {
+        this.lowerBound = lowerBound == null ? null : Collections.unmodifiableList(new ArrayList<>(lowerBound));
+        this.lowerInclusive = lowerInclusive;
+        this.upperBound = upperBound == null ? null : Collections.unmodifiableList(new ArrayList<>(upperBound));
+        this.upperInclusive = upperInclusive;
+    }
+
+    /**
+     * Creates a range matching keys equal to the given values.
+     */
+    public static IndexKeyRange equalTo(List<Object> key) {
+        return new IndexKeyRange(key, true, key, true);
+    }
+
+    /**
+     * Creates a range between two bounds, either of which may be null (unbounded).
+     */
+    public static IndexKeyRange between(List<Object> lowerBound, boolean lowerInclusive,
+                                        List<Object> upperBound, boolean upperInclusive) {
+        return new IndexKeyRange(lowerBound, lowerInclusive, upperBound, upperInclusive);
+    }
+
+    /**
+     * Creates a range matching every key in the index.
+     */
+    public static IndexKeyRange all() {
+        return new IndexKeyRange(null, true, null, true);
+    }
+
+    /**
+     * Checks if this range matches a single key (an equality lookup).
+     */
+    public boolean isPoint() {
+        return lowerBound != null && lowerInclusive && upperInclusive
+            && lowerBound.equals(upperBound);
+    }
+
+    /**
+     * Checks if an index key falls within this range.
+     * Bounds shorter than the key only constrain the key's leading columns.
+     */
+    public boolean contains(List<Object> key) {
+        if (lowerBound != null) {
+            int cmp = comparePrefix(key, lowerBound);
+            if (cmp < 0 || (cmp == 0 && !lowerInclusive)) {
+                return false;
+            }
+        }
+        if (upperBound != null) {
+            int cmp = comparePrefix(key, upperBound);
+            if (cmp > 0 || (cmp == 0 && !upperInclusive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int comparePrefix(List<Object> key, List<Object> bound) {
+        for (int i = 0; i < bound.size(); i++) {
+            int cmp = compareValues(key.get(i), bound.get(i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object a, Object b) {
+        // NULLs sort last, as in PostgreSQL's default btree ordering
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        if (a instanceof Number && b instanceof Number) {
+            if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) {
+                return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+            }
+            return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+        }
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    public List<Object> getLowerBound() { return lowerBound; }
+    public boolean isLowerInclusive() { return lowerInclusive; }
+    public List<Object> getUpperBound() { return upperBound; }
+    public boolean isUpperInclusive() { return upperInclusive; }
+
+    @Override
+    public String toString() {
+        return (lowerInclusive ? "[" : "(") +
+            (lowerBound == null ? "-inf" : lowerBound) + ", " +
+            (upperBound == null ? "+inf" : upperBound) +
+            (upperInclusive ? "]" : ")");
+    }
+}
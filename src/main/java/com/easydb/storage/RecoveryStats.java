@@ -0,0 +1,70 @@
+package com.easydb.storage;
+
+/**
+ * Result of replaying the write-ahead log at startup: how many records were
+ * read and redone, how many transactions they came from, and how long it
+ * took.
+ */
+public final class RecoveryStats {
+    private final long recordsRead;
+    private final long recordsRedone;
+    private final long committedTransactions;
+    private final long abortedTransactions;
+    private final long elapsedNanos;
+
+    public RecoveryStats(long recordsRead, long recordsRedone, long committedTransactions,
+                         long abortedTransactions, long elapsedNanos) {
+        this.recordsRead = recordsRead;
+        this.recordsRedone = recordsRedone;
+        this.committedTransactions = committedTransactions;
+        this.abortedTransactions = abortedTransactions;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+
+    /**
+     * Returns the number of row changes applied; those of transactions that
+     * did not commit are read but skipped.
+     */
+    public long getRecordsRedone() {
+        return recordsRedone;
+    }
+
+    public long getCommittedTransactions() {
+        return committedTransactions;
+    }
+
+    /**
+     * Returns the number of transactions that aborted or were still running
+     * when the log ended.
+     */
+    public long getAbortedTransactions() {
+        return abortedTransactions;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the records read per second of recovery, the figure that
+     * bounds restart time on a long log.
+     */
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : recordsRead * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "RecoveryStats{" +
+            "recordsRead=" + recordsRead +
+            ", recordsRedone=" + recordsRedone +
+            ", committedTransactions=" + committedTransactions +
+            ", abortedTransactions=" + abortedTransactions +
+            ", elapsedMillis=" + elapsedNanos / 1_000_000 +
+            '}';
+    }
+}
@@ -30,20 +30,52 @@ public interface Storage {
     void insertTuple(Tuple tuple, Transaction txn);
 
     /**
-     * Updates a tuple in storage.
+     * Updates a tuple in storage. A concurrent writer of the same row makes
+     * read committed wait for it and repeatable read fail with a
+     * SerializationException.
+     *
+     * @return false if nothing was updated: the row was deleted concurrently,
+     *         or this transaction already replaced or deleted the version
      */
-    void updateTuple(TupleId tupleId, List<Object> newValues, Transaction txn);
+    boolean updateTuple(TupleId tupleId, List<Object> newValues, Transaction txn);
 
     /**
-     * Deletes a tuple from storage.
+     * Deletes a tuple from storage, handling concurrent writers of the row
+     * like {@link #updateTuple}.
+     *
+     * @return false if nothing was deleted, for the same reasons as
+     *         {@link #updateTuple}
      */
-    void deleteTuple(TupleId tupleId, Transaction txn);
+    boolean deleteTuple(TupleId tupleId, Transaction txn);
+
+    /**
+     * Locks a row against concurrent updates and deletes until the
+     * transaction ends, like SELECT ... FOR UPDATE. Under read committed the
+     * newest version of the row is locked and returned.
+     *
+     * @return the locked version, or empty if the row was deleted
+     *         concurrently
+     */
+    Optional<Tuple> lockTuple(TupleId tupleId, Transaction txn);
 
     /**
      * Finds tuples matching the specified conditions.
      */
     List<Tuple> scanTuples(String tableName, Map<String, Object> conditions, Transaction txn);
 
+    /**
+     * Looks up the rows stored in an index for the given key range, as base
+     * tuple IDs of their version chains. B-tree indexes return them in key order; index types without key order
+     * may return candidates outside the range.
+     */
+    List<TupleId> lookupIndex(String indexName, IndexKeyRange range);
+
+    /**
+     * Finds the visible tuples whose index key falls within the given range.
+     * Similar to PostgreSQL's index scan with heap fetch and recheck.
+     */
+    List<Tuple> scanIndex(String indexName, IndexKeyRange range, Transaction txn);
+
     /**
      * Retrieves a tuple by its ID.
      */
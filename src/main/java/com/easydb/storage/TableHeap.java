@@ -0,0 +1,160 @@
+package com.easydb.storage;
+
+import com.easydb.storage.metadata.TableMetadata;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Heap of tuple versions owned by a single table.
+ * Similar to PostgreSQL's per-relation heap file: every table has its own
+ * storage, so scans, index builds and truncation only touch that table's rows.
+ *
+ * Each row is reached through a head pointer to its newest version, and the
+ * versions are chained from newest to oldest, so reading the latest version
+ * of a row is a single lookup and only old snapshots walk the chain.
+ */
+public class TableHeap {
+    private final TableMetadata metadata;
+    private final Map<TupleId, Tuple> heads;  // Base (v0) ID -> newest version
+    private final AtomicLong deadVersions;    // Like pg_stat n_dead_tup, reset by vacuum
+
+    public TableHeap(TableMetadata metadata) {
+        this.metadata = metadata;
+        this.heads = new ConcurrentHashMap<>();
+        this.deadVersions = new AtomicLong();
+    }
+
+    /**
+     * Stores the first version of a new row, replacing any previous copy.
+     */
+    public void put(Tuple tuple) {
+        heads.put(tuple.id().getBaseId(), tuple);
+    }
+
+    /**
+     * Installs a new version as the head of its row's chain, linked to the
+     * version it replaces.
+     *
+     * @throws IllegalStateException if the replaced version is no longer the
+     *         newest version of the row
+     */
+    public void pushVersion(Tuple replaced, Tuple version) {
+        heads.compute(version.id().getBaseId(), (baseId, head) -> {
+            if (head != replaced) {
+                throw new IllegalStateException("Tuple was updated concurrently: " + replaced.id());
+            }
+            version.setOlderVersion(head);
+            head.setNextVersion(version.id());
+            return version;
+        });
+    }
+
+    /**
+     * Replaces the newest version of a row if it is still the expected one,
+     * removing the row when the new head is null. Used by vacuum to drop
+     * versions from the top of a chain without losing a concurrent update.
+     *
+     * @return true if the head was replaced
+     */
+    public boolean replaceHead(TupleId baseId, Tuple expected, Tuple newHead) {
+        boolean[] replaced = new boolean[1];
+        heads.computeIfPresent(baseId, (id, head) -> {
+            if (head != expected) {
+                return head;
+            }
+            replaced[0] = true;
+            return newHead;
+        });
+        return replaced[0];
+    }
+
+    /**
+     * Retrieves the newest version of a row.
+     */
+    public Tuple head(TupleId tupleId) {
+        return heads.get(tupleId.getBaseId());
+    }
+
+    /**
+     * Retrieves a tuple version by its ID.
+     */
+    public Tuple get(TupleId tupleId) {
+        Tuple version = head(tupleId);
+        while (version != null && version.id().version() > tupleId.version()) {
+            version = version.getOlderVersion();
+        }
+        return version != null && version.id().version() == tupleId.version() ? version : null;
+    }
+
+    /**
+     * Returns the IDs of the initial (v0) versions, one per row.
+     */
+    public Stream<TupleId> baseTupleIds() {
+        return heads.keySet().stream();
+    }
+
+    /**
+     * Returns the newest version of every row.
+     */
+    public Collection<Tuple> heads() {
+        return heads.values();
+    }
+
+    /**
+     * Returns every stored tuple version.
+     */
+    public List<Tuple> tuples() {
+        List<Tuple> tuples = new ArrayList<>();
+        for (Tuple head : heads.values()) {
+            for (Tuple version = head; version != null; version = version.getOlderVersion()) {
+                tuples.add(version);
+            }
+        }
+        return tuples;
+    }
+
+    /**
+     * Counts a version that was replaced or deleted and will become garbage
+     * once no snapshot can see it.
+     */
+    public void countDeadVersion() {
+        deadVersions.incrementAndGet();
+    }
+
+    /**
+     * Takes back a dead version count when a rollback makes the replaced or
+     * deleted version live again.
+     */
+    public void discountDeadVersion() {
+        deadVersions.updateAndGet(count -> Math.max(0, count - 1));
+    }
+
+    public long getDeadVersionCount() {
+        return deadVersions.get();
+    }
+
+    /**
+     * Resets the dead version count at the start of a vacuum pass; versions
+     * that die while the pass runs count towards the next one.
+     */
+    public void resetDeadVersionCount() {
+        deadVersions.set(0);
+    }
+
+    /**
+     * Returns the number of rows, counting each version chain once.
+     */
+    public int size() {
+        return heads.size();
+    }
+
+    public TableMetadata getMetadata() {
+        return metadata;
+    }
+}
@@ -0,0 +1,78 @@
+package com.easydb.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global table OID registry using static methods.
+ * Similar to the OID column of PostgreSQL's pg_class: the storage assigns
+ * every table it creates a stable integer identifier, so tuple identifiers
+ * can refer to their table by a primitive instead of a String. Like
+ * PostgreSQL's OID counter, which every database of a cluster draws from,
+ * the registry is shared by all storage instances; a name created in two of
+ * them keeps one OID.
+ */
+public class TableOids {
+    /** Never assigned, like PostgreSQL's InvalidOid. */
+    public static final int INVALID_OID = 0;
+
+    // User objects start above the range reserved for system objects, as in PostgreSQL
+    private static final int FIRST_OID = 16384;
+
+    // Singleton instance for global state
+    private static final TableOids INSTANCE = new TableOids();
+
+    private final ConcurrentHashMap<String, Integer> oids;
+    private volatile String[] names;  // Indexed by oid - FIRST_OID, copied on write
+
+    private TableOids() {
+        this.oids = new ConcurrentHashMap<>();
+        this.names = new String[0];
+    }
+
+    /**
+     * Returns the OID of a table.
+     *
+     * @throws IllegalArgumentException if no table of that name was created
+     */
+    public static int oidOf(String tableName) {
+        Integer oid = INSTANCE.oids.get(tableName);
+        if (oid == null) {
+            throw new IllegalArgumentException("Table not found: " + tableName);
+        }
+        return oid;
+    }
+
+    /**
+     * Assigns the next free OID to a table when it is created, or returns the
+     * one it already has. Only the catalog calls this; anything else looks
+     * tables up with {@link #oidOf}.
+     */
+    public static int assign(String tableName) {
+        Integer oid = INSTANCE.oids.get(tableName);
+        return oid != null ? oid : INSTANCE.register(tableName);
+    }
+
+    /**
+     * Returns the table name for an OID, or null for an unknown OID.
+     */
+    public static String nameOf(int oid) {
+        String[] current = INSTANCE.names;
+        int slot = oid - FIRST_OID;
+        return slot >= 0 && slot < current.length ? current[slot] : null;
+    }
+
+    private synchronized int register(String tableName) {
+        Integer existing = oids.get(tableName);
+        if (existing != null) {
+            return existing;
+        }
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        int oid = FIRST_OID + names.length;
+        grown[names.length] = tableName;
+        // Publish the name before the OID can be handed out
+        names = grown;
+        oids.put(tableName, oid);
+        return oid;
+    }
+}
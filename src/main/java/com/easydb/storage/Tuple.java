@@ -5,26 +5,42 @@ import java.util.Map;
 import java.util.ArrayList;
 
 import com.easydb.storage.metadata.TableMetadata;
-import com.easydb.storage.transaction.Transaction;
 import com.easydb.storage.transaction.TransactionManager;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Arrays;
-import java.util.stream.Collectors;
 
 /**
  * Represents a tuple (row) in a table.
  * Similar to PostgreSQL's HeapTuple structure.
  */
 public class Tuple {
+    private static final VarHandle XMAX;
+
+    static {
+        try {
+            XMAX = MethodHandles.lookup().findVarHandle(Tuple.class, "xmax", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final TupleId id;
     private final List<Object> values;
     private final TupleHeader header;
+    private volatile long xmax;              // Deleting transaction, set in place like t_xmax
     private volatile TupleId nextVersionId;  // Points to next version (PostgreSQL's t_ctid)
+    private volatile Tuple olderVersion;     // Previous version of the row, older in the chain
 
     public Tuple(TupleId id, List<Object> values, TupleHeader header, long xmin, long xmax) {
         this.id = id;
         this.values = new ArrayList<>(values);
-        this.header = header.withXmin(xmin).withXmax(xmax);
+        // Headers are shared until the MVCC fields differ
+        this.header = header.getXmin() == xmin && header.getXmax() == xmax
+            ? header
+            : new TupleHeader(header.getDescriptor(), xmin, xmax);
+        this.xmax = xmax;
         this.nextVersionId = id;  // Initially points to self (like PostgreSQL)
     }
 
@@ -41,47 +57,120 @@ public class Tuple {
         return nextVersionId;
     }
 
-    // MVCC support
-    public boolean isVisible(Transaction txn) {
-        switch (txn.getIsolationLevel()) {
-            case READ_COMMITTED:
-                return isVisibleForReadCommitted(txn);
-            case REPEATABLE_READ:
-            case SERIALIZABLE:
-                return isVisibleForSnapshot(txn);
-            default:
-                throw new IllegalStateException("Unknown isolation level");
-        }
+    /**
+     * Links the version this one replaced. Heap version chains run from the
+     * newest version to the oldest.
+     */
+    public void setOlderVersion(Tuple olderVersion) {
+        this.olderVersion = olderVersion;
+    }
+
+    public Tuple getOlderVersion() {
+        return olderVersion;
     }
 
-    private boolean isVisibleForReadCommitted(Transaction txn) {
-        // Creator must be committed
-        if (!txn.isCommitted(header.getXmin()) && header.getXmin() != txn.getXid()) {
+    /**
+     * Marks the version as deleted or replaced by a transaction, in place.
+     */
+    public void setXmax(long xmax) {
+        this.xmax = xmax;
+        header.clearHint(TupleHeader.XMAX_COMMITTED);
+    }
+
+    /**
+     * Atomically sets xmax if it still holds the expected value.
+     */
+    public boolean compareAndSetXmax(long expected, long xmax) {
+        if (!XMAX.compareAndSet(this, expected, xmax)) {
             return false;
         }
+        header.clearHint(TupleHeader.XMAX_COMMITTED);
+        return true;
+    }
+
+    /**
+     * Returns the xmax value that marks a version as locked by a transaction
+     * without replacing it, like HEAP_XMAX_LOCK_ONLY. It is the negated xid,
+     * so taking and upgrading a row lock stays a single compare-and-set.
+     */
+    public static long lockOnlyXmax(long xid) {
+        return -xid;
+    }
+
+    public static boolean isLockOnly(long xmax) {
+        return xmax < 0;
+    }
 
-        // Not deleted or deleter not committed
-        return header.getXmax() == 0 || 
-               !txn.isCommitted(header.getXmax()) || 
-               header.getXmax() == txn.getXid();
+    /**
+     * Returns the transaction an xmax value refers to, whether it replaced
+     * the version or only locked it.
+     */
+    public static long xmaxXid(long xmax) {
+        return Math.abs(xmax);
     }
 
-    private boolean isVisibleForSnapshot(Transaction txn) {
-        // Must be created before snapshot
-        if (header.getXmin() >= txn.getXid() || 
-            txn.wasActiveAtSnapshot(header.getXmin())) {
+    /**
+     * Returns the xmax of the transaction that replaced or deleted the
+     * version, or 0 if it is live or only locked, like
+     * HeapTupleHeaderGetUpdateXid.
+     */
+    public long getUpdateXid() {
+        long xmax = this.xmax;
+        return isLockOnly(xmax) ? 0 : xmax;
+    }
+
+    /**
+     * Checks the hint bits of the stored header.
+     */
+    public boolean hasHint(int hint) {
+        return header.hasHint(hint);
+    }
+
+    /**
+     * Checks if the creating transaction committed, from the hint bits when
+     * set and otherwise from the commit log, like HeapTupleSatisfiesMVCC
+     * setting HEAP_XMIN_COMMITTED or HEAP_XMIN_INVALID.
+     */
+    public boolean isXminCommitted(TransactionManager transactionManager) {
+        if (header.hasHint(TupleHeader.XMIN_COMMITTED)) {
+            return true;
+        }
+        if (header.hasHint(TupleHeader.XMIN_ABORTED)) {
             return false;
         }
+        long xmin = header.getXmin();
+        if (transactionManager.isCommitted(xmin)) {
+            header.setHint(TupleHeader.XMIN_COMMITTED);
+            return true;
+        }
+        if (transactionManager.isAborted(xmin)) {
+            header.setHint(TupleHeader.XMIN_ABORTED);
+        }
+        return false;
+    }
 
-        // Not deleted or deleted after snapshot
-        return header.getXmax() == 0 || 
-               header.getXmax() >= txn.getXid() || 
-               txn.wasActiveAtSnapshot(header.getXmax());
+    /**
+     * Checks if the deleting transaction committed, caching a commit in the
+     * hint bits. The hint only answers while xmax still holds the value the
+     * caller read, and is dropped again if xmax changed while it was set.
+     */
+    public boolean isXmaxCommitted(long xmax, TransactionManager transactionManager) {
+        if (header.hasHint(TupleHeader.XMAX_COMMITTED) && this.xmax == xmax) {
+            return true;
+        }
+        if (!transactionManager.isCommitted(xmax)) {
+            return false;
+        }
+        header.setHint(TupleHeader.XMAX_COMMITTED);
+        if (this.xmax != xmax) {
+            header.clearHint(TupleHeader.XMAX_COMMITTED);
+        }
+        return true;
     }
 
     // Getters and setters
     public long getXmin() { return header.getXmin(); }
-    public long getXmax() { return header.getXmax(); }
+    public long getXmax() { return xmax; }
     
     public TupleId id() {
         return id;
@@ -107,7 +196,7 @@ public class Tuple {
     }
 
     public List<String> getColumnNames() {
-        return header.getMetadata().columnNames();
+        return header.getDescriptor().getColumnNames();
     }
 
     public List<Object> getValues() {
@@ -115,12 +204,11 @@ public class Tuple {
     }
 
     public TupleHeader getHeader() {
-        return header;
+        return header.withXmax(xmax);
     }
 
     public Tuple markDeleted(long xmax) {
-        TupleHeader newHeader = header.withXmax(xmax);
-        return new Tuple(id, values, newHeader, header.getXmin(), xmax);
+        return new Tuple(id, values, header, header.getXmin(), xmax);
     }
 
     public Tuple withUpdatedValues(Map<String, Object> updates, long xmax) {
@@ -131,20 +219,10 @@ public class Tuple {
             newValues.set(position, update.getValue());
         }
 
-        // Create new header with updated MVCC info
-        TupleHeader newHeader = header.withUpdate(xmax);
-        
-        // Recalculate lengths and serialize
-        List<Integer> newLengths = newValues.stream()
-            .map(ByteUtils::getSerializedLength)
-            .collect(Collectors.toList());
-            
-        byte[] newValueBytes = ByteUtils.serializeValues(newValues, newLengths);
-
-        return new Tuple(id, newValues, newHeader, header.getXmin(), xmax);
+        return new Tuple(id, newValues, header, header.getXmin(), xmax);
     }
     public boolean isDeleted() {
-        return header.getXmax() != 0;
+        return xmax != 0;
     }
 
     public TableMetadata getMetadata() {
@@ -0,0 +1,59 @@
+package com.easydb.storage;
+
+import com.easydb.storage.metadata.TableMetadata;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable row layout shared by all tuples of a table.
+ * Similar to PostgreSQL's TupleDesc: built once per table metadata version
+ * and referenced from every tuple header, so a header itself only carries
+ * MVCC fields. Obtain instances through {@link TableMetadata#tupleDescriptor()},
+ * which interns one descriptor per metadata instance.
+ */
+public final class TupleDescriptor {
+    private final TableMetadata metadata;
+    private final List<String> columnNames;
+    private final Map<String, Integer> columnPositions;
+
+    public TupleDescriptor(TableMetadata metadata) {
+        this.metadata = metadata;
+        this.columnNames = Collections.unmodifiableList(metadata.columnNames());
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < columnNames.size(); i++) {
+            positions.put(columnNames.get(i), i);
+        }
+        this.columnPositions = positions;
+    }
+
+    public int getColumnPosition(String columnName) {
+        Integer position = columnPositions.get(columnName);
+        if (position == null) {
+            throw new IllegalArgumentException("Column not found: " + columnName);
+        }
+        return position;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    public int getColumnCount() {
+        return columnNames.size();
+    }
+
+    public TableMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public String toString() {
+        return "TupleDescriptor{" +
+            "table=" + metadata.tableName() +
+            ", columns=" + columnNames +
+            '}';
+    }
+}
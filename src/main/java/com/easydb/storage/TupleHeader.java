@@ -1,85 +1,111 @@
 package com.easydb.storage;
 
 import com.easydb.storage.metadata.TableMetadata;
-import java.util.*;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
  * Header information for a tuple, similar to PostgreSQL's HeapTupleHeaderData.
+ * The row layout lives in the shared {@link TupleDescriptor}; the header
+ * itself only holds the MVCC fields.
+ *
+ * The infomask caches commit status hint bits, like t_infomask. The first
+ * reader that looks up a final status in the commit log records it here,
+ * so later readers of the version skip the lookup.
  */
 public class TupleHeader {
-    private final TupleId id;
-    private final TableMetadata metadata;
-    private final Map<String, Integer> columnPositions;
+    public static final int XMIN_COMMITTED = 0x0100;  // Like HEAP_XMIN_COMMITTED
+    public static final int XMIN_ABORTED = 0x0200;    // Like HEAP_XMIN_INVALID
+    public static final int XMAX_COMMITTED = 0x0400;  // Like HEAP_XMAX_COMMITTED
+    private static final int XMIN_HINTS = XMIN_COMMITTED | XMIN_ABORTED;
+
+    private static final VarHandle INFOMASK;
+
+    static {
+        try {
+            INFOMASK = MethodHandles.lookup().findVarHandle(TupleHeader.class, "infomask", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final TupleDescriptor descriptor;
     
     // MVCC information
     private final long xmin;           // Creating transaction ID
     private final long xmax;           // Deleting transaction ID
+    private volatile int infomask;     // Hint bits
 
-    public TupleHeader(
-            TupleId id,
-            TableMetadata metadata,
-            long xmin,
-            long xmax) {
-        this.id = id;
-        this.metadata = metadata;
+    public TupleHeader(TupleDescriptor descriptor, long xmin, long xmax) {
+        this(descriptor, xmin, xmax, 0);
+    }
+
+    private TupleHeader(TupleDescriptor descriptor, long xmin, long xmax, int infomask) {
+        this.descriptor = descriptor;
         this.xmin = xmin;
         this.xmax = xmax;
-        // Build column position mapping
-        this.columnPositions = new HashMap<>();
-        List<String> columnNames = metadata.columnNames();
-        for (int i = 0; i < columnNames.size(); i++) {
-            columnPositions.put(columnNames.get(i), i);
-        }
+        this.infomask = infomask;
+    }
+
+    public TupleHeader(TableMetadata metadata, long xmin, long xmax) {
+        this(metadata.tupleDescriptor(), xmin, xmax);
     }
 
     public TupleHeader withXmin(long xmin) {
-        return new TupleHeader(
-            id, metadata, xmin, xmax);
+        return xmin == this.xmin ? this : new TupleHeader(descriptor, xmin, xmax);
     }
 
     public TupleHeader withXmax(long xmax) {
-        return new TupleHeader(
-            id, metadata, xmin, xmax);
+        // The xmin hints still hold for the copy
+        return xmax == this.xmax ? this : new TupleHeader(descriptor, xmin, xmax, infomask & XMIN_HINTS);
     }
 
     public TupleHeader withUpdate(long xmax) {
-        return new TupleHeader(
-            id, metadata, xmin, xmax);
-    }
-
-    public boolean isVisible(long currentXid) {
-        // Tuple is visible if:
-        // 1. Created by committed transaction (xmin < currentXid)
-        // 2. Not deleted (xmax == 0) OR deleted by uncommitted transaction (xmax > currentXid)
-        return xmin < currentXid && (xmax == 0 || xmax > currentXid);
+        return withXmax(xmax);
     }
 
     public boolean isDeleted() {
         return xmax != 0;
     }
 
-    public int getColumnPosition(String columnName) {
-        Integer position = columnPositions.get(columnName);
-        if (position == null) {
-            throw new IllegalArgumentException("Column not found: " + columnName);
+    public boolean hasHint(int hint) {
+        return (infomask & hint) != 0;
+    }
+
+    /**
+     * Records a commit status that can no longer change.
+     */
+    public void setHint(int hint) {
+        if ((infomask & hint) != hint) {
+            INFOMASK.getAndBitwiseOr(this, hint);
         }
-        return position;
+    }
+
+    public void clearHint(int hint) {
+        if ((infomask & hint) != 0) {
+            INFOMASK.getAndBitwiseAnd(this, ~hint);
+        }
+    }
+
+    public int getColumnPosition(String columnName) {
+        return descriptor.getColumnPosition(columnName);
     }
 
     // Getters
-    public TupleId getId() { return id; }
-    public TableMetadata getMetadata() { return metadata; }
+    public TupleDescriptor getDescriptor() { return descriptor; }
+    public TableMetadata getMetadata() { return descriptor.getMetadata(); }
     public long getXmin() { return xmin; }
     public long getXmax() { return xmax; }
 
     @Override
     public String toString() {
         return "TupleHeader{" +
-            "id=" + id +
-            ", metadata=" + metadata +
+            "descriptor=" + descriptor +
             ", xmin=" + xmin +
             ", xmax=" + xmax +
+            ", infomask=" + Integer.toHexString(infomask) +
             '}';
     }
 
-} 
\ No newline at end of file
+} 
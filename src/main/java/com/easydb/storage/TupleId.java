@@ -1,22 +1,26 @@
 package com.easydb.storage;
 
-import java.util.Objects;
-
 /**
  * Represents a unique identifier for a tuple.
+ * Made of primitives only: the table's OID, the row identifier and the
+ * version number, so hashing and comparisons never allocate.
  */
 public class TupleId implements Comparable<TupleId> {
-    private final String tableName;
+    private final int tableOid;
+    private final int version;     // Version number
     private final long rowId;      // Physical row identifier
-    private final long version;    // Version number
 
-    public static final TupleId MIN = new TupleId("", Long.MIN_VALUE, 0);
-    public static final TupleId MAX = new TupleId("", Long.MAX_VALUE, 0);
+    public static final TupleId MIN = new TupleId(TableOids.INVALID_OID, Long.MIN_VALUE, 0);
+    public static final TupleId MAX = new TupleId(TableOids.INVALID_OID, Long.MAX_VALUE, 0);
 
-    public TupleId(String tableName, long rowId, long version) {
-        this.tableName = tableName;
+    public TupleId(int tableOid, long rowId, long version) {
+        this.tableOid = tableOid;
         this.rowId = rowId;
-        this.version = version;
+        this.version = Math.toIntExact(version);
+    }
+
+    public TupleId(String tableName, long rowId, long version) {
+        this(TableOids.oidOf(tableName), rowId, version);
     }
 
     // Create initial version
@@ -26,16 +30,20 @@ public class TupleId implements Comparable<TupleId> {
 
     // Create next version
     public TupleId nextVersion() {
-        return new TupleId(tableName, rowId, version + 1);
+        return new TupleId(tableOid, rowId, version + 1);
     }
 
     // Get base TupleId (version 0)
     public TupleId getBaseId() {
-        return new TupleId(tableName, rowId, 0);
+        return version == 0 ? this : new TupleId(tableOid, rowId, 0);
+    }
+
+    public int tableOid() {
+        return tableOid;
     }
 
     public String tableName() {
-        return tableName;
+        return TableOids.nameOf(tableOid);
     }
 
     public long rowId() {
@@ -47,7 +55,7 @@ public class TupleId implements Comparable<TupleId> {
     }
 
     public TupleId withVersion(long version) {
-        return new TupleId(tableName, rowId, version);
+        return version == this.version ? this : new TupleId(tableOid, rowId, version);
     }
 
     @Override
@@ -57,22 +65,23 @@ public class TupleId implements Comparable<TupleId> {
         TupleId that = (TupleId) o;
         return rowId == that.rowId && 
                version == that.version && 
-               Objects.equals(tableName, that.tableName);
+               tableOid == that.tableOid;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(tableName, rowId, version);
+        long h = rowId * 0x9E3779B97F4A7C15L + (((long) tableOid << 32) | (version & 0xFFFFFFFFL));
+        return (int) (h ^ (h >>> 32));
     }
 
     @Override
     public String toString() {
-        return String.format("%s:%d:v%d", tableName, rowId, version);
+        return tableName() + ":" + rowId + ":v" + version;
     }
 
     @Override
     public int compareTo(TupleId other) {
-        int tableCompare = this.tableName.compareTo(other.tableName);
+        int tableCompare = Integer.compare(this.tableOid, other.tableOid);
         if (tableCompare != 0) {
             return tableCompare;
         }
@@ -80,10 +89,10 @@ public class TupleId implements Comparable<TupleId> {
         if (rowCompare != 0) {
             return rowCompare;
         }
-        return Long.compare(this.version, other.version);
+        return Integer.compare(this.version, other.version);
     }
 
     public static TupleId create(String tableName) {
         return TupleIdGenerator.nextId(tableName);
     }
-} 
\ No newline at end of file
+} 
@@ -0,0 +1,49 @@
+package com.easydb.storage;
+
+/**
+ * Result of vacuuming a table: how many tuple versions were removed, roughly
+ * how much memory they held, and how many rows were skipped.
+ */
+public final class VacuumStats {
+    private final String tableName;
+    private final long removedVersions;
+    private final long reclaimedBytes;
+    private final long skippedRows;
+
+    public VacuumStats(String tableName, long removedVersions, long reclaimedBytes, long skippedRows) {
+        this.tableName = tableName;
+        this.removedVersions = removedVersions;
+        this.reclaimedBytes = reclaimedBytes;
+        this.skippedRows = skippedRows;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public long getRemovedVersions() {
+        return removedVersions;
+    }
+
+    public long getReclaimedBytes() {
+        return reclaimedBytes;
+    }
+
+    /**
+     * Returns the number of rows left for the next pass because they changed
+     * while being vacuumed.
+     */
+    public long getSkippedRows() {
+        return skippedRows;
+    }
+
+    @Override
+    public String toString() {
+        return "VacuumStats{" +
+            "tableName='" + tableName + '\'' +
+            ", removedVersions=" + removedVersions +
+            ", reclaimedBytes=" + reclaimedBytes +
+            ", skippedRows=" + skippedRows +
+            '}';
+    }
+}
@@ -0,0 +1,170 @@
+package com.easydb.storage;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background worker that reclaims dead tuple versions, similar to
+ * PostgreSQL's autovacuum launcher and worker.
+ * Every nap it vacuums the tables whose dead version count passed
+ * VACUUM_THRESHOLD + VACUUM_SCALE_FACTOR * rows, and once the commit log
+ * holds more than FREEZE_MAX_AGE transactions it vacuums every table so the
+ * log can be truncated, like autovacuum_freeze_max_age.
+ *
+ * Work is throttled like vacuum_cost_limit and vacuum_cost_delay: visiting a
+ * row and removing a version add to a cost balance, and whenever the balance
+ * reaches the cost limit the worker sleeps for the cost delay, so a long pass
+ * leaves CPU time to foreground queries.
+ */
+public class VacuumWorker implements AutoCloseable {
+    public static final int COST_ROW_VISIT = 1;         // Like vacuum_cost_page_hit
+    public static final int COST_VERSION_REMOVED = 20;  // Like vacuum_cost_page_dirty
+
+    public static final long VACUUM_THRESHOLD = 50;
+    public static final double VACUUM_SCALE_FACTOR = 0.2;
+    public static final long FREEZE_MAX_AGE = 1L << 20;  // 32 commit log pages
+
+    public static final long DEFAULT_NAPTIME_MILLIS = 1000;
+    public static final int DEFAULT_COST_LIMIT = 200;
+    public static final long DEFAULT_COST_DELAY_MILLIS = 2;
+
+    private final InMemoryStorage storage;
+    private final long naptimeMillis;
+    private final int costLimit;
+    private final long costDelayMillis;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong removedVersions;
+    private final AtomicLong reclaimedBytes;
+    private final AtomicLong failedPasses;
+    private volatile RuntimeException lastFailure;
+    private int costBalance;  // Guarded by the worker's lock
+
+    public VacuumWorker(InMemoryStorage storage) {
+        this(storage, DEFAULT_NAPTIME_MILLIS, DEFAULT_COST_LIMIT, DEFAULT_COST_DELAY_MILLIS);
+    }
+
+    /**
+     * @param naptimeMillis pause between passes over the tables
+     * @param costLimit accumulated cost after which the worker sleeps
+     * @param costDelayMillis length of that sleep; 0 disables throttling
+     */
+    public VacuumWorker(InMemoryStorage storage, long naptimeMillis, int costLimit, long costDelayMillis) {
+        if (naptimeMillis <= 0 || costLimit <= 0 || costDelayMillis < 0) {
+            throw new IllegalArgumentException("Invalid vacuum settings: naptime=" + naptimeMillis +
+                ", costLimit=" + costLimit + ", costDelay=" + costDelayMillis);
+        }
+        this.storage = storage;
+        this.naptimeMillis = naptimeMillis;
+        this.costLimit = costLimit;
+        this.costDelayMillis = costDelayMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "easydb-autovacuum");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.removedVersions = new AtomicLong();
+        this.reclaimedBytes = new AtomicLong();
+        this.failedPasses = new AtomicLong();
+    }
+
+    /**
+     * Starts vacuuming in the background every naptime.
+     */
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::runOnce, naptimeMillis, naptimeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Vacuums every table that needs it, on the calling thread. A failed
+     * pass is counted and kept for {@link #getLastFailure} instead of
+     * thrown, so the background schedule goes on.
+     */
+    public void runOnce() {
+        try {
+            if (storage.getFrozenXidAge() > FREEZE_MAX_AGE) {
+                vacuumAll();
+                return;
+            }
+            for (String tableName : storage.tablesNeedingVacuum(VACUUM_THRESHOLD, VACUUM_SCALE_FACTOR)) {
+                vacuum(tableName);
+            }
+        } catch (RuntimeException e) {
+            // Keep the scheduled task alive; the next nap retries
+            failedPasses.incrementAndGet();
+            lastFailure = e;
+        }
+    }
+
+    /**
+     * Vacuums one table on the calling thread, throttled by the cost settings.
+     */
+    public synchronized VacuumStats vacuum(String tableName) {
+        VacuumStats stats = storage.vacuumTable(tableName, this::charge);
+        removedVersions.addAndGet(stats.getRemovedVersions());
+        reclaimedBytes.addAndGet(stats.getReclaimedBytes());
+        return stats;
+    }
+
+    /**
+     * Vacuums every table on the calling thread and truncates the commit log.
+     */
+    public synchronized List<VacuumStats> vacuumAll() {
+        List<VacuumStats> stats = storage.vacuumAll(this::charge);
+        for (VacuumStats tableStats : stats) {
+            removedVersions.addAndGet(tableStats.getRemovedVersions());
+            reclaimedBytes.addAndGet(tableStats.getReclaimedBytes());
+        }
+        return stats;
+    }
+
+    /**
+     * Returns the number of tuple versions removed since the worker was created.
+     */
+    public long getRemovedVersions() {
+        return removedVersions.get();
+    }
+
+    /**
+     * Returns the estimated bytes reclaimed since the worker was created.
+     */
+    public long getReclaimedBytes() {
+        return reclaimedBytes.get();
+    }
+
+    /**
+     * Returns the number of passes of {@link #runOnce} that failed.
+     */
+    public long getFailedPasses() {
+        return failedPasses.get();
+    }
+
+    /**
+     * Returns the exception of the last failed pass, or null.
+     */
+    public RuntimeException getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void charge(int cost) {
+        costBalance += cost;
+        if (costBalance < costLimit) {
+            return;
+        }
+        costBalance = 0;
+        if (costDelayMillis > 0) {
+            try {
+                Thread.sleep(costDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.easydb.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the records of a {@link FileWriteAheadLog} back in LSN order, like
+ * PostgreSQL's XLogReader. Segments are mapped one at a time and payloads
+ * are slices of the mapping, so reading copies nothing.
+ *
+ * A segment ends at its zero tail or at the first record that fails its
+ * length or CRC check, which is where a crash cut off a write. Reading goes
+ * on with the next segment: one only exists if this segment was complete
+ * when it was switched away from, or if a restart after the crash started
+ * it, and both are past the torn write. A missing segment ends the log.
+ */
+public class WalReader {
+    private final Path directory;
+    private final List<Long> segments;
+    private int nextSegment;
+    private ByteBuffer segment;
+    private long segmentStart;
+    private long invalidRecords;
+
+    public WalReader(Path directory) {
+        this.directory = directory;
+        this.segments = FileWriteAheadLog.listSegments(directory);
+    }
+
+    /**
+     * Returns the next valid record, or null at the end of the log.
+     */
+    public WalRecord next() {
+        while (true) {
+            if (segment == null && !openNextSegment()) {
+                return null;
+            }
+            WalRecord record = readRecord();
+            if (record != null) {
+                return record;
+            }
+            segment = null;
+        }
+    }
+
+    /**
+     * Returns the number of segments that ended in a record that failed
+     * its checks.
+     */
+    public long getInvalidRecords() {
+        return invalidRecords;
+    }
+
+    private boolean openNextSegment() {
+        if (nextSegment >= segments.size()) {
+            return false;
+        }
+        long number = segments.get(nextSegment);
+        if (nextSegment > 0 && number != segments.get(nextSegment - 1) + 1) {
+            return false;
+        }
+        nextSegment++;
+        Path path = directory.resolve(FileWriteAheadLog.segmentFileName(number));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            segmentStart = number * size;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read WAL segment " + path, e);
+        }
+        return true;
+    }
+
+    private WalRecord readRecord() {
+        int start = segment.position();
+        if (segment.remaining() < FileWriteAheadLog.HEADER_SIZE) {
+            return null;
+        }
+        int length = segment.getInt(start);
+        if (length == 0) {
+            return null;
+        }
+        if (length < FileWriteAheadLog.HEADER_SIZE || length > segment.remaining()) {
+            invalidRecords++;
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(segment.duplicate().position(start + 8).limit(start + length));
+        if ((int) crc.getValue() != segment.getInt(start + 4)) {
+            invalidRecords++;
+            return null;
+        }
+
+        WalRecordType type;
+        try {
+            type = WalRecordType.fromCode(segment.get(start + 8));
+        } catch (IllegalArgumentException e) {
+            invalidRecords++;
+            return null;
+        }
+        long xid = segment.getLong(start + 9);
+        ByteBuffer payload = segment.slice(start + FileWriteAheadLog.HEADER_SIZE, length - FileWriteAheadLog.HEADER_SIZE);
+        segment.position(start + length);
+        return new WalRecord(segmentStart + start, type, xid, payload);
+    }
+}
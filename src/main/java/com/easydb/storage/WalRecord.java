@@ -0,0 +1,43 @@
+package com.easydb.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A record read back from the write-ahead log. The payload is laid out as
+ * {@link FileWriteAheadLog} wrote it; every record that names a table
+ * starts with the table name.
+ */
+public record WalRecord(long lsn, WalRecordType type, long xid, ByteBuffer payload) {
+
+    /**
+     * Returns the name of the table the record applies to.
+     */
+    public String tableName() {
+        return getString(payload.duplicate());
+    }
+
+    /**
+     * Returns a fresh reader over the payload.
+     */
+    public ByteBuffer reader() {
+        return payload.duplicate();
+    }
+
+    public static String getString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.getShort() & 0xFFFF];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static List<Object> getValues(ByteBuffer payload) {
+        int count = payload.getShort() & 0xFFFF;
+        List<Object> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(ByteUtils.getTagged(payload));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,35 @@
+package com.easydb.storage;
+
+/**
+ * Kinds of write-ahead log records, like PostgreSQL's resource manager
+ * info codes. The code is what is stored in a record header.
+ */
+public enum WalRecordType {
+    BEGIN(1),
+    COMMIT(2),
+    ABORT(3),
+    INSERT(4),
+    UPDATE(5),
+    DELETE(6),
+    CREATE_TABLE(7),
+    CREATE_INDEX(8);
+
+    private final byte code;
+
+    WalRecordType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    public static WalRecordType fromCode(byte code) {
+        for (WalRecordType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown WAL record type: " + code);
+    }
+}
@@ -0,0 +1,197 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.index.IndexType;
+import com.easydb.storage.metadata.IndexMetadata;
+import com.easydb.storage.metadata.TableMetadata;
+import com.easydb.storage.transaction.TransactionManager;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds storage from the write-ahead log at startup, like PostgreSQL's
+ * StartupXLOG redo loop.
+ *
+ * Heaps only live in memory and no checkpoint writes them out, so redo
+ * always starts at the first segment. A first pass reads the log in order:
+ * it creates the tables, records the outcome of every transaction in the
+ * commit log and sorts row changes by table. A transaction without a commit
+ * record aborted or was cut off by the crash, and its changes are skipped,
+ * as the undo at rollback left no trace of them either.
+ *
+ * The second pass redoes committed changes on a pool of threads, one table
+ * per task. Changes to different tables are independent; within a table
+ * they are applied in log order, which is the order the row locks let them
+ * happen in. Each task builds its table's indexes from the finished heap.
+ */
+public class WalRecovery {
+    private final InMemoryStorage storage;
+    private final TransactionManager transactionManager;
+    private final int redoThreads;
+
+    /**
+     * @param storage empty storage of a transaction manager that has not
+     *        started any transaction yet
+     */
+    public WalRecovery(InMemoryStorage storage, TransactionManager transactionManager, int redoThreads) {
+        if (redoThreads < 1) {
+            throw new IllegalArgumentException("At least one redo thread is needed");
+        }
+        this.storage = storage;
+        this.transactionManager = transactionManager;
+        this.redoThreads = redoThreads;
+    }
+
+    public RecoveryStats recover(Path directory) {
+        long start = System.nanoTime();
+        Map<String, List<WalRecord>> changes = new LinkedHashMap<>();
+        Map<String, List<IndexMetadata>> indexes = new LinkedHashMap<>();
+        Set<Long> begun = new LinkedHashSet<>();
+        List<Long> commits = new ArrayList<>();
+        long recordsRead = 0;
+
+        WalReader reader = new WalReader(directory);
+        for (WalRecord record = reader.next(); record != null; record = reader.next()) {
+            recordsRead++;
+            switch (record.type()) {
+                case BEGIN:
+                    begun.add(record.xid());
+                    break;
+                case COMMIT:
+                    commits.add(record.xid());
+                    break;
+                case ABORT:
+                    break;
+                case CREATE_TABLE:
+                    storage.addTable(decodeTable(record.reader()));
+                    break;
+                case CREATE_INDEX: {
+                    IndexMetadata index = decodeIndex(record.reader());
+                    indexes.computeIfAbsent(index.tableName(), table -> new ArrayList<>()).add(index);
+                    break;
+                }
+                default:
+                    changes.computeIfAbsent(record.tableName(), table -> new ArrayList<>()).add(record);
+                    break;
+            }
+        }
+
+        Set<Long> committed = new HashSet<>(commits);
+        for (long xid : commits) {
+            transactionManager.redoCommit(xid);
+        }
+        long aborted = 0;
+        for (long xid : begun) {
+            if (!committed.contains(xid)) {
+                transactionManager.redoAbort(xid);
+                aborted++;
+            }
+        }
+
+        Set<String> tables = new LinkedHashSet<>(changes.keySet());
+        tables.addAll(indexes.keySet());
+        AtomicLong recordsRedone = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(redoThreads, Math.max(1, tables.size())));
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (String table : tables) {
+                List<WalRecord> records = changes.getOrDefault(table, List.of());
+                List<IndexMetadata> tableIndexes = indexes.getOrDefault(table, List.of());
+                tasks.add(executor.submit(() -> {
+                    recordsRedone.addAndGet(redoTable(records, committed));
+                    tableIndexes.forEach(storage::addIndex);
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during recovery", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Redo failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new RecoveryStats(recordsRead, recordsRedone.get(), commits.size(), aborted,
+            System.nanoTime() - start);
+    }
+
+    private long redoTable(List<WalRecord> records, Set<Long> committed) {
+        long redone = 0;
+        for (WalRecord record : records) {
+            if (!committed.contains(record.xid())) {
+                continue;
+            }
+            ByteBuffer payload = record.reader();
+            String table = WalRecord.getString(payload);
+            long rowId = payload.getLong();
+            switch (record.type()) {
+                case INSERT: {
+                    TupleId tupleId = new TupleId(table, rowId, payload.getLong());
+                    storage.redoInsert(tupleId, WalRecord.getValues(payload), record.xid());
+                    break;
+                }
+                case UPDATE: {
+                    TupleId oldId = new TupleId(table, rowId, payload.getLong());
+                    TupleId newId = new TupleId(table, rowId, payload.getLong());
+                    storage.redoUpdate(oldId, newId, WalRecord.getValues(payload), record.xid());
+                    break;
+                }
+                case DELETE:
+                    storage.redoDelete(new TupleId(table, rowId, payload.getLong()), record.xid());
+                    break;
+                default:
+                    throw new IllegalStateException("Not a row change: " + record.type());
+            }
+            redone++;
+        }
+        return redone;
+    }
+
+    private static TableMetadata decodeTable(ByteBuffer payload) {
+        String table = WalRecord.getString(payload);
+        int count = payload.getShort() & 0xFFFF;
+        List<Column> columns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = WalRecord.getString(payload);
+            DataType type = DataType.valueOf(WalRecord.getString(payload));
+            boolean nullable = payload.get() == 1;
+            boolean primaryKey = payload.get() == 1;
+            boolean autoIncrement = payload.get() == 1;
+            columns.add(new Column(name, type, nullable, primaryKey, autoIncrement, ByteUtils.getTagged(payload)));
+        }
+        return new TableMetadata(table, columns);
+    }
+
+    private static IndexMetadata decodeIndex(ByteBuffer payload) {
+        String table = WalRecord.getString(payload);
+        String index = WalRecord.getString(payload);
+        int count = payload.getShort() & 0xFFFF;
+        List<String> columns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            columns.add(WalRecord.getString(payload));
+        }
+        boolean unique = payload.get() == 1;
+        IndexType type = IndexType.valueOf(WalRecord.getString(payload));
+        return new IndexMetadata(index, table, columns, unique, type);
+    }
+}
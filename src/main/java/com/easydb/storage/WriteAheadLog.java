@@ -1,5 +1,8 @@
 package com.easydb.storage;
 
+import com.easydb.storage.metadata.IndexMetadata;
+import com.easydb.storage.metadata.TableMetadata;
+
 import java.util.UUID;
 
 /**
@@ -7,9 +10,19 @@ import java.util.UUID;
  */
 public interface WriteAheadLog {
     /**
-     * Logs a transaction commit.
+     * Logs a transaction commit. The record is not durable until a
+     * {@link #flush} covers it.
+     *
+     * @return the LSN just past the commit record
      */
-    void logCommit(Long transactionId);
+    long logCommit(Long transactionId);
+
+    /**
+     * Forces everything logged so far to stable storage, like XLogFlush.
+     *
+     * @return the LSN up to which the log is now durable
+     */
+    long flush();
 
     /**
      * Logs a transaction abort.
@@ -35,4 +48,15 @@ public interface WriteAheadLog {
      * Logs a tuple delete.
      */
     void logDelete(Long transactionId, String tableName, Tuple tuple);
-} 
\ No newline at end of file
+
+    /**
+     * Logs the creation of a table. DDL is not transactional, so the record
+     * carries no xid.
+     */
+    void logCreateTable(TableMetadata metadata);
+
+    /**
+     * Logs the creation of an index.
+     */
+    void logCreateIndex(IndexMetadata metadata);
+}
@@ -9,6 +9,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.time.Instant;
 import java.util.stream.Collectors;
 import com.easydb.storage.constraint.Constraint;
+import com.easydb.storage.TupleDescriptor;
 
 /**
  * Stores metadata about a table including its schema, indexes, and access patterns.
@@ -22,6 +23,7 @@ public class TableMetadata {
     private final Instant lastAccessedAt;
     private long rowCount;
     private long sizeInBytes;
+    private volatile TupleDescriptor tupleDescriptor;
 
     public TableMetadata(String tableName, List<Column> columns, Map<String, IndexMetadata> indexes,List<Constraint> constraints) {
         this(tableName, columns, indexes, constraints, Instant.now(), Instant.now(), 0, 0);
@@ -110,6 +112,20 @@ public class TableMetadata {
         );
     }
 
+    /**
+     * Returns the row layout of this table version, built on first use and
+     * shared by all tuples created against this metadata.
+     */
+    public TupleDescriptor tupleDescriptor() {
+        TupleDescriptor descriptor = tupleDescriptor;
+        if (descriptor == null) {
+            // A racing thread may build a second copy; both are equivalent
+            descriptor = new TupleDescriptor(this);
+            tupleDescriptor = descriptor;
+        }
+        return descriptor;
+    }
+
     public List<Class<?>> columnTypes() {
         return columns.stream()
             .map(column -> column.type().getJavaType())
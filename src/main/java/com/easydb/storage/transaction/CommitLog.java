@@ -0,0 +1,168 @@
+package com.easydb.storage.transaction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Commit status of every transaction ID, similar to PostgreSQL's CLOG
+ * (pg_xact). Each xid takes 2 bits, 32 xids to a long, packed in 8 KB pages
+ * of 32768 xids, so a status lookup is a shift and a mask with no boxing
+ * and no allocation.
+ *
+ * Statuses are written with a compare-and-set on their word, since 32
+ * transactions share it. Pages below the frozen xid are dropped by
+ * truncate; every xid below it reads as committed, so the caller must first
+ * make sure no tuple still refers to an aborted xid in that range.
+ */
+public class CommitLog {
+    public static final int IN_PROGRESS = 0b00;
+    public static final int COMMITTED = 0b01;
+    public static final int ABORTED = 0b10;
+
+    private static final int BITS_PER_XID = 2;
+    private static final int XIDS_PER_WORD = Long.SIZE / BITS_PER_XID;
+    private static final int WORDS_PER_PAGE = 1024;
+    private static final int XIDS_PER_PAGE_SHIFT = 15;  // 32768 xids per page
+    private static final int STATUS_MASK = 0b11;
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * Pages from firstPage on, replaced as a whole when the log grows or is
+     * truncated so readers never see a half-moved directory.
+     */
+    private static final class Segments {
+        final long firstPage;
+        final long[][] pages;
+
+        Segments(long firstPage, long[][] pages) {
+            this.firstPage = firstPage;
+            this.pages = pages;
+        }
+    }
+
+    private volatile Segments segments;
+    private volatile long frozenXid;  // Every xid below reads as committed
+
+    public CommitLog() {
+        this.segments = new Segments(0, new long[0][]);
+        this.frozenXid = 0;
+    }
+
+    /**
+     * Returns IN_PROGRESS, COMMITTED or ABORTED. Transaction IDs that were
+     * never recorded read as in progress.
+     */
+    public int getStatus(long xid) {
+        if (xid < frozenXid) {
+            return COMMITTED;
+        }
+        Segments current = segments;
+        long pageNo = xid >>> XIDS_PER_PAGE_SHIFT;
+        if (pageNo < current.firstPage) {
+            return COMMITTED;  // Truncated after the frozen xid was read
+        }
+        long index = pageNo - current.firstPage;
+        if (index >= current.pages.length) {
+            return IN_PROGRESS;
+        }
+        long word = (long) WORDS.getAcquire(current.pages[(int) index], wordIndex(xid));
+        return (int) (word >>> bitShift(xid)) & STATUS_MASK;
+    }
+
+    public boolean isCommitted(long xid) {
+        return getStatus(xid) == COMMITTED;
+    }
+
+    public boolean isAborted(long xid) {
+        return getStatus(xid) == ABORTED;
+    }
+
+    public void setCommitted(long xid) {
+        setStatus(xid, COMMITTED);
+    }
+
+    public void setAborted(long xid) {
+        setStatus(xid, ABORTED);
+    }
+
+    private void setStatus(long xid, int status) {
+        if (xid < frozenXid) {
+            throw new IllegalStateException("Transaction ID is frozen: " + xid);
+        }
+        long[] page = pageFor(xid);
+        int index = wordIndex(xid);
+        int shift = bitShift(xid);
+        long word;
+        do {
+            word = (long) WORDS.getVolatile(page, index);
+        } while (!WORDS.compareAndSet(page, index, word,
+                                      (word & ~((long) STATUS_MASK << shift)) | ((long) status << shift)));
+    }
+
+    /**
+     * Drops the pages that lie entirely below the cutoff, and makes every xid
+     * below it read as committed.
+     */
+    public synchronized void truncate(long cutoffXid) {
+        if (cutoffXid <= frozenXid) {
+            return;
+        }
+        frozenXid = cutoffXid;
+
+        Segments current = segments;
+        long cutoffPage = cutoffXid >>> XIDS_PER_PAGE_SHIFT;
+        if (cutoffPage <= current.firstPage) {
+            return;
+        }
+        int dropped = (int) Math.min(cutoffPage - current.firstPage, current.pages.length);
+        long[][] pages = Arrays.copyOfRange(current.pages, dropped, current.pages.length);
+        segments = new Segments(cutoffPage, pages);
+    }
+
+    /**
+     * Returns the xid below which every transaction reads as committed.
+     */
+    public long getFrozenXid() {
+        return frozenXid;
+    }
+
+    /**
+     * Returns the number of pages currently held in memory.
+     */
+    public int getPageCount() {
+        return segments.pages.length;
+    }
+
+    private long[] pageFor(long xid) {
+        long pageNo = xid >>> XIDS_PER_PAGE_SHIFT;
+        Segments current = segments;
+        long index = pageNo - current.firstPage;
+        if (index >= 0 && index < current.pages.length) {
+            return current.pages[(int) index];
+        }
+        return extendTo(pageNo);
+    }
+
+    private synchronized long[] extendTo(long pageNo) {
+        Segments current = segments;
+        long index = pageNo - current.firstPage;
+        if (index < current.pages.length) {
+            return current.pages[(int) index];
+        }
+        long[][] pages = Arrays.copyOf(current.pages, (int) index + 1);
+        for (int i = current.pages.length; i < pages.length; i++) {
+            pages[i] = new long[WORDS_PER_PAGE];
+        }
+        segments = new Segments(current.firstPage, pages);
+        return pages[(int) index];
+    }
+
+    private static int wordIndex(long xid) {
+        return (int) (xid / XIDS_PER_WORD) & (WORDS_PER_PAGE - 1);
+    }
+
+    private static int bitShift(long xid) {
+        return (int) (xid % XIDS_PER_WORD) * BITS_PER_XID;
+    }
+}
@@ -0,0 +1,136 @@
+package com.easydb.storage.transaction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Commit sequence number of every transaction ID, for CSN snapshots.
+ * Commits draw increasing CSNs from one counter, so a snapshot is just the
+ * latest CSN, and a transaction is visible to it if it committed with a CSN
+ * no greater than that.
+ *
+ * CSNs live in pages of 4096 longs indexed by xid, laid out like the
+ * {@link CommitLog}. While a commit is between drawing its CSN and storing
+ * it, its entry holds COMMITTING and readers wait for the final value, so
+ * a snapshot never sees a commit appear below its CSN later.
+ */
+public class CsnLog {
+    public static final long INVALID_CSN = 0;     // In progress or aborted
+    public static final long FROZEN_CSN = 1;      // Committed before any snapshot
+    private static final long COMMITTING = -1;
+    private static final long FIRST_CSN = 2;
+
+    private static final int XIDS_PER_PAGE_SHIFT = 12;  // 4096 xids per page
+    private static final int XIDS_PER_PAGE = 1 << XIDS_PER_PAGE_SHIFT;
+    private static final VarHandle CSNS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final class Segments {
+        final long firstPage;
+        final long[][] pages;
+
+        Segments(long firstPage, long[][] pages) {
+            this.firstPage = firstPage;
+            this.pages = pages;
+        }
+    }
+
+    private final AtomicLong latestCsn;
+    private volatile Segments segments;
+    private volatile long frozenXid;  // Every xid below reads as FROZEN_CSN
+
+    public CsnLog() {
+        this.latestCsn = new AtomicLong(FIRST_CSN - 1);
+        this.segments = new Segments(0, new long[0][]);
+        this.frozenXid = 0;
+    }
+
+    /**
+     * Returns the CSN of the latest commit, which is all a snapshot holds.
+     */
+    public long getLatestCsn() {
+        return latestCsn.get();
+    }
+
+    /**
+     * Assigns the next CSN to a committing transaction.
+     */
+    public long commit(long xid) {
+        long[] page = pageFor(xid);
+        int index = (int) (xid & (XIDS_PER_PAGE - 1));
+        CSNS.setVolatile(page, index, COMMITTING);
+        long csn = latestCsn.incrementAndGet();
+        CSNS.setVolatile(page, index, csn);
+        return csn;
+    }
+
+    /**
+     * Returns the CSN the transaction committed with, or INVALID_CSN if it
+     * is still running or aborted.
+     */
+    public long getCsn(long xid) {
+        if (xid < frozenXid) {
+            return FROZEN_CSN;
+        }
+        Segments current = segments;
+        long index = (xid >>> XIDS_PER_PAGE_SHIFT) - current.firstPage;
+        if (index < 0) {
+            return FROZEN_CSN;  // Truncated after the frozen xid was read
+        }
+        if (index >= current.pages.length) {
+            return INVALID_CSN;
+        }
+        long[] page = current.pages[(int) index];
+        int slot = (int) (xid & (XIDS_PER_PAGE - 1));
+        long csn = (long) CSNS.getAcquire(page, slot);
+        while (csn == COMMITTING) {
+            Thread.onSpinWait();
+            csn = (long) CSNS.getAcquire(page, slot);
+        }
+        return csn;
+    }
+
+    /**
+     * Drops the pages that lie entirely below the cutoff, like
+     * {@link CommitLog#truncate}.
+     */
+    public synchronized void truncate(long cutoffXid) {
+        if (cutoffXid <= frozenXid) {
+            return;
+        }
+        frozenXid = cutoffXid;
+
+        Segments current = segments;
+        long cutoffPage = cutoffXid >>> XIDS_PER_PAGE_SHIFT;
+        if (cutoffPage <= current.firstPage) {
+            return;
+        }
+        int dropped = (int) Math.min(cutoffPage - current.firstPage, current.pages.length);
+        segments = new Segments(cutoffPage, Arrays.copyOfRange(current.pages, dropped, current.pages.length));
+    }
+
+    private long[] pageFor(long xid) {
+        long pageNo = xid >>> XIDS_PER_PAGE_SHIFT;
+        Segments current = segments;
+        long index = pageNo - current.firstPage;
+        if (index >= 0 && index < current.pages.length) {
+            return current.pages[(int) index];
+        }
+        return extendTo(pageNo);
+    }
+
+    private synchronized long[] extendTo(long pageNo) {
+        Segments current = segments;
+        long index = pageNo - current.firstPage;
+        if (index < current.pages.length) {
+            return current.pages[(int) index];
+        }
+        long[][] pages = Arrays.copyOf(current.pages, (int) index + 1);
+        for (int i = current.pages.length; i < pages.length; i++) {
+            pages[i] = new long[XIDS_PER_PAGE];
+        }
+        segments = new Segments(current.firstPage, pages);
+        return pages[(int) index];
+    }
+}
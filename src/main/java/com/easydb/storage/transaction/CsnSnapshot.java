@@ -0,0 +1,46 @@
+package com.easydb.storage.transaction;
+
+/**
+ * Snapshot made of a single commit sequence number. A transaction counts as
+ * committed for it if it committed with a CSN no greater than the snapshot's,
+ * so taking one costs the same however many transactions are running.
+ */
+public final class CsnSnapshot implements Snapshot {
+    private final long csn;
+    private final long xmin;
+    private final CsnLog csnLog;
+
+    public CsnSnapshot(long csn, long xmin, CsnLog csnLog) {
+        this.csn = csn;
+        this.xmin = xmin;
+        this.csnLog = csnLog;
+    }
+
+    @Override
+    public boolean isRunning(long xid) {
+        if (xid < xmin) {
+            return false;
+        }
+        long commitCsn = csnLog.getCsn(xid);
+        return commitCsn == CsnLog.INVALID_CSN || commitCsn > csn;
+    }
+
+    /**
+     * Returns a lower bound of the xids running when the snapshot was taken,
+     * taken from the last computed horizon instead of a scan of the running
+     * transactions.
+     */
+    @Override
+    public long getXmin() {
+        return xmin;
+    }
+
+    public long getCsn() {
+        return csn;
+    }
+
+    @Override
+    public String toString() {
+        return "CsnSnapshot{csn=" + csn + ", xmin=" + xmin + '}';
+    }
+}
@@ -0,0 +1,12 @@
+package com.easydb.storage.transaction;
+
+/**
+ * Thrown to the transaction chosen as victim when lock waits form a cycle,
+ * like PostgreSQL's deadlock_detected. The transaction has to be rolled back
+ * so the others can go on.
+ */
+public class DeadlockException extends RuntimeException {
+    public DeadlockException(String message) {
+        super(message);
+    }
+}
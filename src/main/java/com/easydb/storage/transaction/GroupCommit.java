@@ -0,0 +1,118 @@
+package com.easydb.storage.transaction;
+
+import com.easydb.storage.WriteAheadLog;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+
+/**
+ * Makes commit records durable in batches, like PostgreSQL's XLogFlush
+ * under WALWriteLock. A committer whose record is not flushed yet either
+ * becomes the leader, or waits while another leader flushes. The leader
+ * forces everything logged so far with a single flush, so the records of
+ * all committers that queued up meanwhile go to disk together, and then
+ * wakes them all; those it covered return, and one of the rest leads the
+ * next flush.
+ *
+ * With commit_delay set, a leader first sleeps that long, if at least
+ * commit_siblings other transactions are running, so more commits can
+ * join its flush. Without siblings the delay would only add latency.
+ */
+public class GroupCommit {
+    private final WriteAheadLog wal;
+    private final IntSupplier runningTransactions;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushDone = lock.newCondition();
+    private boolean flushing;             // A leader is flushing
+    private volatile long flushedLsn;     // Log is durable up to here
+    private volatile long commitDelayMicros;
+    private volatile int commitSiblings = 5;
+    private volatile long flushCount;
+
+    /**
+     * @param runningTransactions counts the transactions holding an xid,
+     *        the committer included
+     */
+    public GroupCommit(WriteAheadLog wal, IntSupplier runningTransactions) {
+        this.wal = wal;
+        this.runningTransactions = runningTransactions;
+    }
+
+    /**
+     * Sets how long a leader waits for more commits before flushing, like
+     * commit_delay. Zero, the default, flushes at once.
+     */
+    public void setCommitDelay(long micros) {
+        this.commitDelayMicros = micros;
+    }
+
+    /**
+     * Sets how many other transactions must be running for the leader to
+     * apply the commit delay, like commit_siblings. Defaults to 5.
+     */
+    public void setCommitSiblings(int siblings) {
+        this.commitSiblings = siblings;
+    }
+
+    /**
+     * Returns once the log is durable up to the LSN, flushing it as leader
+     * or waiting for the leader's flush.
+     */
+    public void waitForFlush(long lsn) {
+        if (flushedLsn >= lsn) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (flushing) {
+                flushDone.awaitUninterruptibly();
+                if (flushedLsn >= lsn) {
+                    return;  // Covered by the last batch
+                }
+            }
+            if (flushedLsn >= lsn) {
+                return;
+            }
+            flushing = true;
+        } finally {
+            lock.unlock();
+        }
+
+        long flushed = 0;
+        try {
+            long delay = commitDelayMicros;
+            if (delay > 0 && runningTransactions.getAsInt() - 1 >= commitSiblings) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(delay));
+            }
+            flushed = wal.flush();
+            flushCount++;
+        } finally {
+            lock.lock();
+            try {
+                // A failed flush leaves the waiters to try again as leaders
+                flushedLsn = Math.max(flushedLsn, flushed);
+                flushing = false;
+                flushDone.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the LSN up to which the log is known to be durable.
+     */
+    public long getFlushedLsn() {
+        return flushedLsn;
+    }
+
+    /**
+     * Returns the number of flushes so far, each covering one batch.
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+}
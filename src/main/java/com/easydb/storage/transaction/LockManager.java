@@ -0,0 +1,455 @@
+package com.easydb.storage.transaction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Heavyweight lock table for table, row and transaction locks, similar to
+ * PostgreSQL's lock manager. Locks are held until the owning transaction
+ * ends, and are granted in queue order unless a transaction upgrades a lock
+ * it already holds.
+ *
+ * The table is split into partitions by tag hash, each guarded by its own
+ * ReentrantLock, so unrelated locks do not contend. Waiters park instead of
+ * spinning; a parked virtual thread releases its carrier thread.
+ *
+ * A waiter that is still blocked after the deadlock timeout checks the
+ * wait-for graph for a cycle through itself, like PostgreSQL's
+ * CheckDeadLock, and repeats the check every timeout after that. The
+ * youngest transaction of a cycle is chosen as victim and gets a
+ * DeadlockException.
+ */
+public class LockManager {
+    public static final long DEFAULT_DEADLOCK_TIMEOUT_MILLIS = 1000;
+    private static final int NUM_PARTITIONS = 16;  // Like NUM_LOCK_PARTITIONS
+
+    private static final class Waiter {
+        final long xid;
+        final LockMode mode;
+        final LockEntry entry;
+        final Thread thread;
+        volatile boolean granted;
+        volatile boolean deadlocked;
+
+        Waiter(long xid, LockMode mode, LockEntry entry) {
+            this.xid = xid;
+            this.mode = mode;
+            this.entry = entry;
+            this.thread = Thread.currentThread();
+        }
+    }
+
+    private static final class LockEntry {
+        final LockTag tag;
+        final Map<Long, LockMode> holders = new HashMap<>();
+        final List<Waiter> waiters = new ArrayList<>();  // In arrival order
+
+        LockEntry(LockTag tag) {
+            this.tag = tag;
+        }
+
+        boolean isUnused() {
+            return holders.isEmpty() && waiters.isEmpty();
+        }
+    }
+
+    private static final class Partition {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<LockTag, LockEntry> entries = new HashMap<>();
+    }
+
+    private final Partition[] partitions;
+    private final Map<Long, Set<LockTag>> heldLocks;  // By xid, for releaseAll
+    private volatile long deadlockTimeoutNanos;
+
+    public LockManager() {
+        this.partitions = new Partition[NUM_PARTITIONS];
+        for (int i = 0; i < NUM_PARTITIONS; i++) {
+            partitions[i] = new Partition();
+        }
+        this.heldLocks = new ConcurrentHashMap<>();
+        this.deadlockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_DEADLOCK_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Sets how long a waiter sleeps before checking for a deadlock, like
+     * deadlock_timeout.
+     */
+    public void setDeadlockTimeout(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Deadlock timeout must be positive: " + millis);
+        }
+        this.deadlockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Acquires a lock for the transaction, blocking while a conflicting lock
+     * is held or queued. Holding the lock in a weaker mode upgrades it.
+     *
+     * @throws DeadlockException if the transaction was chosen as the victim
+     *         of a deadlock
+     */
+    public void lock(Transaction txn, LockTag tag, LockMode mode) {
+        long xid = ownerXid(txn);
+        Partition partition = partition(tag);
+        Waiter waiter;
+        partition.lock.lock();
+        try {
+            LockEntry entry = partition.entries.computeIfAbsent(tag, LockEntry::new);
+            LockMode held = entry.holders.get(xid);
+            if (held != null && held.max(mode) == held) {
+                return;
+            }
+            // Upgrades go ahead of the queue, waiting or not: a queued waiter
+            // that conflicts with the new mode conflicts with the held one too
+            if (!conflictsWithHolders(entry, xid, mode) && (held != null || !conflictsWithQueue(entry, xid, mode))) {
+                entry.holders.put(xid, mode.max(held == null ? mode : held));
+                remember(xid, tag);
+                return;
+            }
+            waiter = new Waiter(xid, mode, entry);
+            entry.waiters.add(upgradePosition(entry, xid, held), waiter);
+        } finally {
+            partition.lock.unlock();
+        }
+
+        awaitGrant(partition, waiter);
+        remember(xid, tag);
+    }
+
+    /**
+     * Tries to acquire a lock without waiting, like NOWAIT.
+     *
+     * @return true if the lock was granted
+     */
+    public boolean tryLock(Transaction txn, LockTag tag, LockMode mode) {
+        long xid = ownerXid(txn);
+        Partition partition = partition(tag);
+        partition.lock.lock();
+        try {
+            LockEntry entry = partition.entries.computeIfAbsent(tag, LockEntry::new);
+            LockMode held = entry.holders.get(xid);
+            if (held != null && held.max(mode) == held) {
+                return true;
+            }
+            if (conflictsWithHolders(entry, xid, mode) || (held == null && conflictsWithQueue(entry, xid, mode))) {
+                if (entry.isUnused()) {
+                    partition.entries.remove(tag);
+                }
+                return false;
+            }
+            entry.holders.put(xid, mode.max(held == null ? mode : held));
+        } finally {
+            partition.lock.unlock();
+        }
+        remember(xid, tag);
+        return true;
+    }
+
+    /**
+     * Releases a lock before the end of the transaction, as done for the
+     * short-lived row locks that order waiters of a tuple.
+     */
+    public void unlock(Transaction txn, LockTag tag) {
+        Set<LockTag> tags = heldLocks.get(txn.getXid());
+        if (tags != null) {
+            tags.remove(tag);
+        }
+        release(txn.getXid(), tag);
+    }
+
+    /**
+     * Blocks until the holder has ended, like XactLockTableWait. The wait is
+     * part of the wait-for graph, so a cycle of transactions waiting for
+     * each other's row updates is detected like any other deadlock.
+     *
+     * @throws DeadlockException if the waiter was chosen as the victim of a
+     *         deadlock
+     */
+    public void waitForTransaction(Transaction waiter, Transaction holder) {
+        long waiterXid = ownerXid(waiter);
+        LockTag tag = LockTag.transaction(holder.getXid());
+        // Published before the check below; the holder reads it after
+        // marking itself ended, so one of the two sees the other
+        holder.markWaitedOn();
+        Partition partition = partition(tag);
+        Waiter wait;
+        partition.lock.lock();
+        try {
+            if (holder.hasEnded()) {
+                return;
+            }
+            LockEntry entry = partition.entries.computeIfAbsent(tag, LockEntry::new);
+            // Every transaction holds its own transaction lock exclusively;
+            // it is only entered once somebody waits for it
+            entry.holders.putIfAbsent(holder.getXid(), LockMode.EXCLUSIVE);
+            wait = new Waiter(waiterXid, LockMode.SHARED, entry);
+            entry.waiters.add(wait);
+        } finally {
+            partition.lock.unlock();
+        }
+
+        awaitGrant(partition, wait);
+        release(waiterXid, tag);
+    }
+
+    /**
+     * Releases every lock of an ended transaction and wakes the transactions
+     * that wait for it.
+     */
+    public void releaseAll(Transaction txn) {
+        if (!txn.hasXid()) {
+            return;
+        }
+        long xid = txn.getXid();
+        Set<LockTag> tags = heldLocks.remove(xid);
+        if (tags != null) {
+            for (LockTag tag : tags) {
+                release(xid, tag);
+            }
+        }
+        if (txn.wasWaitedOn()) {
+            release(xid, LockTag.transaction(xid));
+        }
+    }
+
+    /**
+     * Returns the mode the transaction holds the lock in, or null.
+     */
+    public LockMode getHeldMode(Transaction txn, LockTag tag) {
+        Partition partition = partition(tag);
+        partition.lock.lock();
+        try {
+            LockEntry entry = partition.entries.get(tag);
+            return entry == null ? null : entry.holders.get(txn.getXid());
+        } finally {
+            partition.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the xid locks are held under. A virtual transaction has to be
+     * assigned one first.
+     */
+    private static long ownerXid(Transaction txn) {
+        if (!txn.hasXid()) {
+            throw new IllegalStateException("Transaction " + txn.getVirtualXid() + " has no xid to lock with");
+        }
+        return txn.getXid();
+    }
+
+    /**
+     * Returns where a request joins the queue. An upgrade that has to wait
+     * goes ahead of the first waiter that conflicts with the mode already
+     * held, like ProcSleep; behind it, each would wait for the other.
+     */
+    private static int upgradePosition(LockEntry entry, long xid, LockMode held) {
+        if (held != null) {
+            for (int i = 0; i < entry.waiters.size(); i++) {
+                Waiter queued = entry.waiters.get(i);
+                if (queued.xid != xid && held.conflictsWith(queued.mode)) {
+                    return i;
+                }
+            }
+        }
+        return entry.waiters.size();
+    }
+
+    private void awaitGrant(Partition partition, Waiter waiter) {
+        long nextCheck = System.nanoTime() + deadlockTimeoutNanos;
+        while (!waiter.granted) {
+            if (waiter.deadlocked) {
+                throw new DeadlockException("Deadlock detected: transaction " + waiter.xid +
+                    " waiting for " + waiter.entry.tag);
+            }
+            if (Thread.interrupted()) {
+                cancelWait(partition, waiter);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for lock " + waiter.entry.tag);
+            }
+            long remaining = nextCheck - System.nanoTime();
+            if (remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                checkDeadlock(waiter);
+                nextCheck = System.nanoTime() + deadlockTimeoutNanos;
+            }
+        }
+    }
+
+    private void cancelWait(Partition partition, Waiter waiter) {
+        partition.lock.lock();
+        try {
+            if (waiter.granted) {
+                waiter.entry.holders.remove(waiter.xid);
+            }
+            waiter.entry.waiters.remove(waiter);
+            grantWaiters(partition, waiter.entry);
+        } finally {
+            partition.lock.unlock();
+        }
+    }
+
+    private void release(long xid, LockTag tag) {
+        Partition partition = partition(tag);
+        partition.lock.lock();
+        try {
+            LockEntry entry = partition.entries.get(tag);
+            if (entry != null && entry.holders.remove(xid) != null) {
+                grantWaiters(partition, entry);
+            }
+        } finally {
+            partition.lock.unlock();
+        }
+    }
+
+    /**
+     * Grants queued requests in order until one still conflicts. Later
+     * requests that do not conflict with it are granted too.
+     */
+    private void grantWaiters(Partition partition, LockEntry entry) {
+        List<Waiter> blocked = new ArrayList<>();
+        Iterator<Waiter> it = entry.waiters.iterator();
+        while (it.hasNext()) {
+            Waiter waiter = it.next();
+            boolean conflicts = conflictsWithHolders(entry, waiter.xid, waiter.mode);
+            for (Waiter earlier : blocked) {
+                conflicts |= earlier.xid != waiter.xid && earlier.mode.conflictsWith(waiter.mode);
+            }
+            if (conflicts) {
+                blocked.add(waiter);
+                continue;
+            }
+            it.remove();
+            entry.holders.merge(waiter.xid, waiter.mode, LockMode::max);
+            waiter.granted = true;
+            LockSupport.unpark(waiter.thread);
+        }
+        if (entry.isUnused()) {
+            partition.entries.remove(entry.tag);
+        }
+    }
+
+    /**
+     * Looks for a cycle in the wait-for graph through the waiter and breaks
+     * it by cancelling the youngest waiting transaction in it. Every
+     * partition is locked, in order, so the graph is consistent.
+     */
+    private void checkDeadlock(Waiter self) {
+        for (Partition partition : partitions) {
+            partition.lock.lock();
+        }
+        try {
+            if (self.granted || self.deadlocked) {
+                return;
+            }
+            Map<Long, Waiter> waiting = new HashMap<>();
+            Map<Long, Set<Long>> waitsFor = new HashMap<>();
+            for (Partition partition : partitions) {
+                for (LockEntry entry : partition.entries.values()) {
+                    for (int i = 0; i < entry.waiters.size(); i++) {
+                        Waiter waiter = entry.waiters.get(i);
+                        Set<Long> blockers = waitsFor.computeIfAbsent(waiter.xid, xid -> new HashSet<>());
+                        waiting.put(waiter.xid, waiter);
+                        for (Map.Entry<Long, LockMode> holder : entry.holders.entrySet()) {
+                            if (holder.getKey() != waiter.xid && holder.getValue().conflictsWith(waiter.mode)) {
+                                blockers.add(holder.getKey());
+                            }
+                        }
+                        for (int j = 0; j < i; j++) {
+                            Waiter earlier = entry.waiters.get(j);
+                            if (earlier.xid != waiter.xid && earlier.mode.conflictsWith(waiter.mode)) {
+                                blockers.add(earlier.xid);
+                            }
+                        }
+                    }
+                }
+            }
+
+            List<Long> cycle = findCycle(self.xid, waitsFor);
+            if (cycle == null) {
+                return;
+            }
+            long victimXid = self.xid;
+            for (long xid : cycle) {
+                victimXid = Math.max(victimXid, xid);
+            }
+            Waiter victim = waiting.get(victimXid);
+            victim.entry.waiters.remove(victim);
+            victim.deadlocked = true;
+            LockSupport.unpark(victim.thread);
+            grantWaiters(partition(victim.entry.tag), victim.entry);
+        } finally {
+            for (int i = partitions.length - 1; i >= 0; i--) {
+                partitions[i].lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the transactions on a path from start back to itself, or null.
+     */
+    private static List<Long> findCycle(long start, Map<Long, Set<Long>> waitsFor) {
+        Set<Long> visited = new HashSet<>();
+        Deque<Iterator<Long>> stack = new ArrayDeque<>();
+        List<Long> path = new ArrayList<>();
+        path.add(start);
+        stack.push(waitsFor.getOrDefault(start, Set.of()).iterator());
+        while (!stack.isEmpty()) {
+            Iterator<Long> next = stack.peek();
+            if (!next.hasNext()) {
+                stack.pop();
+                path.remove(path.size() - 1);
+                continue;
+            }
+            long xid = next.next();
+            if (xid == start) {
+                return path;
+            }
+            if (visited.add(xid)) {
+                path.add(xid);
+                stack.push(waitsFor.getOrDefault(xid, Set.of()).iterator());
+            }
+        }
+        return null;
+    }
+
+    private static boolean conflictsWithHolders(LockEntry entry, long xid, LockMode mode) {
+        for (Map.Entry<Long, LockMode> holder : entry.holders.entrySet()) {
+            if (holder.getKey() != xid && holder.getValue().conflictsWith(mode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean conflictsWithQueue(LockEntry entry, long xid, LockMode mode) {
+        for (Waiter waiter : entry.waiters) {
+            if (waiter.xid != xid && waiter.mode.conflictsWith(mode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remember(long xid, LockTag tag) {
+        if (tag.kind() != LockTag.Kind.TRANSACTION) {
+            heldLocks.computeIfAbsent(xid, k -> ConcurrentHashMap.newKeySet()).add(tag);
+        }
+    }
+
+    private Partition partition(LockTag tag) {
+        return partitions[Math.floorMod(tag.hashCode(), NUM_PARTITIONS)];
+    }
+}
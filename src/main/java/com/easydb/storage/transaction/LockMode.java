@@ -0,0 +1,21 @@
+package com.easydb.storage.transaction;
+
+/**
+ * Modes a {@link LockManager} lock can be held in. Shared locks are
+ * compatible with each other, an exclusive lock with nothing.
+ */
+public enum LockMode {
+    SHARED,
+    EXCLUSIVE;
+
+    public boolean conflictsWith(LockMode other) {
+        return this == EXCLUSIVE || other == EXCLUSIVE;
+    }
+
+    /**
+     * Returns the stronger of the two modes.
+     */
+    public LockMode max(LockMode other) {
+        return this == EXCLUSIVE ? this : other;
+    }
+}
@@ -0,0 +1,32 @@
+package com.easydb.storage.transaction;
+
+import com.easydb.storage.TableOids;
+import com.easydb.storage.TupleId;
+
+/**
+ * Identifies a lockable object, like PostgreSQL's LOCKTAG: a table, a row of
+ * a table, or a transaction other transactions wait for to end.
+ */
+public record LockTag(Kind kind, int tableOid, long id) {
+
+    public enum Kind {
+        TABLE,
+        ROW,
+        TRANSACTION
+    }
+
+    public static LockTag table(int tableOid) {
+        return new LockTag(Kind.TABLE, tableOid, 0);
+    }
+
+    /**
+     * Returns the tag of a row; every version of the row shares it.
+     */
+    public static LockTag row(TupleId tupleId) {
+        return new LockTag(Kind.ROW, tupleId.tableOid(), tupleId.rowId());
+    }
+
+    public static LockTag transaction(long xid) {
+        return new LockTag(Kind.TRANSACTION, TableOids.INVALID_OID, xid);
+    }
+}
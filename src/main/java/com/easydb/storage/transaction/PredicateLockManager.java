@@ -0,0 +1,459 @@
+package com.easydb.storage.transaction;
+
+import com.easydb.storage.TupleId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializable snapshot isolation, similar to PostgreSQL's predicate.c.
+ * Serializable transactions run on a snapshot like repeatable read, and in
+ * addition:
+ *
+ * - Reads take SIREAD locks. These block nothing; they only record what a
+ *   transaction read, so a later write by a concurrent transaction can be
+ *   detected. Scans lock the whole table, which also covers rows inserted
+ *   later; single rows get a row lock.
+ * - A write that hits a concurrent reader's SIREAD lock, and a read that
+ *   skips a version written by a concurrent transaction, add an
+ *   rw-antidependency edge from the reader to the writer.
+ * - A transaction with an edge in and an edge out is a pivot. If the
+ *   transaction at the end of its outgoing edge commits first, the three
+ *   form a dangerous structure and one of them is aborted with a
+ *   {@link SerializationException}, either right away or at commit.
+ *
+ * Row locks are coarsened to a page lock once a transaction holds more than
+ * {@link #MAX_TUPLE_LOCKS_PER_PAGE} of them on one page, and page locks to a
+ * table lock past {@link #MAX_PAGE_LOCKS_PER_RELATION}. Once the locks of
+ * all transactions reach {@link #setMaxLocks the limit}, new ones are taken
+ * on the whole table. Coarser locks only cause more false positives.
+ *
+ * Committed transactions keep their locks and edges until no transaction
+ * that ran concurrently with them is left. All state is guarded by one lock,
+ * like SerializableXactHashLock; transactions below serializable never
+ * reach it.
+ */
+public class PredicateLockManager {
+    public static final int DEFAULT_MAX_LOCKS = 64 * 100;  // max_pred_locks_per_transaction * max_connections
+    static final int MAX_TUPLE_LOCKS_PER_PAGE = 2;
+    static final int MAX_PAGE_LOCKS_PER_RELATION = 32;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Transaction, SerializableXact> xacts = new HashMap<>();
+    private final Map<Long, SerializableXact> xactsByXid = new HashMap<>();  // Those that wrote
+    private final Map<PredicateLockTag, Set<SerializableXact>> targets = new HashMap<>();
+    private long lastCommitSeq;
+    private int lockCount;
+    private volatile int maxLocks = DEFAULT_MAX_LOCKS;
+    private volatile boolean empty = true;  // No serializable transaction to check against
+
+    /**
+     * A serializable transaction's conflict-tracking state, like SERIALIZABLEXACT.
+     */
+    private static final class SerializableXact {
+        final Transaction txn;
+        final long registerSeq;  // Last commit sequence number before the snapshot
+        final Set<SerializableXact> inConflicts = new HashSet<>();   // Read what this one overwrote
+        final Set<SerializableXact> outConflicts = new HashSet<>();  // Overwrote what this one read
+        final Set<PredicateLockTag> locks = new HashSet<>();
+        final Map<PredicateLockTag, Integer> childLocks = new HashMap<>();  // Finer locks per page or table
+        boolean committed;
+        long commitSeq;
+        boolean doomed;
+        long earliestOutConflictCommit = Long.MAX_VALUE;  // Of out-conflicts already cleaned up
+
+        SerializableXact(Transaction txn, long registerSeq) {
+            this.txn = txn;
+            this.registerSeq = registerSeq;
+        }
+
+        /**
+         * Checks if the other transaction committed after this one's
+         * snapshot was taken, or has not committed yet. A read-only
+         * transaction has no xid for the snapshot to list; its commit has
+         * no effect on visibility, so the commit order decides.
+         */
+        boolean overlaps(SerializableXact other) {
+            if (!other.committed) {
+                return true;
+            }
+            if (!other.txn.hasXid()) {
+                return other.commitSeq > registerSeq;
+            }
+            Snapshot snapshot = txn.getSnapshot();
+            return snapshot == null || snapshot.isRunning(other.txn.getXid());
+        }
+    }
+
+    /**
+     * Sets the number of predicate locks all transactions may hold before
+     * new ones are taken on whole tables.
+     */
+    public void setMaxLocks(int maxLocks) {
+        this.maxLocks = maxLocks;
+    }
+
+    /**
+     * Starts tracking a serializable transaction. Called before its snapshot
+     * is taken, so everything the snapshot misses commits while it is tracked.
+     */
+    void register(Transaction txn) {
+        lock.lock();
+        try {
+            xacts.put(txn, new SerializableXact(txn, lastCommitSeq));
+            empty = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes a transaction that was just assigned an xid findable by readers
+     * that skip its versions. Read-only transactions never get here.
+     */
+    void assignXid(Transaction txn) {
+        lock.lock();
+        try {
+            SerializableXact sxact = xacts.get(txn);
+            if (sxact != null) {
+                xactsByXid.put(txn.getXid(), sxact);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a SIREAD lock on a row the transaction read.
+     */
+    public void lockTuple(Transaction txn, TupleId tupleId) {
+        acquire(txn, PredicateLockTag.tuple(tupleId));
+    }
+
+    /**
+     * Takes a SIREAD lock on a whole table, for a scan.
+     */
+    public void lockRelation(Transaction txn, int tableOid) {
+        acquire(txn, PredicateLockTag.relation(tableOid));
+    }
+
+    private void acquire(Transaction txn, PredicateLockTag tag) {
+        if (txn.getIsolationLevel() != IsolationLevel.SERIALIZABLE) {
+            return;
+        }
+        lock.lock();
+        try {
+            SerializableXact sxact = xacts.get(txn);
+            if (sxact == null) {
+                return;
+            }
+            checkDoomed(sxact);
+            if (lockCount >= maxLocks && !tag.isRelation()) {
+                promote(sxact, PredicateLockTag.relation(tag.tableOid()));
+            } else {
+                acquire(sxact, tag);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire(SerializableXact sxact, PredicateLockTag tag) {
+        for (PredicateLockTag covering = tag; covering != null; covering = covering.parent()) {
+            if (sxact.locks.contains(covering)) {
+                return;
+            }
+        }
+        sxact.locks.add(tag);
+        targets.computeIfAbsent(tag, t -> new HashSet<>()).add(sxact);
+        lockCount++;
+
+        PredicateLockTag parent = tag.parent();
+        if (parent != null) {
+            int limit = parent.isPage() ? MAX_TUPLE_LOCKS_PER_PAGE : MAX_PAGE_LOCKS_PER_RELATION;
+            if (sxact.childLocks.merge(parent, 1, Integer::sum) > limit) {
+                promote(sxact, parent);
+            }
+        }
+    }
+
+    /**
+     * Replaces the transaction's locks under the coarser tag with a lock on
+     * the tag itself.
+     */
+    private void promote(SerializableXact sxact, PredicateLockTag coarser) {
+        for (Iterator<PredicateLockTag> it = sxact.locks.iterator(); it.hasNext(); ) {
+            PredicateLockTag tag = it.next();
+            if (coarser.covers(tag)) {
+                it.remove();
+                removeTarget(sxact, tag);
+            }
+        }
+        sxact.childLocks.keySet().removeIf(coarser::covers);
+        sxact.childLocks.remove(coarser);
+        acquire(sxact, coarser);
+    }
+
+    private void removeTarget(SerializableXact sxact, PredicateLockTag tag) {
+        Set<SerializableXact> holders = targets.get(tag);
+        if (holders != null && holders.remove(sxact)) {
+            lockCount--;
+            if (holders.isEmpty()) {
+                targets.remove(tag);
+            }
+        }
+    }
+
+    /**
+     * Records that a serializable reader skipped a version written by a
+     * transaction its snapshot does not see, like
+     * CheckForSerializableConflictOut. The caller has already checked the
+     * writer is concurrent; writers below serializable are ignored.
+     *
+     * @throws SerializationException if the edge completes a dangerous
+     *         structure and the reader has to be aborted
+     */
+    public void checkConflictOut(Transaction reader, long writerXid) {
+        if (reader.getIsolationLevel() != IsolationLevel.SERIALIZABLE) {
+            return;
+        }
+        lock.lock();
+        try {
+            SerializableXact sxact = xacts.get(reader);
+            if (sxact == null) {
+                return;
+            }
+            checkDoomed(sxact);
+            SerializableXact writer = xactsByXid.get(writerXid);
+            if (writer != null && writer != sxact) {
+                addConflict(sxact, writer);
+                checkDoomed(sxact);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the transaction's write to a row against the SIREAD locks of
+     * concurrent readers on the row, its page and its table, like
+     * CheckForSerializableConflictIn.
+     *
+     * @throws SerializationException if an edge completes a dangerous
+     *         structure and the writer has to be aborted
+     */
+    public void checkConflictIn(Transaction writer, TupleId tupleId) {
+        if (empty || writer.getIsolationLevel() != IsolationLevel.SERIALIZABLE) {
+            return;
+        }
+        lock.lock();
+        try {
+            SerializableXact sxact = xacts.get(writer);
+            if (sxact == null) {
+                return;
+            }
+            checkDoomed(sxact);
+            for (PredicateLockTag tag = PredicateLockTag.tuple(tupleId); tag != null; tag = tag.parent()) {
+                Set<SerializableXact> holders = targets.get(tag);
+                if (holders == null) {
+                    continue;
+                }
+                for (SerializableXact reader : new ArrayList<>(holders)) {
+                    if (reader != sxact && sxact.overlaps(reader)) {
+                        addConflict(reader, sxact);
+                    }
+                }
+            }
+            checkDoomed(sxact);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the edge reader -> writer and dooms a transaction if it closes a
+     * dangerous structure T_in -> pivot -> T_out where T_out committed
+     * first, like OnConflict_CheckForSerializationFailure. Structures still
+     * open are checked again when their members commit.
+     */
+    private void addConflict(SerializableXact reader, SerializableXact writer) {
+        if (!reader.outConflicts.add(writer)) {
+            return;
+        }
+        writer.inConflicts.add(reader);
+
+        // The writer is the pivot and its T_out committed before it and
+        // before the reader
+        long summarized = writer.earliestOutConflictCommit;
+        boolean failure = summarized < commitSeqOrMax(writer) && summarized < commitSeqOrMax(reader);
+        for (SerializableXact out : writer.outConflicts) {
+            if (failure) {
+                break;
+            }
+            failure = committedBefore(out, writer) && committedBefore(out, reader);
+        }
+        // The reader is the pivot and the writer, its T_out, committed first
+        if (!failure && writer.committed) {
+            for (SerializableXact in : reader.inConflicts) {
+                if (!in.doomed && committedBefore(writer, in)) {
+                    failure = true;
+                    break;
+                }
+            }
+        }
+        if (failure) {
+            // Abort the writer while it can still be; a committed writer
+            // leaves the reader
+            (writer.committed ? reader : writer).doomed = true;
+        }
+    }
+
+    /**
+     * Checks if the first transaction committed before the second one did,
+     * if it did at all.
+     */
+    private static boolean committedBefore(SerializableXact first, SerializableXact second) {
+        return first.committed && first.commitSeq < commitSeqOrMax(second);
+    }
+
+    private static long commitSeqOrMax(SerializableXact sxact) {
+        return sxact.committed ? sxact.commitSeq : Long.MAX_VALUE;
+    }
+
+    private static void checkDoomed(SerializableXact sxact) {
+        if (sxact.doomed) {
+            throw new SerializationException(
+                "Could not serialize access due to read/write dependencies among transactions");
+        }
+    }
+
+    /**
+     * Runs the commit-time check, like PreCommit_CheckForSerializationFailure:
+     * a committing transaction is T_out to every reader of its writes, and
+     * dooms those that are pivots with a T_in that has not committed yet.
+     * Then it takes its place in the commit order.
+     *
+     * @throws SerializationException if this transaction was doomed; the
+     *         caller has to roll it back
+     */
+    void preCommit(Transaction txn) {
+        if (txn.getIsolationLevel() != IsolationLevel.SERIALIZABLE) {
+            return;
+        }
+        lock.lock();
+        try {
+            SerializableXact sxact = xacts.get(txn);
+            if (sxact == null) {
+                return;
+            }
+            checkDoomed(sxact);
+            for (SerializableXact pivot : sxact.inConflicts) {
+                if (pivot.committed || pivot.doomed) {
+                    continue;
+                }
+                for (SerializableXact in : pivot.inConflicts) {
+                    if (in == sxact || (!in.committed && !in.doomed)) {
+                        pivot.doomed = true;
+                        break;
+                    }
+                }
+            }
+            sxact.committed = true;
+            sxact.commitSeq = ++lastCommitSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called once the transaction has ended. An aborted transaction drops
+     * its locks and edges at once; a committed one keeps them while
+     * concurrent transactions can still conflict with it. Either way,
+     * committed transactions nobody overlaps anymore are cleaned up, like
+     * ClearOldPredicateLocks.
+     */
+    void release(Transaction txn) {
+        if (empty || txn.getIsolationLevel() != IsolationLevel.SERIALIZABLE) {
+            return;
+        }
+        lock.lock();
+        try {
+            SerializableXact sxact = xacts.get(txn);
+            if (sxact != null && !sxact.committed) {
+                remove(sxact);
+            }
+
+            List<SerializableXact> finished = new ArrayList<>();
+            for (SerializableXact candidate : xacts.values()) {
+                if (candidate.committed && !isOverlapped(candidate)) {
+                    finished.add(candidate);
+                }
+            }
+            finished.forEach(this::remove);
+            empty = xacts.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks if a running transaction may still conflict with the committed one.
+     */
+    private boolean isOverlapped(SerializableXact committed) {
+        for (SerializableXact other : xacts.values()) {
+            if (!other.committed && other.overlaps(committed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(SerializableXact sxact) {
+        xacts.remove(sxact.txn);
+        xactsByXid.remove(sxact.txn.getXid());
+        for (PredicateLockTag tag : sxact.locks) {
+            removeTarget(sxact, tag);
+        }
+        for (SerializableXact in : sxact.inConflicts) {
+            in.outConflicts.remove(sxact);
+            if (sxact.committed) {
+                // Keep the commit order a pivot needs, like SXACT_FLAG_SUMMARY_CONFLICT_OUT
+                in.earliestOutConflictCommit = Math.min(in.earliestOutConflictCommit, sxact.commitSeq);
+            }
+        }
+        for (SerializableXact out : sxact.outConflicts) {
+            out.inConflicts.remove(sxact);
+        }
+    }
+
+    /**
+     * Returns the SIREAD locks the transaction holds.
+     */
+    public Set<PredicateLockTag> getLocks(Transaction txn) {
+        lock.lock();
+        try {
+            SerializableXact sxact = xacts.get(txn);
+            return sxact == null ? Set.of() : Set.copyOf(sxact.locks);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of SIREAD locks held by all transactions.
+     */
+    public int getLockCount() {
+        lock.lock();
+        try {
+            return lockCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
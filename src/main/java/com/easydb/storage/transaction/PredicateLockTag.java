@@ -0,0 +1,58 @@
+package com.easydb.storage.transaction;
+
+import com.easydb.storage.TupleId;
+
+/**
+ * Identifies what a SIREAD lock covers, like PostgreSQL's PREDICATELOCKTARGETTAG:
+ * a whole table, a page of it, or a single row. Heaps here have no pages, so
+ * a page is a run of {@link #ROWS_PER_PAGE} consecutive row IDs; rows inserted
+ * together share one, much like they share a heap page.
+ */
+public record PredicateLockTag(int tableOid, long page, long rowId) {
+    public static final int ROWS_PER_PAGE = 64;
+    private static final long ALL = -1;
+
+    public static PredicateLockTag relation(int tableOid) {
+        return new PredicateLockTag(tableOid, ALL, ALL);
+    }
+
+    public static PredicateLockTag page(int tableOid, long page) {
+        return new PredicateLockTag(tableOid, page, ALL);
+    }
+
+    /**
+     * Returns the tag of a row; every version of the row shares it, so a lock
+     * follows the row through updates.
+     */
+    public static PredicateLockTag tuple(TupleId tupleId) {
+        return new PredicateLockTag(tupleId.tableOid(), tupleId.rowId() / ROWS_PER_PAGE, tupleId.rowId());
+    }
+
+    public boolean isRelation() {
+        return page == ALL;
+    }
+
+    public boolean isPage() {
+        return page != ALL && rowId == ALL;
+    }
+
+    /**
+     * Returns the next coarser tag covering this one, or null for a table.
+     */
+    public PredicateLockTag parent() {
+        if (isRelation()) {
+            return null;
+        }
+        return isPage() ? relation(tableOid) : page(tableOid, page);
+    }
+
+    /**
+     * Checks if this tag strictly covers the other one.
+     */
+    public boolean covers(PredicateLockTag other) {
+        if (equals(other) || tableOid != other.tableOid) {
+            return false;
+        }
+        return isRelation() || (isPage() && other.page == page);
+    }
+}
@@ -0,0 +1,248 @@
+package com.easydb.storage.transaction;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Shared array of running transactions, similar to PostgreSQL's ProcArray.
+ * Every transaction owns a slot holding its xid, the xmin of its snapshot
+ * and a local transaction counter. A virtual transaction holds no xid
+ * until its first write; snapshots skip it and only its xmin counts. Slots are claimed and released with compare-and-set, and
+ * snapshots are built by scanning them without a lock, so taking a
+ * snapshot costs O(slots) and never blocks a commit.
+ *
+ * Two short windows are published with sentinels so scans stay exact:
+ * RESERVED while an xid is being assigned, and ACQUIRING
+ * while a snapshot is being built. A scan that meets one spins until the
+ * owner publishes the real value.
+ *
+ * CSN snapshots skip the scan and advertise the last computed horizon as
+ * their xmin instead.
+ */
+public class ProcArray {
+    private static final long EMPTY = 0;
+    private static final long RESERVED = -1;
+    private static final long ACQUIRING = -1;
+    private static final long VIRTUAL = -2;     // Running without an xid
+    private static final int SLOT_WIDTH = 3;    // xid, xmin, local transaction counter
+    private static final int SLOTS_PER_CHUNK = 64;
+
+    private final AtomicLong nextXid;
+    private final AtomicLong lastOldestXmin;    // Last result of getOldestXmin
+    private volatile AtomicLongArray[] chunks;  // Slot i: xid at 3i, xmin at 3i + 1, lxid at 3i + 2
+    private volatile int freeHint;              // Recently freed slot
+
+    public ProcArray(long firstXid) {
+        this.nextXid = new AtomicLong(firstXid);
+        this.lastOldestXmin = new AtomicLong(firstXid);
+        this.chunks = new AtomicLongArray[] {new AtomicLongArray(SLOT_WIDTH * SLOTS_PER_CHUNK)};
+    }
+
+    /**
+     * Claims a slot and assigns the next xid to it.
+     *
+     * @return the slot number, to pass to the other methods
+     */
+    public int register() {
+        int slot = registerVirtual();
+        assignXid(slot);
+        return slot;
+    }
+
+    /**
+     * Claims a slot for a virtual transaction, without an xid. Until it
+     * takes a snapshot it holds back vacuum at the next xid, like a
+     * transaction that would get it.
+     *
+     * @return the slot number, to pass to the other methods
+     */
+    public int registerVirtual() {
+        while (true) {
+            AtomicLongArray[] current = chunks;
+            int slotCount = current.length * SLOTS_PER_CHUNK;
+            // Start at the slot freed last, so a busy array is not scanned
+            // from the front on every begin
+            int start = Math.min(freeHint, slotCount - 1);
+            for (int n = 0; n < slotCount; n++) {
+                int slot = (start + n) % slotCount;
+                AtomicLongArray chunk = current[slot / SLOTS_PER_CHUNK];
+                int index = SLOT_WIDTH * (slot % SLOTS_PER_CHUNK);
+                if (chunk.get(index) == EMPTY && chunk.compareAndSet(index, EMPTY, RESERVED)) {
+                    chunk.set(index + 1, nextXid.get());
+                    chunk.set(index + 2, chunk.get(index + 2) + 1);
+                    chunk.set(index, VIRTUAL);
+                    return slot;
+                }
+            }
+            grow(current.length);
+        }
+    }
+
+    /**
+     * Assigns the next xid to the virtual transaction in the slot, like
+     * AssignTransactionId. Snapshot scans wait while the slot is RESERVED,
+     * so a scan that read the next xid before it was handed out cannot
+     * miss the transaction.
+     */
+    public long assignXid(int slot) {
+        AtomicLongArray chunk = chunk(slot);
+        int index = SLOT_WIDTH * (slot % SLOTS_PER_CHUNK);
+        chunk.set(index, RESERVED);
+        long xid = nextXid.getAndIncrement();
+        chunk.set(index, xid);
+        return xid;
+    }
+
+    /**
+     * Returns the xid of the transaction in the slot, or 0 if it has none.
+     */
+    public long getXid(int slot) {
+        long xid = chunk(slot).get(SLOT_WIDTH * (slot % SLOTS_PER_CHUNK));
+        return xid == VIRTUAL ? 0 : xid;
+    }
+
+    /**
+     * Returns the local transaction counter of the slot, which tells apart
+     * the transactions that used it, like a backend's lxid.
+     */
+    public long getLocalXid(int slot) {
+        return chunk(slot).get(SLOT_WIDTH * (slot % SLOTS_PER_CHUNK) + 2);
+    }
+
+    /**
+     * Takes a snapshot for the transaction in the slot and advertises its
+     * xmin, like GetSnapshotData. The owner's own xid is not listed as
+     * running.
+     */
+    public XidSnapshot takeSnapshot(int slot) {
+        AtomicLongArray own = chunk(slot);
+        int ownIndex = SLOT_WIDTH * (slot % SLOTS_PER_CHUNK);
+        own.set(ownIndex + 1, ACQUIRING);
+
+        long xmax = nextXid.get();
+        long[] xip = new long[8];
+        int count = 0;
+        long xmin = xmax;
+        for (AtomicLongArray chunk : chunks) {
+            for (int i = 0; i < SLOTS_PER_CHUNK; i++) {
+                if (chunk == own && SLOT_WIDTH * i == ownIndex) {
+                    continue;
+                }
+                long xid = awaitPublished(chunk, SLOT_WIDTH * i, RESERVED);
+                if (xid == EMPTY || xid == VIRTUAL || xid >= xmax) {
+                    continue;
+                }
+                if (count == xip.length) {
+                    xip = Arrays.copyOf(xip, count * 2);
+                }
+                xip[count++] = xid;
+                xmin = Math.min(xmin, xid);
+            }
+        }
+        long[] running = Arrays.copyOf(xip, count);
+        Arrays.sort(running);
+
+        own.set(ownIndex + 1, ownXmin(own, ownIndex, xmin));
+        return new XidSnapshot(xmin, xmax, running);
+    }
+
+    /**
+     * Takes a CSN snapshot for the transaction in the slot without scanning
+     * the other slots. Its xmin is the last computed horizon: every
+     * transaction running now either was running when that horizon was
+     * computed, so the horizon is not above it, or started later with a
+     * larger xid.
+     */
+    public CsnSnapshot takeCsnSnapshot(int slot, CsnLog csnLog) {
+        AtomicLongArray own = chunk(slot);
+        int ownIndex = SLOT_WIDTH * (slot % SLOTS_PER_CHUNK);
+        own.set(ownIndex + 1, ACQUIRING);
+
+        long xmin = lastOldestXmin.get();
+        long csn = csnLog.getLatestCsn();
+
+        own.set(ownIndex + 1, ownXmin(own, ownIndex, xmin));
+        return new CsnSnapshot(csn, xmin, csnLog);
+    }
+
+    /**
+     * Releases the slot once the transaction's commit status is recorded.
+     */
+    public void remove(int slot) {
+        AtomicLongArray chunk = chunk(slot);
+        int index = SLOT_WIDTH * (slot % SLOTS_PER_CHUNK);
+        chunk.set(index + 1, EMPTY);
+        chunk.set(index, EMPTY);
+        freeHint = slot;
+    }
+
+    /**
+     * Returns the oldest xid any running transaction may still see as in
+     * progress, like GetOldestXmin. The advertised xmins are read in a second
+     * pass, after the xids: a snapshot that is started after the second pass
+     * got past its slot cannot list a transaction the first pass missed.
+     */
+    public long getOldestXmin() {
+        long oldestXmin = nextXid.get();
+        AtomicLongArray[] current = chunks;
+        for (AtomicLongArray chunk : current) {
+            for (int i = 0; i < SLOTS_PER_CHUNK; i++) {
+                long xid = awaitPublished(chunk, SLOT_WIDTH * i, RESERVED);
+                if (xid != EMPTY && xid != VIRTUAL) {
+                    oldestXmin = Math.min(oldestXmin, xid);
+                }
+            }
+        }
+        for (AtomicLongArray chunk : chunks) {
+            for (int i = 0; i < SLOTS_PER_CHUNK; i++) {
+                long xmin = awaitPublished(chunk, SLOT_WIDTH * i + 1, ACQUIRING);
+                if (xmin != EMPTY) {
+                    oldestXmin = Math.min(oldestXmin, xmin);
+                }
+            }
+        }
+        lastOldestXmin.accumulateAndGet(oldestXmin, Math::max);
+        return oldestXmin;
+    }
+
+    public long getNextXid() {
+        return nextXid.get();
+    }
+
+    /**
+     * Moves the next xid past the given one, like recovery advancing
+     * nextXid past every xid it replays. Never moves it back.
+     */
+    public void advanceNextXid(long xid) {
+        nextXid.accumulateAndGet(xid + 1, Math::max);
+    }
+
+    private static long ownXmin(AtomicLongArray own, int ownIndex, long snapshotXmin) {
+        long ownXid = own.get(ownIndex);
+        return ownXid == VIRTUAL ? snapshotXmin : Math.min(snapshotXmin, ownXid);
+    }
+
+    private static long awaitPublished(AtomicLongArray chunk, int index, long sentinel) {
+        long value = chunk.get(index);
+        while (value == sentinel) {
+            Thread.onSpinWait();
+            value = chunk.get(index);
+        }
+        return value;
+    }
+
+    private AtomicLongArray chunk(int slot) {
+        return chunks[slot / SLOTS_PER_CHUNK];
+    }
+
+    private synchronized void grow(int seenLength) {
+        AtomicLongArray[] current = chunks;
+        if (current.length != seenLength) {
+            return;  // Another thread already added a chunk
+        }
+        AtomicLongArray[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = new AtomicLongArray(SLOT_WIDTH * SLOTS_PER_CHUNK);
+        chunks = grown;
+    }
+}
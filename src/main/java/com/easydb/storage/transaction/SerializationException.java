@@ -0,0 +1,12 @@
+package com.easydb.storage.transaction;
+
+/**
+ * Thrown when a transaction cannot go on without breaking its isolation
+ * level, like PostgreSQL's serialization_failure. The transaction has to be
+ * rolled back and may then be retried.
+ */
+public class SerializationException extends RuntimeException {
+    public SerializationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,24 @@
+package com.easydb.storage.transaction;
+
+/**
+ * MVCC snapshot of which transactions had committed when it was taken.
+ *
+ * @see XidSnapshot
+ * @see CsnSnapshot
+ */
+public interface Snapshot {
+
+    /**
+     * Checks if a transaction was still running, or not yet started, when
+     * the snapshot was taken. Its changes are then invisible to the snapshot
+     * whether it committed later or not. A transaction that aborted may
+     * read as running too; callers still check the commit status.
+     */
+    boolean isRunning(long xid);
+
+    /**
+     * Returns an xid below which every transaction had ended when the
+     * snapshot was taken. Vacuum keeps what the snapshot may need above it.
+     */
+    long getXmin();
+}
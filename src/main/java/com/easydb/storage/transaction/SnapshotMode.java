@@ -0,0 +1,17 @@
+package com.easydb.storage.transaction;
+
+/**
+ * How repeatable read and serializable transactions take their snapshot.
+ */
+public enum SnapshotMode {
+    /**
+     * List the running transactions, like PostgreSQL; cost grows with them
+     */
+    XID,
+
+    /**
+     * Read the latest commit sequence number; constant cost, but every
+     * commit draws a CSN and visibility checks look it up
+     */
+    CSN
+}
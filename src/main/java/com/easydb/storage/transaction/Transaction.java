@@ -3,14 +3,20 @@ package com.easydb.storage.transaction;
 import com.easydb.storage.TupleId;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Represents a database transaction with MVCC support.
  * Works with TransactionManager for version management.
+ *
+ * A transaction started with {@link TransactionManager#beginVirtualTransaction}
+ * has no xid until its first write; until then it is only known by its
+ * virtual transaction ID.
  */
 public class Transaction {
-    private final long xid;
+    private volatile long xid;  // 0 until assigned
+    private VirtualTransactionId virtualXid;
     private final AtomicReference<TransactionStatus> status;
     private IsolationLevel isolationLevel;
     
@@ -20,7 +26,10 @@ public class Transaction {
     
     // Snapshot information for repeatable read and serializable
     private final long snapshotTimestamp;
-    private final Set<Long> activeTransactionsAtStart;
+    private volatile Snapshot snapshot;
+    private int procNumber;
+    private final AtomicBoolean ended;    // Set once the outcome is recorded
+    private volatile boolean waitedOn;    // Another transaction waits for this one
 
     public Transaction(long xid, IsolationLevel isolationLevel) {
         this.xid = xid;
@@ -29,7 +38,8 @@ public class Transaction {
         this.readSet = Collections.newSetFromMap(new ConcurrentHashMap<>());
         this.writeSet = Collections.newSetFromMap(new ConcurrentHashMap<>());
         this.snapshotTimestamp = System.nanoTime();
-        this.activeTransactionsAtStart = new HashSet<>(); // Set by TransactionManager
+        this.procNumber = -1; // Set by TransactionManager
+        this.ended = new AtomicBoolean();
     }
 
     /**
@@ -60,23 +70,6 @@ public class Transaction {
                isolationLevel == IsolationLevel.SERIALIZABLE;
     }
 
-    /**
-     * Checks if a tuple version is visible to this transaction.
-     */
-    public boolean isVisible(long xmin, long xmax) {
-        switch (isolationLevel) {
-            case READ_COMMITTED:
-                return xmin < xid && (xmax == 0 || xmax > xid);
-            case REPEATABLE_READ:
-            case SERIALIZABLE:
-                return xmin < xid && 
-                       !activeTransactionsAtStart.contains(xmin) &&
-                       (xmax == 0 || xmax > xid || activeTransactionsAtStart.contains(xmax));
-            default:
-                throw new IllegalStateException("Unknown isolation level: " + isolationLevel);
-        }
-    }
-
     /**
      * Attempts to commit the transaction.
      */
@@ -94,20 +87,72 @@ public class Transaction {
     }
 
     /**
-     * Sets the active transactions at start for snapshot isolation.
+     * Sets the snapshot taken at start for snapshot isolation.
      */
-    public void setActiveTransactionsAtStart(Set<Long> activeTxns) {
-        if (requiresReadTracking()) {
-            this.activeTransactionsAtStart.addAll(activeTxns);
-        }
+    public void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
     }
 
-    public boolean isCommitted(long xmin) {
-        return xmin < xid;
+    /**
+     * Returns the snapshot taken at start, or null for read committed.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
     }
 
+    void setProcNumber(int procNumber, long localXid) {
+        this.procNumber = procNumber;
+        this.virtualXid = new VirtualTransactionId(procNumber, localXid);
+    }
+
+    void setXid(long xid) {
+        this.xid = xid;
+    }
+
+    int getProcNumber() {
+        return procNumber;
+    }
+
+    /**
+     * Marks the transaction as ended.
+     *
+     * @return false if it had already ended
+     */
+    boolean markEnded() {
+        return !ended.getAndSet(true);
+    }
+
+    boolean hasEnded() {
+        return ended.get();
+    }
+
+    void markWaitedOn() {
+        waitedOn = true;
+    }
+
+    boolean wasWaitedOn() {
+        return waitedOn;
+    }
+
+    /**
+     * Returns the oldest transaction ID this transaction's snapshot still
+     * treats as running, or its own ID when none was running at start.
+     */
+    public long getSnapshotXmin() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return xid;
+        }
+        return xid == 0 ? current.getXmin() : Math.min(xid, current.getXmin());
+    }
+
+    /**
+     * Checks if a transaction was still running when this transaction's
+     * snapshot was taken.
+     */
     public boolean wasActiveAtSnapshot(long xmin) {
-        return xmin < xid;
+        Snapshot current = snapshot;
+        return current != null && xmin != xid && current.isRunning(xmin);
     }
     
     // Status checks
@@ -125,6 +170,8 @@ public class Transaction {
 
     // Getters
     public long getXid() { return xid; }
+    public boolean hasXid() { return xid != 0; }
+    public VirtualTransactionId getVirtualXid() { return virtualXid; }
     public IsolationLevel getIsolationLevel() { return isolationLevel; }
     public TransactionStatus getStatus() { return status.get(); }
     public Set<TupleId> getReadSet() { return Collections.unmodifiableSet(readSet); }
@@ -136,17 +183,18 @@ public class Transaction {
         if (this == o) return true;
         if (!(o instanceof Transaction)) return false;
         Transaction that = (Transaction) o;
-        return xid == that.xid;
+        // The xid may be assigned later; the virtual ID never changes
+        return Objects.equals(virtualXid, that.virtualXid) && (virtualXid != null || xid == that.xid);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(xid);
+        return virtualXid != null ? virtualXid.hashCode() : Objects.hash(xid);
     }
 
     @Override
     public String toString() {
-        return String.format("Transaction{xid=%d, status=%s, isolation=%s}", 
-                           xid, status.get(), isolationLevel);
+        return String.format("Transaction{xid=%d, vxid=%s, status=%s, isolation=%s}", 
+                           xid, virtualXid, status.get(), isolationLevel);
     }
 } 
\ No newline at end of file
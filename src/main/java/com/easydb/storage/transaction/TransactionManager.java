@@ -1,53 +1,332 @@
 package com.easydb.storage.transaction;
 
-import java.util.*;
+import com.easydb.storage.WriteAheadLog;
+
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Manages database transactions with MVCC support.
  */
 public class TransactionManager {
-    private final ConcurrentHashMap<Long, Transaction> activeTransactions;
-    private final ConcurrentHashMap<Long, TransactionStatus> transactionStatuses;
-    private final AtomicLong transactionIdGenerator;
+    private final ConcurrentHashMap<Long, Transaction> activeTransactions;  // Only those with an xid
+    private final CommitLog commitLog;
+    private final ProcArray procArray;
+    private final SnapshotMode snapshotMode;
+    private final CsnLog csnLog;  // Only kept in CSN mode
+    private final List<Consumer<Transaction>> abortCallbacks;
+    private final LockManager lockManager;
+    private final PredicateLockManager predicateLockManager;
+    private final WriteAheadLog wal;          // Null when nothing is logged
+    private final GroupCommit groupCommit;
+    private volatile RuntimeException failure;  // Why a commit could not be made durable
 
     public TransactionManager() {
+        this(SnapshotMode.XID);
+    }
+
+    public TransactionManager(SnapshotMode snapshotMode) {
+        this(snapshotMode, null);
+    }
+
+    /**
+     * Creates a transaction manager that makes commits durable in the log
+     * before they become visible.
+     */
+    public TransactionManager(SnapshotMode snapshotMode, WriteAheadLog wal) {
+        this(snapshotMode, wal, snapshotMode == SnapshotMode.CSN ? new CsnLog() : null);
+    }
+
+    TransactionManager(SnapshotMode snapshotMode, WriteAheadLog wal, CsnLog csnLog) {
         this.activeTransactions = new ConcurrentHashMap<>();
-        this.transactionStatuses = new ConcurrentHashMap<>();
-        this.transactionIdGenerator = new AtomicLong(1); // Start from 1
+        this.commitLog = new CommitLog();
+        this.procArray = new ProcArray(1); // Start from 1
+        this.snapshotMode = snapshotMode;
+        this.csnLog = csnLog;
+        this.abortCallbacks = new CopyOnWriteArrayList<>();
+        this.lockManager = new LockManager();
+        this.predicateLockManager = new PredicateLockManager();
+        this.wal = wal;
+        this.groupCommit = wal == null ? null : new GroupCommit(wal, activeTransactions::size);
+    }
+
+    /**
+     * Registers a callback that undoes the writes of an aborting transaction,
+     * like PostgreSQL's RegisterXactCallback. Callbacks run before the abort
+     * is recorded, while the transaction's versions still read as in
+     * progress to everyone else.
+     */
+    public void registerAbortCallback(Consumer<Transaction> callback) {
+        abortCallbacks.add(callback);
     }
 
+    /**
+     * Starts a transaction with an xid assigned at once.
+     */
     public Transaction beginTransaction(IsolationLevel level) {
-        long txnId = transactionIdGenerator.getAndIncrement();
-        Transaction txn = new Transaction(txnId, level);
-        
+        Transaction txn = beginVirtualTransaction(level);
+        assignXid(txn);
+        return txn;
+    }
+
+    /**
+     * Starts a virtual transaction, like a PostgreSQL backend that has not
+     * written yet: it claims a proc array slot and takes its snapshot, but
+     * gets no xid, has no commit log entry and is not in the active
+     * transaction map. A read-only transaction stays that way to the end;
+     * storage calls {@link #assignXid} before the first write.
+     */
+    public Transaction beginVirtualTransaction(IsolationLevel level) {
+        checkNotFailed();
+        int procNumber = procArray.registerVirtual();
+        Transaction txn = new Transaction(0, level);
+        txn.setProcNumber(procNumber, procArray.getLocalXid(procNumber));
+        if (level == IsolationLevel.SERIALIZABLE) {
+            predicateLockManager.register(txn);
+        }
+
         // Set snapshot for isolation
         if (level != IsolationLevel.READ_COMMITTED) {
-            Set<Long> activeXids = new HashSet<>(activeTransactions.keySet());
-            txn.setActiveTransactionsAtStart(activeXids);
+            txn.setSnapshot(snapshotMode == SnapshotMode.CSN
+                ? procArray.takeCsnSnapshot(procNumber, csnLog)
+                : procArray.takeSnapshot(procNumber));
         }
-        
-        activeTransactions.put(txnId, txn);
-        transactionStatuses.put(txnId, TransactionStatus.ACTIVE);
         return txn;
     }
 
+    /**
+     * Returns the transaction's xid, assigning one first if it has none,
+     * like GetCurrentTransactionId. Snapshots taken before the assignment
+     * see the new xid as running.
+     */
+    public long assignXid(Transaction txn) {
+        long xid = txn.getXid();
+        if (xid != 0) {
+            return xid;
+        }
+        checkNotFailed();
+        xid = procArray.assignXid(txn.getProcNumber());
+        txn.setXid(xid);
+        activeTransactions.put(xid, txn);
+        if (txn.getIsolationLevel() == IsolationLevel.SERIALIZABLE) {
+            predicateLockManager.assignXid(txn);
+        }
+        if (wal != null) {
+            wal.logBegin(xid);
+        }
+        return xid;
+    }
+
+    /**
+     * Commits the transaction. A serializable transaction is checked for
+     * dangerous structures first.
+     *
+     * @throws SerializationException if the serializable transaction could
+     *         not be committed; it has been rolled back
+     * @throws IllegalStateException if an earlier commit failed to flush;
+     *         the transaction has been rolled back
+     */
     public void commit(Transaction txn) {
-        transactionStatuses.put(txn.getXid(), TransactionStatus.COMMITTED);
-        activeTransactions.remove(txn.getXid());
+        if (failure != null) {
+            rollback(txn);
+            checkNotFailed();
+        }
+        try {
+            predicateLockManager.preCommit(txn);
+        } catch (SerializationException e) {
+            rollback(txn);
+            throw e;
+        }
+
+        // Record the outcome before leaving the proc array, so a snapshot
+        // that no longer lists the transaction sees it as committed. A
+        // virtual transaction wrote nothing and has no outcome to record.
+        if (txn.hasXid()) {
+            if (wal != null) {
+                // Durable before visible, like RecordTransactionCommit
+                try {
+                    groupCommit.waitForFlush(wal.logCommit(txn.getXid()));
+                } catch (RuntimeException e) {
+                    fail(txn, e);
+                    throw e;
+                }
+            }
+            // The commit log first: a CSN snapshot counts the transaction
+            // as finished once its CSN is drawn, and visibility then asks
+            // the commit log, which must already say committed
+            commitLog.setCommitted(txn.getXid());
+            if (csnLog != null) {
+                csnLog.commit(txn.getXid());
+            }
+        }
+        endTransaction(txn);
+    }
+
+    /**
+     * Records the commit of a transaction replayed from the log. Replayed
+     * commits get their CSNs in log order, before any new transaction.
+     */
+    public void redoCommit(long xid) {
+        procArray.advanceNextXid(xid);
+        commitLog.setCommitted(xid);
+        if (csnLog != null) {
+            csnLog.commit(xid);
+        }
+    }
+
+    /**
+     * Records the abort of a transaction replayed from the log, including
+     * one that was still running when the log ended.
+     */
+    public void redoAbort(long xid) {
+        procArray.advanceNextXid(xid);
+        commitLog.setAborted(xid);
     }
 
     public void rollback(Transaction txn) {
-        transactionStatuses.put(txn.getXid(), TransactionStatus.ABORTED);
-        activeTransactions.remove(txn.getXid());
+        if (!txn.hasXid()) {
+            endTransaction(txn);
+            return;
+        }
+        try {
+            if (activeTransactions.containsKey(txn.getXid())) {
+                for (Consumer<Transaction> callback : abortCallbacks) {
+                    callback.accept(txn);
+                }
+            }
+        } finally {
+            // Whatever the undo missed is skipped by readers and removed by
+            // vacuum once the abort is recorded. A lost abort record reads
+            // as a crash, which aborts too, so it is not flushed.
+            if (wal != null) {
+                wal.logAbort(txn.getXid());
+            }
+            commitLog.setAborted(txn.getXid());
+            endTransaction(txn);
+        }
+    }
+
+    /**
+     * Shuts the manager down after a commit record could not be flushed,
+     * like the PANIC PostgreSQL raises when XLogFlush fails. The record may
+     * or may not have reached the disk, so the transaction is neither
+     * committed nor aborted here and recovery decides its outcome from the
+     * log. It still leaves the proc array and releases its locks, so no
+     * waiter blocks on it forever.
+     */
+    private void fail(Transaction txn, RuntimeException cause) {
+        failure = cause;
+        endTransaction(txn);
+    }
+
+    private void checkNotFailed() {
+        RuntimeException cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("Transaction manager shut down after a failed commit flush", cause);
+        }
+    }
+
+    private void endTransaction(Transaction txn) {
+        if (txn.markEnded()) {
+            if (txn.hasXid()) {
+                activeTransactions.remove(txn.getXid());
+            }
+            procArray.remove(txn.getProcNumber());
+            lockManager.releaseAll(txn);
+            predicateLockManager.release(txn);
+        }
+    }
+
+    /**
+     * Blocks the waiter until the transaction has committed or aborted, like
+     * PostgreSQL's XactLockTableWait. Returns at once if it already ended.
+     *
+     * @throws DeadlockException if the wait closes a cycle and the waiter
+     *         was chosen as victim
+     */
+    public void waitForTransaction(Transaction waiter, long xid) {
+        Transaction txn = activeTransactions.get(xid);
+        if (txn != null) {
+            lockManager.waitForTransaction(waiter, txn);
+        }
+    }
+
+    public LockManager getLockManager() {
+        return lockManager;
+    }
+
+    public PredicateLockManager getPredicateLockManager() {
+        return predicateLockManager;
+    }
+
+    /**
+     * Returns the log that storage writes to, or null without one.
+     */
+    public WriteAheadLog getWriteAheadLog() {
+        return wal;
+    }
+
+    /**
+     * Returns the group commit stage, or null without a log.
+     */
+    public GroupCommit getGroupCommit() {
+        return groupCommit;
     }
 
     public boolean isCommitted(long xid) {
-        return transactionStatuses.get(xid) == TransactionStatus.COMMITTED;
+        return commitLog.isCommitted(xid);
     }
 
     public boolean isActive(long xid) {
-        return transactionStatuses.get(xid) == TransactionStatus.ACTIVE;
+        return xid >= commitLog.getFrozenXid() && xid < procArray.getNextXid() &&
+               commitLog.getStatus(xid) == CommitLog.IN_PROGRESS;
+    }
+
+    public boolean isAborted(long xid) {
+        return commitLog.isAborted(xid);
+    }
+
+    /**
+     * Returns the transaction ID the next transaction will get.
+     */
+    public long getNextXid() {
+        return procArray.getNextXid();
+    }
+
+    /**
+     * Returns the xid below which the commit log has been truncated.
+     */
+    public long getFrozenXid() {
+        return commitLog.getFrozenXid();
+    }
+
+    /**
+     * Truncates the commit log below the cutoff, capped at the oldest xmin.
+     * Transactions below the cutoff read as committed afterwards, so vacuum
+     * calls this only after removing every version of aborted transactions
+     * below it.
+     */
+    public void truncateCommitLog(long cutoffXid) {
+        long cutoff = Math.min(cutoffXid, getOldestXmin());
+        commitLog.truncate(cutoff);
+        if (csnLog != null) {
+            csnLog.truncate(cutoff);
+        }
+    }
+
+    public SnapshotMode getSnapshotMode() {
+        return snapshotMode;
+    }
+
+    /**
+     * Returns the oldest transaction ID that a running transaction may still
+     * see as in progress, similar to PostgreSQL's GetOldestXmin. A version
+     * deleted by a transaction that committed below this horizon is invisible
+     * to every snapshot and can be vacuumed.
+     */
+    public long getOldestXmin() {
+        return procArray.getOldestXmin();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,14 @@
+package com.easydb.storage.transaction;
+
+/**
+ * Identifies a transaction whether or not it has an xid, like PostgreSQL's
+ * VirtualTransactionId: the proc array slot it runs in and the slot's local
+ * transaction counter. Costs nothing shared to hand out.
+ */
+public record VirtualTransactionId(int procNumber, long localXid) {
+
+    @Override
+    public String toString() {
+        return procNumber + "/" + localXid;
+    }
+}
@@ -0,0 +1,57 @@
+package com.easydb.storage.transaction;
+
+import java.util.Arrays;
+
+/**
+ * Snapshot listing the running transactions, similar to PostgreSQL's SnapshotData.
+ * Every transaction below xmin had ended when the snapshot was taken, and
+ * every transaction from xmax on had not started. The ones in between that
+ * were still running are listed in xip, sorted so a check is a binary
+ * search.
+ */
+public final class XidSnapshot implements Snapshot {
+    private final long xmin;
+    private final long xmax;
+    private final long[] xip;  // Sorted xids in progress, all in [xmin, xmax)
+
+    public XidSnapshot(long xmin, long xmax, long[] xip) {
+        this.xmin = xmin;
+        this.xmax = xmax;
+        this.xip = xip;
+    }
+
+    /**
+     * Binary search of the running transactions, like XidInMVCCSnapshot.
+     */
+    @Override
+    public boolean isRunning(long xid) {
+        if (xid < xmin) {
+            return false;
+        }
+        if (xid >= xmax) {
+            return true;
+        }
+        return Arrays.binarySearch(xip, xid) >= 0;
+    }
+
+    @Override
+    public long getXmin() {
+        return xmin;
+    }
+
+    public long getXmax() {
+        return xmax;
+    }
+
+    /**
+     * Returns the number of transactions in progress at the snapshot.
+     */
+    public int getRunningCount() {
+        return xip.length;
+    }
+
+    @Override
+    public String toString() {
+        return "XidSnapshot{xmin=" + xmin + ", xmax=" + xmax + ", xip=" + Arrays.toString(xip) + '}';
+    }
+}
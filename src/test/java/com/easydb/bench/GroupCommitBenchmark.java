@@ -0,0 +1,165 @@
+package com.easydb.bench;
+
+import com.easydb.storage.Tuple;
+import com.easydb.storage.WriteAheadLog;
+import com.easydb.storage.metadata.IndexMetadata;
+import com.easydb.storage.metadata.TableMetadata;
+import com.easydb.storage.transaction.GroupCommit;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.SnapshotMode;
+import com.easydb.storage.transaction.TransactionManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Commit throughput against a log file that is forced on every flush, as
+ * the number of concurrent clients grows. Without group commit every
+ * commit would pay for its own force; with it, the commits per flush grow
+ * with the clients, and so does the throughput. Each client count is also
+ * run with a commit delay, which needs the default five siblings.
+ *
+ * Run with: bazel run //:group-commit-bench
+ */
+public class GroupCommitBenchmark {
+    private static final int[] CLIENTS = {1, 2, 4, 8, 16, 32, 64};
+    private static final long COMMIT_DELAY_MICROS = 100;
+    private static final long RUN_MILLIS = 2000;
+
+    /**
+     * Appends a fixed-size commit record per transaction and forces the file
+     * on flush.
+     */
+    private static class CommitRecordLog implements WriteAheadLog {
+        private static final int RECORD_SIZE = 16;
+
+        private final FileChannel channel;
+        private final AtomicLong insertLsn = new AtomicLong();
+
+        CommitRecordLog(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        @Override
+        public synchronized long logCommit(Long transactionId) {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            record.putLong(transactionId).putLong(System.nanoTime()).flip();
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return insertLsn.addAndGet(RECORD_SIZE);
+        }
+
+        @Override
+        public long flush() {
+            long end = insertLsn.get();
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return end;
+        }
+
+        void close() throws IOException {
+            channel.close();
+        }
+
+        @Override
+        public void logAbort(Long transactionId) {
+        }
+
+        @Override
+        public void logBegin(Long transactionId) {
+        }
+
+        @Override
+        public void logInsert(Long transactionId, String tableName, Tuple tuple) {
+        }
+
+        @Override
+        public void logUpdate(Long transactionId, String tableName, Tuple oldTuple, Tuple newTuple) {
+        }
+
+        @Override
+        public void logDelete(Long transactionId, String tableName, Tuple tuple) {
+        }
+
+        @Override
+        public void logCreateTable(TableMetadata metadata) {
+        }
+
+        @Override
+        public void logCreateIndex(IndexMetadata metadata) {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("group-commit-bench");
+        Path file = dir.resolve("commit.log");
+        try {
+            for (int clients : CLIENTS) {
+                String noDelay = run(file, clients, 0);
+                String delayed = run(file, clients, COMMIT_DELAY_MICROS);
+                System.out.printf("%3d clients: no delay %s | commit_delay=%dus %s%n",
+                    clients, noDelay, COMMIT_DELAY_MICROS, delayed);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static String run(Path file, int clients, long commitDelayMicros) throws Exception {
+        CommitRecordLog wal = new CommitRecordLog(file);
+        TransactionManager transactionManager = new TransactionManager(SnapshotMode.XID, wal);
+        GroupCommit groupCommit = transactionManager.getGroupCommit();
+        groupCommit.setCommitDelay(commitDelayMicros);
+
+        AtomicLong commits = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < deadline) {
+                    transactionManager.commit(transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED));
+                    commits.incrementAndGet();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        wal.close();
+
+        long flushes = Math.max(1, groupCommit.getFlushCount());
+        return String.format("%9.0f commits/s, %6.1f commits/flush",
+            commits.get() / seconds, (double) commits.get() / flushes);
+    }
+}
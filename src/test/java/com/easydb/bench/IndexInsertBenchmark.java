@@ -0,0 +1,58 @@
+package com.easydb.bench;
+
+import com.easydb.index.AsyncIndex;
+import com.easydb.index.HashIndex;
+
+/**
+ * Microbenchmark comparing per-insert latency of the synchronous index API
+ * with the CompletableFuture wrapper joined on every call, which is how
+ * storage used to maintain its indexes.
+ *
+ * Run with: bazel run //:index-bench
+ */
+public class IndexInsertBenchmark {
+    private static final int KEYS_PER_ROUND = 100_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        String[] keys = new String[KEYS_PER_ROUND];
+        for (int i = 0; i < KEYS_PER_ROUND; i++) {
+            keys[i] = String.format("%020d", i);
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runSync(keys);
+            runAsync(keys);
+        }
+
+        long syncNanos = 0;
+        long asyncNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            syncNanos += runSync(keys);
+            asyncNanos += runAsync(keys);
+        }
+
+        long operations = (long) KEYS_PER_ROUND * MEASURED_ROUNDS;
+        System.out.printf("sync insert:        %8.1f ns/op%n", (double) syncNanos / operations);
+        System.out.printf("async insert+join:  %8.1f ns/op%n", (double) asyncNanos / operations);
+    }
+
+    private static long runSync(String[] keys) {
+        HashIndex<String> index = new HashIndex<>(keys.length);
+        long start = System.nanoTime();
+        for (int i = 0; i < keys.length; i++) {
+            index.insert(keys[i], i);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runAsync(String[] keys) {
+        AsyncIndex<String> index = new AsyncIndex<>(new HashIndex<String>(keys.length));
+        long start = System.nanoTime();
+        for (int i = 0; i < keys.length; i++) {
+            index.insert(keys[i], i).join();
+        }
+        return System.nanoTime() - start;
+    }
+}
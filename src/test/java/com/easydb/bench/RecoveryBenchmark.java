@@ -0,0 +1,114 @@
+package com.easydb.bench;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.storage.FileWriteAheadLog;
+import com.easydb.storage.InMemoryStorage;
+import com.easydb.storage.RecoveryStats;
+import com.easydb.storage.TableOids;
+import com.easydb.storage.Tuple;
+import com.easydb.storage.TupleHeader;
+import com.easydb.storage.TupleId;
+import com.easydb.storage.WalRecovery;
+import com.easydb.storage.metadata.TableMetadata;
+import com.easydb.storage.transaction.SnapshotMode;
+import com.easydb.storage.transaction.TransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Recovery speed in records/s on a log of small transactions spread over a
+ * number of tables, as the redo threads grow. Each transaction inserts a
+ * row and updates an older one of the same table. The log is written once
+ * and replayed into fresh storage for each thread count.
+ *
+ * Run with: bazel run //:recovery-bench
+ */
+public class RecoveryBenchmark {
+    private static final int TABLES = 8;
+    private static final int TRANSACTIONS = 500_000;
+    private static final int[] REDO_THREADS = {1, 2, 4, 8};
+    private static final int WARMUP_RUNS = 1;
+    private static final int MEASURED_RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("recovery-bench");
+        try {
+            long records = writeLog(directory);
+            System.out.printf("log: %d records in %d segments%n",
+                records, FileWriteAheadLog.listSegments(directory).size());
+            for (int threads : REDO_THREADS) {
+                for (int i = 0; i < WARMUP_RUNS; i++) {
+                    recover(directory, threads);
+                }
+                double best = 0;
+                for (int i = 0; i < MEASURED_RUNS; i++) {
+                    best = Math.max(best, recover(directory, threads).getRecordsPerSecond());
+                }
+                System.out.printf("%2d redo threads: %10.0f records/s%n", threads, best);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    private static long writeLog(Path directory) {
+        FileWriteAheadLog wal = new FileWriteAheadLog(directory);
+        List<TableMetadata> tables = new ArrayList<>();
+        for (int t = 0; t < TABLES; t++) {
+            TableMetadata table = new TableMetadata("recovery_bench_" + t, List.of(
+                new Column("id", DataType.INTEGER),
+                new Column("name", DataType.STRING),
+                new Column("balance", DataType.LONG)));
+            wal.logCreateTable(table);
+            TableOids.assign(table.tableName());
+            tables.add(table);
+        }
+
+        long[] versions = new long[TRANSACTIONS];
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            long xid = i + 1;
+            TableMetadata table = tables.get(i % TABLES);
+            String name = table.tableName();
+            TupleHeader header = new TupleHeader(table, xid, 0);
+            wal.logBegin(xid);
+            wal.logInsert(xid, name, new Tuple(new TupleId(name, i, 0), List.of(i, "account-" + i, 100L), header, xid));
+            if (i >= TABLES) {
+                // The row inserted one round earlier in the same table
+                int row = i - TABLES;
+                Tuple old = new Tuple(new TupleId(name, row, versions[row]), List.of(), header, xid);
+                Tuple updated = new Tuple(new TupleId(name, row, ++versions[row]),
+                    List.of(row, "account-" + row, 100L + i), header, xid);
+                wal.logUpdate(xid, name, old, updated);
+            }
+            wal.logCommit(xid);
+        }
+        wal.close();
+        return wal.getRecordCount();
+    }
+
+    private static RecoveryStats recover(Path directory, int threads) throws IOException {
+        // A scratch directory keeps the new segment of each run out of the log
+        Path scratch = Files.createTempDirectory("recovery-bench-scratch");
+        FileWriteAheadLog wal = new FileWriteAheadLog(scratch, 1024 * 1024, 64 * 1024);
+        try {
+            TransactionManager transactionManager = new TransactionManager(SnapshotMode.XID, wal);
+            InMemoryStorage storage = new InMemoryStorage(transactionManager);
+            return new WalRecovery(storage, transactionManager, threads).recover(directory);
+        } finally {
+            wal.close();
+            Files.delete(scratch.resolve(FileWriteAheadLog.segmentFileName(0)));
+            Files.delete(scratch);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.easydb.bench;
+
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.SnapshotMode;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Microbenchmark of repeatable read transaction start while many other
+ * transactions stay open, comparing snapshots that list the running xids
+ * with CSN snapshots.
+ *
+ * Run with: bazel run //:snapshot-bench
+ */
+public class SnapshotBenchmark {
+    private static final int[] OPEN_TRANSACTIONS = {0, 100, 500, 1000};
+    private static final int TRANSACTIONS_PER_ROUND = 20_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        for (int open : OPEN_TRANSACTIONS) {
+            double xidNanos = measure(SnapshotMode.XID, open);
+            double csnNanos = measure(SnapshotMode.CSN, open);
+            System.out.printf("%5d open: xid %9.1f ns/begin, csn %9.1f ns/begin%n", open, xidNanos, csnNanos);
+        }
+    }
+
+    private static double measure(SnapshotMode mode, int open) {
+        TransactionManager transactionManager = new TransactionManager(mode);
+        List<Transaction> clients = new ArrayList<>();
+        for (int i = 0; i < open; i++) {
+            clients.add(transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED));
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(transactionManager);
+        }
+        long nanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            nanos += run(transactionManager);
+        }
+
+        clients.forEach(transactionManager::commit);
+        return (double) nanos / ((long) TRANSACTIONS_PER_ROUND * MEASURED_ROUNDS);
+    }
+
+    private static long run(TransactionManager transactionManager) {
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSACTIONS_PER_ROUND; i++) {
+            Transaction txn = transactionManager.beginTransaction(IsolationLevel.REPEATABLE_READ);
+            transactionManager.commit(txn);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,144 @@
+package com.easydb.bench;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.storage.FileWriteAheadLog;
+import com.easydb.storage.InMemoryStorage;
+import com.easydb.storage.TableOids;
+import com.easydb.storage.Tuple;
+import com.easydb.storage.TupleHeader;
+import com.easydb.storage.TupleId;
+import com.easydb.storage.TupleIdGenerator;
+import com.easydb.storage.metadata.TableMetadata;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.SnapshotMode;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of the file-backed log in MB/s and records/s. The first part
+ * appends insert records from a number of threads and flushes once at the
+ * end, which measures the insert path and segment writes. The second part
+ * runs small write transactions through storage, where every commit waits
+ * for its flush and group commit decides how many share one.
+ *
+ * Run with: bazel run //:wal-bench
+ */
+public class WalBenchmark {
+    private static final int[] APPEND_THREADS = {1, 2, 4, 8};
+    private static final int[] CLIENTS = {1, 8, 32};
+    private static final int ROWS_PER_TRANSACTION = 4;
+    private static final long RUN_MILLIS = 2000;
+
+    private static final TableMetadata TABLE = new TableMetadata("wal_bench", List.of(
+        new Column("id", DataType.INTEGER),
+        new Column("name", DataType.STRING),
+        new Column("balance", DataType.LONG)));
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : APPEND_THREADS) {
+            System.out.printf("append %2d threads:      %s%n", threads, append(threads));
+        }
+        for (int clients : CLIENTS) {
+            System.out.printf("transactions %2d clients: %s%n", clients, transactions(clients));
+        }
+    }
+
+    private static String append(int threads) throws Exception {
+        Path directory = Files.createTempDirectory("wal-bench");
+        try {
+            FileWriteAheadLog wal = new FileWriteAheadLog(directory);
+            // Only logged, so no storage assigns the table's OID
+            TableOids.assign("wal_bench");
+            Tuple tuple = new Tuple(new TupleId("wal_bench", 1, 0), List.of(1, "account-0000001", 100L),
+                new TupleHeader(TABLE, 1, 0), 1);
+            double seconds = runFor(threads, () -> wal.logInsert(1L, "wal_bench", tuple));
+            wal.flush();
+            String result = rates(wal, seconds);
+            wal.close();
+            return result;
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static String transactions(int clients) throws Exception {
+        Path directory = Files.createTempDirectory("wal-bench");
+        try {
+            FileWriteAheadLog wal = new FileWriteAheadLog(directory);
+            TransactionManager transactionManager = new TransactionManager(SnapshotMode.XID, wal);
+            InMemoryStorage storage = new InMemoryStorage(transactionManager);
+            storage.createTable(TABLE);
+
+            double seconds = runFor(clients, () -> {
+                Transaction txn = transactionManager.beginVirtualTransaction(IsolationLevel.READ_COMMITTED);
+                for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+                    TupleId id = TupleIdGenerator.nextId("wal_bench");
+                    storage.insertTuple(new Tuple(id, List.of(i, "account-" + id.rowId(), 100L),
+                        new TupleHeader(TABLE, txn.getXid(), 0), txn.getXid()), txn);
+                }
+                transactionManager.commit(txn);
+            });
+            long commits = wal.getRecordCount() / (ROWS_PER_TRANSACTION + 2);
+            String result = String.format("%s, %8.0f commits/s, %5.1f commits/flush", rates(wal, seconds),
+                commits / seconds, (double) commits / Math.max(1, transactionManager.getGroupCommit().getFlushCount()));
+            wal.close();
+            return result;
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * Runs the step in a loop on each thread until the run time is up and
+     * returns the elapsed seconds.
+     */
+    private static double runFor(int threads, Runnable step) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < deadline) {
+                    step.run();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (System.nanoTime() - begin) / 1e9;
+    }
+
+    private static String rates(FileWriteAheadLog wal, double seconds) {
+        return String.format("%8.1f MB/s, %10.0f records/s",
+            wal.getBytesLogged() / seconds / (1024 * 1024), wal.getRecordCount() / seconds);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
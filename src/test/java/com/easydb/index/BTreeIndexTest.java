@@ -0,0 +1,134 @@
+package com.easydb.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BTreeIndexTest {
+    private BTreeIndex<Integer> index;
+
+    @BeforeEach
+    void setUp() {
+        // Small order so a few hundred keys already need several levels
+        index = new BTreeIndex<>(4);
+    }
+
+    @Test
+    void testInsertSplitsNodes() {
+        for (int i = 0; i < 1000; i++) {
+            index.insert(i, i * 10L);
+        }
+
+        assertEquals(1000, index.size());
+        assertTrue(index.height() > 1);
+        for (int i = 0; i < 1000; i++) {
+            assertArrayEquals(new long[] {i * 10L}, index.search(i));
+        }
+        assertEquals(0, index.search(1000).length);
+    }
+
+    @Test
+    void testDuplicateKeysShareOnePostingList() {
+        index.insert(1, 30);
+        index.insert(1, 10);
+        index.insert(1, 20);
+        index.insert(1, 10);
+
+        assertEquals(1, index.size());
+        assertArrayEquals(new long[] {10, 20, 30}, index.search(1));
+
+        index.delete(1, 20);
+        assertArrayEquals(new long[] {10, 30}, index.search(1));
+        index.delete(1, 10);
+        index.delete(1, 30);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testRangeWalksLeafChain() {
+        for (int i = 999; i >= 0; i--) {
+            index.insert(i, i);
+        }
+
+        long[] rowIds = index.range(100, 199);
+        assertEquals(100, rowIds.length);
+        assertEquals(100, rowIds[0]);
+        assertEquals(199, rowIds[99]);
+    }
+
+    @Test
+    void testScanBounds() {
+        for (int i = 0; i < 100; i++) {
+            index.insert(i, i);
+        }
+
+        BTreeScan<Integer> scan = index.scan(10, false, 20, false);
+        int count = 0;
+        long[] rowIds;
+        while ((rowIds = scan.getNext()) != null) {
+            assertEquals(11 + count, rowIds[0]);
+            count++;
+        }
+        assertEquals(9, count);
+    }
+
+    @Test
+    void testDeleteMergesAndShrinks() {
+        for (int i = 0; i < 1000; i++) {
+            index.insert(i, i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            index.delete(i, i);
+        }
+
+        assertEquals(500, index.size());
+        assertEquals(0, index.search(0).length);
+        assertArrayEquals(new long[] {1}, index.search(1));
+        assertArrayEquals(new long[] {1, 3, 5}, index.range(0, 5));
+
+        for (int i = 1; i < 1000; i += 2) {
+            index.delete(i, i);
+        }
+        assertEquals(0, index.size());
+        assertEquals(1, index.height());
+        assertEquals(0, index.range(null, null).length);
+    }
+
+    @Test
+    void testMatchesSortedMapUnderRandomWorkload() {
+        TreeMap<Integer, TreeSet<Long>> expected = new TreeMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000);
+            long rowId = random.nextInt(4);
+            if (random.nextInt(3) == 0) {
+                index.delete(key, rowId);
+                TreeSet<Long> rowIds = expected.get(key);
+                if (rowIds != null && rowIds.remove(rowId) && rowIds.isEmpty()) {
+                    expected.remove(key);
+                }
+            } else {
+                index.insert(key, rowId);
+                expected.computeIfAbsent(key, k -> new TreeSet<>()).add(rowId);
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+        assertArrayEquals(flatten(expected), index.range(null, null));
+        assertArrayEquals(flatten(expected.subMap(500, true, 700, true)), index.range(500, 700));
+    }
+
+    private static long[] flatten(Map<Integer, TreeSet<Long>> postings) {
+        return postings.values().stream()
+            .flatMap(TreeSet::stream)
+            .mapToLong(Long::longValue)
+            .toArray();
+    }
+}
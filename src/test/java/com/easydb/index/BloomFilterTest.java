@@ -0,0 +1,46 @@
+package com.easydb.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void testNoFalseNegatives() {
+        BloomFilter<Integer> filter = new BloomFilter<>(96_000, 7);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(i * 31);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(i * 31));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRateNearTarget() {
+        // About 9.6 bits per item and 7 hashes target a 1% false positive rate
+        BloomFilter<Integer> filter = new BloomFilter<>(96_000, 7);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(-1 - i)) {
+                falsePositives++;
+            }
+        }
+        // Blocking costs a little accuracy over a classic filter
+        assertTrue(falsePositives < 3_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void testClear() {
+        BloomFilter<String> filter = new BloomFilter<>(1024, 3);
+        filter.add("a");
+        filter.clear();
+        assertFalse(filter.mightContain("a"));
+        assertEquals(0.0, filter.getFalsePositiveRate());
+    }
+}
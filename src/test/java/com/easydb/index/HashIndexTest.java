@@ -0,0 +1,97 @@
+package com.easydb.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashIndexTest {
+    private HashIndex<String> index;
+
+    @BeforeEach
+    void setUp() {
+        index = new HashIndex<>(1000);
+    }
+
+    @Test
+    void testNonUniqueKeyKeepsEveryRow() {
+        // Low-cardinality column: many rows per key
+        for (long rowId = 0; rowId < 1000; rowId++) {
+            index.insert(rowId % 3 == 0 ? "active" : "inactive", rowId);
+        }
+
+        assertEquals(2, index.size());
+        long[] active = index.search("active");
+        assertEquals(334, active.length);
+        for (int i = 0; i < active.length; i++) {
+            assertEquals(i * 3L, active[i]);
+        }
+        assertEquals(666, index.search("inactive").length);
+        assertEquals(0, index.search("deleted").length);
+    }
+
+    @Test
+    void testDeleteRemovesOneRow() {
+        index.insert("x", 1);
+        index.insert("x", 2);
+
+        index.delete("x", 1);
+        assertArrayEquals(new long[] {2}, index.search("x"));
+
+        index.delete("x", 2);
+        assertEquals(0, index.search("x").length);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testRangeCollectsPostings() {
+        for (long rowId = 0; rowId < 10; rowId++) {
+            index.insert("k" + rowId, rowId);
+            index.insert("k" + rowId, rowId + 100);
+        }
+
+        long[] rowIds = index.range("k2", "k4");
+        Arrays.sort(rowIds);
+        assertArrayEquals(new long[] {2, 3, 4, 102, 103, 104}, rowIds);
+    }
+
+    @Test
+    void testFilterIsRebuiltUnderDeleteChurn() {
+        // Rebuild synchronously on the writing thread
+        HashIndex<String> churned = new HashIndex<>(1000, Runnable::run);
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 1000; i++) {
+                churned.insert("r" + round + "-" + i, i);
+            }
+            if (round < 49) {
+                for (int i = 0; i < 1000; i++) {
+                    churned.delete("r" + round + "-" + i, i);
+                }
+            }
+        }
+
+        // 50,000 distinct keys went through a filter sized for 1,000
+        assertTrue(churned.getFalsePositiveRate() < 0.05, "rate: " + churned.getFalsePositiveRate());
+        for (int i = 0; i < 1000; i++) {
+            assertArrayEquals(new long[] {i}, churned.search("r49-" + i));
+            assertEquals(0, churned.search("r0-" + i).length);
+        }
+    }
+
+    @Test
+    void testSearchAfterRebuild() {
+        HashIndex<String> rebuilt = new HashIndex<>(10, Runnable::run);
+        for (int i = 0; i < 100; i++) {
+            rebuilt.insert("k" + i, i);
+        }
+        rebuilt.rebuildFilter();
+        rebuilt.insert("late", 7);
+
+        for (int i = 0; i < 100; i++) {
+            assertArrayEquals(new long[] {i}, rebuilt.search("k" + i));
+        }
+        assertArrayEquals(new long[] {7}, rebuilt.search("late"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.easydb.index;
+
+import com.easydb.core.DataType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexKeyEncoderTest {
+
+    private static IndexKeyEncoder encoder(DataType... types) {
+        int[] positions = new int[types.length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+        return new IndexKeyEncoder(List.of(types), positions);
+    }
+
+    private static IndexKey key(IndexKeyEncoder encoder, Object... values) {
+        return encoder.encode(Arrays.asList(values));
+    }
+
+    @Test
+    void testLongOrderIncludingNegatives() {
+        IndexKeyEncoder encoder = encoder(DataType.LONG);
+        long[] values = {Long.MIN_VALUE, -1000, -1, 0, 1, 1000, Long.MAX_VALUE};
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(key(encoder, values[i - 1]).compareTo(key(encoder, values[i])) < 0);
+        }
+        // Integer and Long values of the same number encode the same key
+        assertEquals(key(encoder, 42L), key(encoder, 42));
+    }
+
+    @Test
+    void testDoubleOrder() {
+        IndexKeyEncoder encoder = encoder(DataType.DOUBLE);
+        double[] values = {Double.NEGATIVE_INFINITY, -1e300, -1.5, -0.0, 0.0, 1e-300, 2.5, Double.POSITIVE_INFINITY};
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(key(encoder, values[i - 1]).compareTo(key(encoder, values[i])) < 0);
+        }
+    }
+
+    @Test
+    void testStringOrderAndEscaping() {
+        IndexKeyEncoder encoder = encoder(DataType.STRING);
+        String[] values = {"", "a", "a\0", "a\0b", "ab", "b", "é", "中"};
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(key(encoder, values[i - 1]).compareTo(key(encoder, values[i])) < 0, values[i]);
+        }
+    }
+
+    @Test
+    void testNullsSortLast() {
+        IndexKeyEncoder encoder = encoder(DataType.INTEGER, DataType.STRING);
+        assertTrue(key(encoder, Integer.MAX_VALUE, "x").compareTo(key(encoder, null, "a")) < 0);
+        assertTrue(key(encoder, 1, "zzz").compareTo(key(encoder, 1, null)) < 0);
+    }
+
+    @Test
+    void testCompositeKeysCompareColumnByColumn() {
+        IndexKeyEncoder encoder = encoder(DataType.STRING, DataType.INTEGER);
+        Random random = new Random(7);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rows.add(new Object[] {"s" + random.nextInt(20), random.nextInt(200) - 100});
+        }
+
+        for (Object[] a : rows) {
+            for (Object[] b : rows.subList(0, 50)) {
+                int expected = ((String) a[0]).compareTo((String) b[0]);
+                if (expected == 0) {
+                    expected = Integer.compare((Integer) a[1], (Integer) b[1]);
+                }
+                int actual = key(encoder, a).compareTo(key(encoder, b));
+                assertEquals(Integer.signum(expected), Integer.signum(actual));
+            }
+        }
+    }
+
+    @Test
+    void testPrefixEndCoversExtensions() {
+        IndexKeyEncoder encoder = encoder(DataType.STRING, DataType.INTEGER);
+        IndexKey prefix = key(encoder, "m");
+        IndexKey end = prefix.prefixEnd();
+
+        assertTrue(prefix.compareTo(key(encoder, "m", Integer.MIN_VALUE)) < 0);
+        assertTrue(key(encoder, "m", null).compareTo(end) < 0);
+        assertTrue(end.compareTo(key(encoder, "m\0", 0)) < 0);
+        assertTrue(end.compareTo(key(encoder, "n", 0)) < 0);
+    }
+
+    @Test
+    void testEncodeRowPicksKeyColumns() {
+        IndexKeyEncoder encoder = new IndexKeyEncoder(List.of(DataType.STRING, DataType.LONG), new int[] {2, 0});
+        assertEquals(key(encoder(DataType.STRING, DataType.LONG), "x", 5L),
+                     encoder.encodeRow(Arrays.asList(5L, true, "x")));
+    }
+}
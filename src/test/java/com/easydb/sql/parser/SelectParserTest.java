@@ -116,6 +116,19 @@ class SelectParserTest {
         assertEquals("u", tableAlias.getValue());
     }
 
+    @Test
+    void testSelectForUpdate() {
+        String sql = "SELECT * FROM accounts WHERE id = 1 FOR UPDATE;";
+        Lexer lexer = new Lexer(sql);
+        SelectParser parser = new SelectParser(lexer.tokenize());
+        ParseTree tree = parser.parse();
+
+        assertEquals(4, tree.getChildCount());
+        ParseTree lockingClause = tree.getChild(3);
+        assertEquals(ParseTreeType.LOCKING_CLAUSE, lockingClause.getType());
+        assertEquals("UPDATE", lockingClause.getValue());
+    }
+
     @Test
     void testInvalidSelect() {
         String sql = "SELECT FROM users;"; // Missing columns
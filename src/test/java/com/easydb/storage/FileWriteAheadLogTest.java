@@ -0,0 +1,163 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.storage.metadata.TableMetadata;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.SnapshotMode;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileWriteAheadLogTest {
+    private static final int SEGMENT_SIZE = 4096;
+
+    private Path directory;
+    private FileWriteAheadLog wal;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("wal-test");
+        wal = new FileWriteAheadLog(directory, SEGMENT_SIZE, 1024);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        wal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private ByteBuffer readSegment(long number) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(directory.resolve(FileWriteAheadLog.segmentFileName(number))));
+    }
+
+    @Test
+    void testRecordsAreChecksummedAndDurableAfterFlush() throws IOException {
+        wal.logBegin(7L);
+        long commitLsn = wal.logCommit(7L);
+        assertEquals(2L * FileWriteAheadLog.HEADER_SIZE, commitLsn);
+        assertEquals(commitLsn, wal.flush());
+        assertEquals(commitLsn, wal.getFlushedLsn());
+
+        ByteBuffer segment = readSegment(0);
+        for (WalRecordType type : List.of(WalRecordType.BEGIN, WalRecordType.COMMIT)) {
+            int start = segment.position();
+            int length = segment.getInt();
+            int crc = segment.getInt();
+            assertEquals(FileWriteAheadLog.HEADER_SIZE, length);
+            assertEquals(type, WalRecordType.fromCode(segment.get()));
+            assertEquals(7L, segment.getLong());
+
+            CRC32C expected = new CRC32C();
+            expected.update(segment.array(), start + 8, length - 8);
+            assertEquals((int) expected.getValue(), crc);
+        }
+        // Nothing after the last record
+        assertEquals(0, segment.getInt());
+    }
+
+    @Test
+    void testRecordsDoNotCrossSegments() throws IOException {
+        TableMetadata table = new TableMetadata("wal_test", List.of(new Column("name", DataType.STRING)));
+        TableOids.assign("wal_test");
+        Tuple tuple = new Tuple(new TupleId("wal_test", 1, 0), List.of("x".repeat(1000)),
+            new TupleHeader(table, 1, 0), 1);
+        wal.logInsert(1L, "wal_test", tuple);
+        int length = (int) wal.getInsertLsn();
+        for (int i = 1; i < 5; i++) {
+            wal.logInsert(1L, "wal_test", tuple);
+        }
+
+        // Three fit in the first segment, the rest start the second
+        int perSegment = SEGMENT_SIZE / length;
+        assertEquals(3, perSegment);
+        assertEquals(SEGMENT_SIZE + 2L * length, wal.getInsertLsn());
+        assertEquals(5, wal.getRecordCount());
+        assertEquals(5L * length, wal.getBytesLogged());
+        wal.flush();
+
+        // Preallocated to full size, with a zero tail
+        assertEquals(List.of(0L, 1L), FileWriteAheadLog.listSegments(directory));
+        ByteBuffer first = readSegment(0);
+        assertEquals(SEGMENT_SIZE, first.capacity());
+        assertEquals(length, first.getInt((perSegment - 1) * length));
+        assertEquals(0, first.getInt(perSegment * length));
+        assertEquals(length, readSegment(1).getInt(0));
+    }
+
+    @Test
+    void testInterruptedFlushIsNotDurable() throws IOException {
+        long firstLsn = wal.logCommit(1L);
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(UncheckedIOException.class, wal::flush);
+        } finally {
+            Thread.interrupted();
+        }
+        assertTrue(wal.getFlushedLsn() < firstLsn);
+
+        // The segment was reopened, and the next flush covers both records
+        long secondLsn = wal.logCommit(2L);
+        assertEquals(secondLsn, wal.flush());
+        assertEquals(secondLsn, wal.getFlushedLsn());
+        ByteBuffer segment = readSegment(0);
+        for (long xid = 1; xid <= 2; xid++) {
+            assertEquals(FileWriteAheadLog.HEADER_SIZE, segment.getInt());
+            segment.getInt();
+            assertEquals(WalRecordType.COMMIT, WalRecordType.fromCode(segment.get()));
+            assertEquals(xid, segment.getLong());
+        }
+    }
+
+    @Test
+    void testReopenStartsNewSegment() {
+        wal.logCommit(1L);
+        wal.close();
+
+        wal = new FileWriteAheadLog(directory, SEGMENT_SIZE, 1024);
+        assertEquals(SEGMENT_SIZE, wal.getInsertLsn());
+        assertEquals(List.of(0L, 1L), FileWriteAheadLog.listSegments(directory));
+    }
+
+    @Test
+    void testStorageLogsWritesOfTransactionsWithXid() {
+        TransactionManager transactionManager = new TransactionManager(SnapshotMode.XID, wal);
+        InMemoryStorage storage = new InMemoryStorage(transactionManager);
+        TableMetadata table = new TableMetadata("wal_test", List.of(new Column("id", DataType.INTEGER)));
+        storage.createTable(table);
+
+        Transaction reader = transactionManager.beginVirtualTransaction(IsolationLevel.READ_COMMITTED);
+        storage.scanTuples("wal_test", null, reader);
+        transactionManager.commit(reader);
+        // Only the table creation
+        assertEquals(1, wal.getRecordCount());
+
+        // Begin, insert, update, delete and commit
+        Transaction writer = transactionManager.beginVirtualTransaction(IsolationLevel.READ_COMMITTED);
+        TupleId id = TupleIdGenerator.nextId("wal_test");
+        storage.insertTuple(new Tuple(id, List.of(1), new TupleHeader(table, 0, 0), 0), writer);
+        storage.updateTuple(id, List.of(2), writer);
+        storage.deleteTuple(id.nextVersion(), writer);
+        transactionManager.commit(writer);
+        assertEquals(6, wal.getRecordCount());
+        assertEquals(wal.getInsertLsn(), wal.getFlushedLsn());
+    }
+}
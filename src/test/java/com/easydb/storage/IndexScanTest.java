@@ -0,0 +1,147 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.index.BTreeIndex;
+import com.easydb.index.HashIndex;
+import com.easydb.index.IndexType;
+import com.easydb.storage.metadata.IndexMetadata;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexScanTest {
+    private StorageFixture fixture;
+    private InMemoryStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new StorageFixture("orders",
+            new Column("id", DataType.INTEGER),
+            new Column("customer", DataType.STRING));
+        storage = fixture.storage;
+        storage.createIndex(new IndexMetadata("orders_id", "orders", List.of("id"), false, IndexType.BTREE));
+        storage.createIndex(new IndexMetadata("orders_customer_id", "orders", List.of("customer", "id"), false,
+            IndexType.BTREE));
+    }
+
+    private List<Integer> scanInIndexOrder(String indexName, IndexKeyRange range) {
+        return storage.scanIndex(indexName, range, fixture.begin()).stream()
+            .map(tuple -> (Integer) tuple.getValue(0))
+            .collect(Collectors.toList());
+    }
+
+    private List<Integer> scan(String indexName, IndexKeyRange range, Transaction txn) {
+        return storage.scanIndex(indexName, range, txn).stream()
+            .map(tuple -> (Integer) tuple.getValue(0))
+            .sorted()
+            .collect(Collectors.toList());
+    }
+
+    private List<Integer> scan(String indexName, IndexKeyRange range) {
+        return scan(indexName, range, fixture.begin());
+    }
+
+    @Test
+    void testExclusiveBoundsAreRechecked() {
+        for (int id = 1; id <= 5; id++) {
+            fixture.insertCommitted(id, "alice");
+        }
+
+        // The lookup scans inclusive bounds and leaves exclusive ones to the scan
+        assertEquals(3, storage.lookupIndex("orders_id", IndexKeyRange.between(List.of(2), false, List.of(4), false)).size());
+        assertEquals(List.of(3), scan("orders_id", IndexKeyRange.between(List.of(2), false, List.of(4), false)));
+        assertEquals(List.of(2, 3), scan("orders_id", IndexKeyRange.between(List.of(2), true, List.of(4), false)));
+        assertEquals(List.of(3, 4), scan("orders_id", IndexKeyRange.between(List.of(2), false, List.of(4), true)));
+        assertTrue(scan("orders_id", IndexKeyRange.between(List.of(3), false, List.of(3), false)).isEmpty());
+    }
+
+    @Test
+    void testOpenEndedRanges() {
+        for (int id = 1; id <= 5; id++) {
+            fixture.insertCommitted(id, "alice");
+        }
+
+        assertEquals(List.of(1, 2), scan("orders_id", IndexKeyRange.between(null, true, List.of(3), false)));
+        assertEquals(List.of(4, 5), scan("orders_id", IndexKeyRange.between(List.of(3), false, null, true)));
+        assertEquals(List.of(3, 4, 5), scan("orders_id", IndexKeyRange.between(List.of(3), true, null, true)));
+        assertEquals(List.of(1, 2, 3, 4, 5), scan("orders_id", IndexKeyRange.all()));
+    }
+
+    @Test
+    void testCompositePrefixAndRange() {
+        for (int id = 1; id <= 4; id++) {
+            fixture.insertCommitted(id, "alice");
+            fixture.insertCommitted(id + 10, "bob");
+        }
+        fixture.insertCommitted(20, "carol");
+
+        // Equality on the leading column only
+        assertEquals(List.of(11, 12, 13, 14), scan("orders_customer_id", IndexKeyRange.equalTo(List.of("bob"))));
+        // Equality on the leading column and a range on the next
+        assertEquals(List.of(2, 3), scan("orders_customer_id",
+            IndexKeyRange.between(List.of("alice", 1), false, List.of("alice", 4), false)));
+        assertEquals(List.of(3, 4), scan("orders_customer_id",
+            IndexKeyRange.between(List.of("alice", 3), true, List.of("alice"), true)));
+        // A prefix upper bound covers every key that extends it
+        assertEquals(List.of(1, 2, 3, 4, 11, 12, 13, 14), scan("orders_customer_id",
+            IndexKeyRange.between(null, true, List.of("bob"), true)));
+        assertEquals(List.of(1, 2, 3, 4), scan("orders_customer_id",
+            IndexKeyRange.between(null, true, List.of("bob"), false)));
+    }
+
+    @Test
+    void testUpdatedKeyIsRechecked() {
+        TupleId row = fixture.insertCommitted(1, "alice");
+        Transaction before = fixture.begin(IsolationLevel.REPEATABLE_READ);
+        scan("orders_customer_id", IndexKeyRange.all(), before);
+
+        Transaction updater = fixture.begin();
+        storage.updateTuple(row, List.of(1, "bob"), updater);
+        fixture.transactionManager.commit(updater);
+
+        // Both versions are indexed, and each reader only finds the row
+        // under the key of the version it sees
+        IndexKeyRange alice = IndexKeyRange.equalTo(List.of("alice", 1));
+        IndexKeyRange bob = IndexKeyRange.equalTo(List.of("bob", 1));
+        assertEquals(1, storage.lookupIndex("orders_customer_id", alice).size());
+        assertTrue(scan("orders_customer_id", alice).isEmpty());
+        assertEquals(List.of(1), scan("orders_customer_id", bob));
+        assertEquals(List.of(1), scan("orders_customer_id", alice, before));
+        assertTrue(scan("orders_customer_id", bob, before).isEmpty());
+    }
+
+    @Test
+    void testBTreeRangesReturnKeyOrder() {
+        // Row IDs follow insertion order, not key order
+        for (int id : List.of(5, -3, 12, 0, 7, -8, 2)) {
+            fixture.insertCommitted(id, "alice");
+        }
+
+        assertInstanceOf(BTreeIndex.class, storage.getIndex("orders_id"));
+        assertEquals(List.of(-3, 0, 2, 5), scanInIndexOrder("orders_id",
+            IndexKeyRange.between(List.of(-3), true, List.of(7), false)));
+        assertEquals(List.of(-8, -3, 0, 2, 5, 7, 12), scanInIndexOrder("orders_id", IndexKeyRange.all()));
+    }
+
+    @Test
+    void testIndexTypePicksAccessMethod() {
+        storage.createIndex(new IndexMetadata("orders_customer", "orders", List.of("customer"), false, IndexType.HASH));
+        assertInstanceOf(HashIndex.class, storage.getIndex("orders_customer"));
+        assertInstanceOf(BTreeIndex.class, storage.getIndex("orders_customer_id"));
+
+        fixture.insertCommitted(1, "alice");
+        fixture.insertCommitted(2, "bob");
+        fixture.insertCommitted(3, "alice");
+        assertEquals(List.of(1, 3), scan("orders_customer", IndexKeyRange.equalTo(List.of("alice"))));
+        // Without key order a range visits every entry, and the recheck
+        // keeps the matching ones
+        assertEquals(List.of(2), scan("orders_customer", IndexKeyRange.between(List.of("b"), true, null, true)));
+    }
+}
@@ -0,0 +1,97 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.index.IndexType;
+import com.easydb.storage.metadata.IndexMetadata;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollbackTest {
+    private StorageFixture fixture;
+    private TransactionManager transactionManager;
+    private InMemoryStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new StorageFixture("accounts",
+            new Column("id", DataType.INTEGER),
+            new Column("owner", DataType.STRING));
+        transactionManager = fixture.transactionManager;
+        storage = fixture.storage;
+        storage.createIndex(new IndexMetadata("accounts_owner", "accounts", List.of("owner"), false, IndexType.BTREE));
+    }
+
+    private List<TupleId> lookup(String owner) {
+        return storage.lookupIndex("accounts_owner", IndexKeyRange.equalTo(List.of(owner)));
+    }
+
+    private boolean hasDeadVersions() {
+        return !storage.tablesNeedingVacuum(0, 0).isEmpty();
+    }
+
+    @Test
+    void testRolledBackInsertIsRemoved() {
+        Transaction txn = fixture.begin();
+        TupleId id = fixture.insert(txn, 1, "never");
+        assertEquals(List.of(id), lookup("never"));
+
+        transactionManager.rollback(txn);
+        assertNull(storage.getTuple(id, fixture.begin()).orElse(null));
+        assertTrue(lookup("never").isEmpty());
+        assertEquals(0, storage.scanTuples("accounts", null, fixture.begin()).size());
+    }
+
+    @Test
+    void testRolledBackUpdatesRestoreChainHead() {
+        TupleId id = fixture.insertCommitted(1, "committed");
+        Transaction txn = fixture.begin();
+        storage.updateTuple(id, List.of(1, "first"), txn);
+        storage.updateTuple(id.nextVersion(), List.of(1, "second"), txn);
+        transactionManager.rollback(txn);
+
+        Tuple head = storage.getTuple(id, fixture.begin()).orElseThrow();
+        assertEquals(id, head.id());
+        assertEquals(0L, head.getXmax());
+        assertEquals("committed", head.getValue(1));
+        assertEquals(List.of(id), lookup("committed"));
+        assertTrue(lookup("first").isEmpty());
+        assertTrue(lookup("second").isEmpty());
+        assertFalse(hasDeadVersions());
+
+        // The restored version takes the next update as usual
+        Transaction updater = fixture.begin();
+        storage.updateTuple(id, List.of(1, "updated"), updater);
+        transactionManager.commit(updater);
+        assertEquals("updated", storage.getTuple(id, fixture.begin()).orElseThrow().getValue(1));
+    }
+
+    @Test
+    void testRolledBackDeleteRestoresRow() {
+        TupleId id = fixture.insertCommitted(1, "kept");
+        Transaction txn = fixture.begin();
+        storage.deleteTuple(id, txn);
+        transactionManager.rollback(txn);
+
+        assertEquals(0L, storage.getTuple(id, fixture.begin()).orElseThrow().getXmax());
+        assertEquals(List.of(id), lookup("kept"));
+        assertFalse(hasDeadVersions());
+    }
+
+    @Test
+    void testUpdateBackToCommittedKeyKeepsIndexEntry() {
+        TupleId id = fixture.insertCommitted(1, "same");
+        Transaction txn = fixture.begin();
+        storage.updateTuple(id, List.of(2, "same"), txn);
+        transactionManager.rollback(txn);
+
+        assertEquals(List.of(id), lookup("same"));
+        assertEquals(1, storage.getTuple(id, fixture.begin()).orElseThrow().getValue(0));
+    }
+}
@@ -0,0 +1,141 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.SerializationException;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerializableTest {
+    private StorageFixture fixture;
+    private TransactionManager transactionManager;
+    private InMemoryStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new StorageFixture("doctors",
+            new Column("id", DataType.INTEGER),
+            new Column("on_call", DataType.BOOLEAN));
+        transactionManager = fixture.transactionManager;
+        storage = fixture.storage;
+    }
+
+    private Transaction begin(IsolationLevel level) {
+        // Like SQL statements: the xid comes with the first write
+        return transactionManager.beginVirtualTransaction(level);
+    }
+
+    private long onCall(Transaction txn) {
+        return storage.scanTuples("doctors", null, txn).stream()
+            .filter(tuple -> (Boolean) tuple.getValue(1))
+            .count();
+    }
+
+    @Test
+    void testWriteSkewIsRejected() {
+        TupleId alice = fixture.insertCommitted(1, true);
+        TupleId bob = fixture.insertCommitted(2, true);
+        Transaction first = begin(IsolationLevel.SERIALIZABLE);
+        Transaction second = begin(IsolationLevel.SERIALIZABLE);
+
+        // Each sees two doctors on call and takes one off
+        assertEquals(2, onCall(first));
+        assertEquals(2, onCall(second));
+        storage.updateTuple(alice, List.of(1, false), first);
+        storage.updateTuple(bob, List.of(2, false), second);
+
+        transactionManager.commit(first);
+        assertThrows(SerializationException.class, () -> transactionManager.commit(second));
+        assertEquals(1, onCall(begin(IsolationLevel.READ_COMMITTED)));
+    }
+
+    @Test
+    void testRepeatableReadAllowsWriteSkew() {
+        TupleId alice = fixture.insertCommitted(1, true);
+        TupleId bob = fixture.insertCommitted(2, true);
+        Transaction first = begin(IsolationLevel.REPEATABLE_READ);
+        Transaction second = begin(IsolationLevel.REPEATABLE_READ);
+
+        assertEquals(2, onCall(first));
+        assertEquals(2, onCall(second));
+        storage.updateTuple(alice, List.of(1, false), first);
+        storage.updateTuple(bob, List.of(2, false), second);
+        transactionManager.commit(first);
+        transactionManager.commit(second);
+
+        assertEquals(0, onCall(begin(IsolationLevel.READ_COMMITTED)));
+    }
+
+    @Test
+    void testPhantomInsertsAreRejected() {
+        Transaction first = begin(IsolationLevel.SERIALIZABLE);
+        Transaction second = begin(IsolationLevel.SERIALIZABLE);
+
+        // Both check that nobody is on call yet, then go on call
+        assertEquals(0, onCall(first));
+        assertEquals(0, onCall(second));
+        fixture.insert(first, 1, true);
+        fixture.insert(second, 2, true);
+
+        transactionManager.commit(first);
+        assertThrows(SerializationException.class, () -> transactionManager.commit(second));
+        assertEquals(1, onCall(begin(IsolationLevel.READ_COMMITTED)));
+    }
+
+    @Test
+    void testReadOfConcurrentUpdateIsTracked() {
+        TupleId alice = fixture.insertCommitted(1, true);
+        TupleId bob = fixture.insertCommitted(2, true);
+        Transaction first = begin(IsolationLevel.SERIALIZABLE);
+        Transaction second = begin(IsolationLevel.SERIALIZABLE);
+
+        // The second one updates Alice first, so the first one only meets
+        // the update when it reads her row
+        assertTrue((Boolean) storage.getTuple(bob, second).orElseThrow().getValue(1));
+        storage.updateTuple(alice, List.of(1, false), second);
+        assertTrue((Boolean) storage.getTuple(alice, first).orElseThrow().getValue(1));
+        storage.updateTuple(bob, List.of(2, false), first);
+
+        transactionManager.commit(second);
+        assertThrows(SerializationException.class, () -> transactionManager.commit(first));
+    }
+
+    @Test
+    void testDisjointTransactionsCommit() {
+        TupleId alice = fixture.insertCommitted(1, true);
+        TupleId bob = fixture.insertCommitted(2, true);
+        Transaction first = begin(IsolationLevel.SERIALIZABLE);
+        Transaction second = begin(IsolationLevel.SERIALIZABLE);
+
+        storage.getTuple(alice, first);
+        storage.updateTuple(alice, List.of(1, false), first);
+        storage.getTuple(bob, second);
+        storage.updateTuple(bob, List.of(2, false), second);
+        transactionManager.commit(first);
+        transactionManager.commit(second);
+
+        assertEquals(0, onCall(begin(IsolationLevel.READ_COMMITTED)));
+    }
+
+    @Test
+    void testLocksAreReleasedOnceNoOverlapRemains() {
+        fixture.insertCommitted(1, true);
+        Transaction reader = begin(IsolationLevel.SERIALIZABLE);
+        Transaction concurrent = begin(IsolationLevel.SERIALIZABLE);
+        onCall(reader);
+        onCall(concurrent);
+        transactionManager.commit(reader);
+
+        // The concurrent transaction may still write what the reader read
+        assertTrue(transactionManager.getPredicateLockManager().getLockCount() > 0);
+        transactionManager.commit(concurrent);
+        assertEquals(0, transactionManager.getPredicateLockManager().getLockCount());
+    }
+}
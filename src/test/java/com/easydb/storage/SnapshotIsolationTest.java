@@ -0,0 +1,137 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.SnapshotMode;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotIsolationTest {
+    private StorageFixture fixture;
+    private TransactionManager transactionManager;
+    private InMemoryStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        setUp(SnapshotMode.XID);
+    }
+
+    private void setUp(SnapshotMode mode) {
+        fixture = new StorageFixture(new TransactionManager(mode), "items",
+            new Column("id", DataType.INTEGER),
+            new Column("name", DataType.STRING));
+        transactionManager = fixture.transactionManager;
+        storage = fixture.storage;
+    }
+
+    @Test
+    void testRepeatableReadIgnoresLaterCommits() {
+        Transaction writer = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        TupleId id = fixture.insert(writer, 1, "old");
+        transactionManager.commit(writer);
+
+        Transaction snapshot = transactionManager.beginTransaction(IsolationLevel.REPEATABLE_READ);
+        Transaction readCommitted = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+
+        Transaction updater = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        storage.updateTuple(id, List.of(1, "new"), updater);
+        fixture.insert(updater, 2, "added");
+        transactionManager.commit(updater);
+
+        assertEquals("old", storage.getTuple(id, snapshot).orElseThrow().getValue(1));
+        assertEquals(1, storage.scanTuples("items", null, snapshot).size());
+        assertEquals("new", storage.getTuple(id, readCommitted).orElseThrow().getValue(1));
+        assertEquals(2, storage.scanTuples("items", null, readCommitted).size());
+    }
+
+    @Test
+    void testRepeatableReadIgnoresTransactionsRunningAtStart() {
+        Transaction running = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        Transaction snapshot = transactionManager.beginTransaction(IsolationLevel.REPEATABLE_READ);
+        fixture.insert(running, 1, "late");
+        transactionManager.commit(running);
+
+        assertTrue(storage.scanTuples("items", null, snapshot).isEmpty());
+        assertTrue(snapshot.wasActiveAtSnapshot(running.getXid()));
+    }
+
+    @Test
+    void testOwnWritesAreVisible() {
+        Transaction snapshot = transactionManager.beginTransaction(IsolationLevel.REPEATABLE_READ);
+        TupleId id = fixture.insert(snapshot, 1, "mine");
+        assertEquals("mine", storage.getTuple(id, snapshot).orElseThrow().getValue(1));
+    }
+
+    @Test
+    void testReadOnlyTransactionGetsNoXid() {
+        Transaction writer = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        fixture.insert(writer, 1, "existing");
+        transactionManager.commit(writer);
+
+        long nextXid = transactionManager.getNextXid();
+        Transaction reader = transactionManager.beginVirtualTransaction(IsolationLevel.REPEATABLE_READ);
+        assertEquals(1, storage.scanTuples("items", null, reader).size());
+        transactionManager.commit(reader);
+
+        assertFalse(reader.hasXid());
+        assertEquals(nextXid, transactionManager.getNextXid());
+    }
+
+    @Test
+    void testVirtualTransactionGetsXidOnFirstWrite() {
+        Transaction txn = transactionManager.beginVirtualTransaction(IsolationLevel.REPEATABLE_READ);
+        Transaction later = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        TupleId id = fixture.insert(txn, 1, "mine");
+        assertTrue(txn.hasXid());
+        assertTrue(txn.getXid() > later.getXid());
+
+        // Its own xid is newer than its snapshot, but its writes are visible
+        assertEquals("mine", storage.getTuple(id, txn).orElseThrow().getValue(1));
+        fixture.insert(later, 2, "later");
+        transactionManager.commit(later);
+        assertEquals(1, storage.scanTuples("items", null, txn).size());
+        transactionManager.commit(txn);
+
+        Transaction reader = transactionManager.beginVirtualTransaction(IsolationLevel.READ_COMMITTED);
+        assertEquals(2, storage.scanTuples("items", null, reader).size());
+    }
+
+    @Test
+    void testCsnSnapshotsMatchXidSnapshots() {
+        setUp(SnapshotMode.CSN);
+        testRepeatableReadIgnoresLaterCommits();
+        setUp(SnapshotMode.CSN);
+        testRepeatableReadIgnoresTransactionsRunningAtStart();
+        setUp(SnapshotMode.CSN);
+        testOwnWritesAreVisible();
+        setUp(SnapshotMode.CSN);
+        testVirtualTransactionGetsXidOnFirstWrite();
+    }
+
+    @Test
+    void testCsnSnapshotIgnoresAbortedTransactions() {
+        setUp(SnapshotMode.CSN);
+        Transaction writer = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        TupleId id = fixture.insert(writer, 1, "kept");
+        transactionManager.commit(writer);
+
+        Transaction deleter = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        storage.deleteTuple(id, deleter);
+        Transaction aborted = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        fixture.insert(aborted, 2, "aborted");
+        transactionManager.rollback(deleter);
+        transactionManager.rollback(aborted);
+
+        Transaction snapshot = transactionManager.beginTransaction(IsolationLevel.REPEATABLE_READ);
+        List<Tuple> rows = storage.scanTuples("items", null, snapshot);
+        assertEquals(1, rows.size());
+        assertEquals("kept", rows.get(0).getValue(1));
+    }
+}
@@ -0,0 +1,56 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.storage.metadata.TableMetadata;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+
+import java.util.List;
+
+/**
+ * Storage with one table, the setup the storage tests start from.
+ */
+class StorageFixture {
+    final TransactionManager transactionManager;
+    final InMemoryStorage storage;
+    final TableMetadata table;
+
+    StorageFixture(String tableName, Column... columns) {
+        this(new TransactionManager(), tableName, columns);
+    }
+
+    StorageFixture(TransactionManager transactionManager, String tableName, Column... columns) {
+        this.transactionManager = transactionManager;
+        this.storage = new InMemoryStorage(transactionManager);
+        this.table = new TableMetadata(tableName, List.of(columns));
+        storage.createTable(table);
+    }
+
+    Transaction begin(IsolationLevel level) {
+        return transactionManager.beginTransaction(level);
+    }
+
+    Transaction begin() {
+        return begin(IsolationLevel.READ_COMMITTED);
+    }
+
+    /**
+     * Inserts a row into the table as part of the transaction.
+     */
+    TupleId insert(Transaction txn, Object... values) {
+        TupleId tupleId = TupleIdGenerator.nextId(table.tableName());
+        storage.insertTuple(new Tuple(tupleId, List.of(values), new TupleHeader(table, txn.getXid(), 0), txn.getXid()), txn);
+        return tupleId;
+    }
+
+    /**
+     * Inserts a row in a read committed transaction of its own and commits it.
+     */
+    TupleId insertCommitted(Object... values) {
+        Transaction txn = begin();
+        TupleId tupleId = insert(txn, values);
+        transactionManager.commit(txn);
+        return tupleId;
+    }
+}
@@ -0,0 +1,71 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.storage.metadata.TableMetadata;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TupleHintBitsTest {
+    private TransactionManager transactionManager;
+    private TableMetadata table;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = new TransactionManager();
+        table = new TableMetadata("hints", List.of(new Column("id", DataType.INTEGER)));
+        // No storage creates the table, so assign its OID here
+        TableOids.assign("hints");
+    }
+
+    private Tuple tuple(long xmin) {
+        return new Tuple(TupleIdGenerator.nextId("hints"), List.of(1), new TupleHeader(table, xmin, 0), xmin);
+    }
+
+    @Test
+    void testXminHintsAreSetOnceFinal() {
+        Transaction creator = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        Tuple tuple = tuple(creator.getXid());
+
+        // In progress: nothing to cache yet
+        assertFalse(tuple.isXminCommitted(transactionManager));
+        assertFalse(tuple.hasHint(TupleHeader.XMIN_COMMITTED | TupleHeader.XMIN_ABORTED));
+
+        transactionManager.commit(creator);
+        assertTrue(tuple.isXminCommitted(transactionManager));
+        assertTrue(tuple.hasHint(TupleHeader.XMIN_COMMITTED));
+
+        Transaction aborted = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        Tuple abortedTuple = tuple(aborted.getXid());
+        transactionManager.rollback(aborted);
+        assertFalse(abortedTuple.isXminCommitted(transactionManager));
+        assertTrue(abortedTuple.hasHint(TupleHeader.XMIN_ABORTED));
+    }
+
+    @Test
+    void testXmaxHintFollowsXmax() {
+        Tuple tuple = tuple(0);
+        Transaction deleter = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        tuple.setXmax(deleter.getXid());
+        transactionManager.commit(deleter);
+
+        assertTrue(tuple.isXmaxCommitted(deleter.getXid(), transactionManager));
+        assertTrue(tuple.hasHint(TupleHeader.XMAX_COMMITTED));
+
+        // A new xmax invalidates the cached status
+        Transaction other = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        tuple.setXmax(other.getXid());
+        assertFalse(tuple.hasHint(TupleHeader.XMAX_COMMITTED));
+        assertFalse(tuple.isXmaxCommitted(other.getXid(), transactionManager));
+        // A stale xmax read is not answered from the hint
+        assertTrue(tuple.isXmaxCommitted(deleter.getXid(), transactionManager));
+        assertFalse(tuple.hasHint(TupleHeader.XMAX_COMMITTED));
+    }
+}
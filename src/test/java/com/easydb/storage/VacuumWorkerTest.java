@@ -0,0 +1,178 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.index.IndexType;
+import com.easydb.storage.metadata.IndexMetadata;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VacuumWorkerTest {
+    private StorageFixture fixture;
+    private TransactionManager transactionManager;
+    private InMemoryStorage storage;
+    private VacuumWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new StorageFixture("accounts",
+            new Column("id", DataType.INTEGER),
+            new Column("owner", DataType.STRING));
+        transactionManager = fixture.transactionManager;
+        storage = fixture.storage;
+        storage.createIndex(new IndexMetadata("accounts_owner", "accounts", List.of("owner"), false, IndexType.BTREE));
+        worker = new VacuumWorker(storage, 1000, 200, 0);
+    }
+
+    private void update(TupleId tupleId, int id, String owner) {
+        Transaction txn = fixture.begin();
+        Tuple visible = storage.getTuple(tupleId, txn).orElseThrow();
+        storage.updateTuple(visible.id(), List.of(id, owner), txn);
+        transactionManager.commit(txn);
+    }
+
+    private List<TupleId> lookup(String owner) {
+        return storage.lookupIndex("accounts_owner", IndexKeyRange.equalTo(List.of(owner)));
+    }
+
+    @Test
+    void testPrunesReplacedVersions() {
+        TupleId id = fixture.insertCommitted(1, "owner0");
+        for (int i = 1; i <= 4; i++) {
+            update(id, 1, "owner" + i);
+        }
+
+        VacuumStats stats = worker.vacuum("accounts");
+        assertEquals(4, stats.getRemovedVersions());
+        assertTrue(stats.getReclaimedBytes() > 0);
+        assertEquals(stats.getReclaimedBytes(), worker.getReclaimedBytes());
+
+        Transaction reader = fixture.begin();
+        assertEquals("owner4", storage.getTuple(id, reader).orElseThrow().getValue(1));
+        assertTrue(lookup("owner0").isEmpty());
+        assertEquals(List.of(id), lookup("owner4"));
+
+        assertEquals(0, worker.vacuum("accounts").getRemovedVersions());
+    }
+
+    @Test
+    void testRunningSnapshotHoldsBackHorizon() {
+        TupleId id = fixture.insertCommitted(1, "before");
+        Transaction snapshot = fixture.begin(IsolationLevel.REPEATABLE_READ);
+        update(id, 1, "after");
+
+        assertEquals(0, worker.vacuum("accounts").getRemovedVersions());
+        assertEquals(List.of(id), lookup("before"));
+
+        transactionManager.commit(snapshot);
+        assertEquals(1, worker.vacuum("accounts").getRemovedVersions());
+        assertTrue(lookup("before").isEmpty());
+    }
+
+    @Test
+    void testRemovesDeletedRowsAndAbortedInserts() {
+        TupleId deleted = fixture.insertCommitted(1, "gone");
+        Transaction delete = fixture.begin();
+        storage.deleteTuple(deleted, delete);
+        transactionManager.commit(delete);
+
+        Transaction aborted = fixture.begin();
+        fixture.insert(aborted, 2, "never");
+        transactionManager.rollback(aborted);
+
+        TupleId kept = fixture.insertCommitted(3, "kept");
+
+        // The rollback already removed the aborted insert
+        assertEquals(1, worker.vacuum("accounts").getRemovedVersions());
+        assertTrue(lookup("gone").isEmpty());
+        assertTrue(lookup("never").isEmpty());
+        assertEquals(List.of(kept), lookup("kept"));
+        assertEquals(1, storage.scanTuples("accounts", null, fixture.begin()).size());
+    }
+
+    @Test
+    void testAbortedUpdateIsUndone() {
+        TupleId id = fixture.insertCommitted(1, "committed");
+        Transaction aborted = fixture.begin();
+        storage.updateTuple(id, List.of(1, "aborted"), aborted);
+        transactionManager.rollback(aborted);
+
+        assertEquals(0, worker.vacuum("accounts").getRemovedVersions());
+        assertTrue(lookup("aborted").isEmpty());
+
+        // The committed version is live again and can be updated
+        update(id, 1, "updated");
+        Transaction reader = fixture.begin();
+        assertEquals("updated", storage.getTuple(id, reader).orElseThrow().getValue(1));
+    }
+
+    @Test
+    void testCostDelayThrottlesPass() {
+        VacuumWorker throttled = new VacuumWorker(storage, 1000, 1, 5);
+        for (int i = 0; i < 10; i++) {
+            fixture.insertCommitted(i, "owner" + i);
+        }
+
+        long start = System.nanoTime();
+        throttled.vacuum("accounts");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        // Every visited row reaches the cost limit of 1 and sleeps 5ms
+        assertTrue(elapsedMillis >= 50, "elapsed: " + elapsedMillis);
+    }
+
+    @Test
+    void testRunOnceVacuumsTablesPastThreshold() {
+        TupleId id = fixture.insertCommitted(1, "v0");
+        for (int i = 1; i <= 60; i++) {
+            update(id, 1, "v" + i);
+        }
+
+        worker.runOnce();
+        assertEquals(60, worker.getRemovedVersions());
+        assertTrue(storage.tablesNeedingVacuum(VacuumWorker.VACUUM_THRESHOLD, VacuumWorker.VACUUM_SCALE_FACTOR).isEmpty());
+    }
+
+    @Test
+    void testVacuumAllTruncatesCommitLog() {
+        TupleId id = fixture.insertCommitted(1, "committed");
+        Transaction aborted = fixture.begin();
+        storage.updateTuple(id, List.of(1, "aborted"), aborted);
+        transactionManager.rollback(aborted);
+        Transaction running = fixture.begin();
+
+        worker.vacuumAll();
+        // Everything below the running transaction ended and was cleaned up
+        assertEquals(running.getXid(), transactionManager.getFrozenXid());
+        assertTrue(transactionManager.isCommitted(aborted.getXid()));
+        assertTrue(lookup("aborted").isEmpty());
+        assertEquals("committed", storage.getTuple(id, running).orElseThrow().getValue(1));
+    }
+
+    @Test
+    void testFailedPassIsCounted() {
+        IllegalStateException failure = new IllegalStateException("vacuum failed");
+        InMemoryStorage failing = new InMemoryStorage(transactionManager) {
+            @Override
+            public List<String> tablesNeedingVacuum(long threshold, double scaleFactor) {
+                throw failure;
+            }
+        };
+        VacuumWorker failingWorker = new VacuumWorker(failing, 1000, 200, 0);
+
+        failingWorker.runOnce();
+        failingWorker.runOnce();
+        assertEquals(2, failingWorker.getFailedPasses());
+        assertSame(failure, failingWorker.getLastFailure());
+
+        worker.runOnce();
+        assertEquals(0, worker.getFailedPasses());
+        assertNull(worker.getLastFailure());
+    }
+}
@@ -0,0 +1,80 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionChainTest {
+    private CommitDuringRead transactionManager;
+    private StorageFixture fixture;
+    private InMemoryStorage storage;
+
+    /**
+     * Commits a transaction right after a reader found it uncommitted, the
+     * window between checking the head of a chain and the versions below.
+     */
+    private static class CommitDuringRead extends TransactionManager {
+        volatile Transaction pending;
+
+        @Override
+        public boolean isCommitted(long xid) {
+            boolean committed = super.isCommitted(xid);
+            Transaction txn = pending;
+            if (!committed && txn != null && txn.getXid() == xid) {
+                pending = null;
+                commit(txn);
+            }
+            return committed;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = new CommitDuringRead();
+        fixture = new StorageFixture(transactionManager, "chain",
+            new Column("id", DataType.INTEGER),
+            new Column("value", DataType.STRING));
+        storage = fixture.storage;
+    }
+
+    private String read(TupleId tupleId, Transaction txn) {
+        return (String) storage.getTuple(tupleId, txn).orElseThrow().getValue(1);
+    }
+
+    @Test
+    void testSnapshotsReadOlderVersions() {
+        TupleId row = fixture.insertCommitted(1, "v0");
+        Transaction old = fixture.begin(IsolationLevel.REPEATABLE_READ);
+        for (int i = 1; i <= 3; i++) {
+            Transaction updater = fixture.begin();
+            storage.updateTuple(row, List.of(1, "v" + i), updater);
+            transactionManager.commit(updater);
+        }
+
+        assertEquals("v0", read(row, old));
+        assertEquals("v3", read(row, fixture.begin()));
+        assertEquals(3, storage.getTuple(row, fixture.begin()).orElseThrow().id().version());
+    }
+
+    @Test
+    void testReadCommittedWalkSurvivesCommitOfSkippedHead() {
+        TupleId row = fixture.insertCommitted(1, "old");
+        Transaction updater = fixture.begin();
+        storage.updateTuple(row, List.of(1, "new"), updater);
+
+        // The reader skips the new head, then the old version reads as
+        // replaced by a committed update
+        transactionManager.pending = updater;
+        assertEquals("new", read(row, fixture.begin()));
+        assertNull(transactionManager.pending);
+        assertEquals(1, storage.scanTuples("chain", null, fixture.begin()).size());
+    }
+}
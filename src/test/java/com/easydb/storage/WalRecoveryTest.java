@@ -0,0 +1,174 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.index.IndexType;
+import com.easydb.storage.metadata.IndexMetadata;
+import com.easydb.storage.metadata.TableMetadata;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.SnapshotMode;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalRecoveryTest {
+    private Path directory;
+    private FileWriteAheadLog wal;
+    private TransactionManager transactionManager;
+    private InMemoryStorage storage;
+    private TableMetadata table;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("wal-recovery-test");
+        start();
+        table = new TableMetadata("accounts", List.of(
+            new Column("id", DataType.INTEGER),
+            new Column("owner", DataType.STRING)));
+        storage.createTable(table);
+        storage.createIndex(new IndexMetadata("accounts_owner", "accounts", List.of("owner"), false, IndexType.BTREE));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        wal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private void start() {
+        wal = new FileWriteAheadLog(directory, 64 * 1024, 4096);
+        transactionManager = new TransactionManager(SnapshotMode.XID, wal);
+        storage = new InMemoryStorage(transactionManager);
+    }
+
+    /**
+     * Stops without rolling anything back, like a crash after the last flush,
+     * and starts again from the log.
+     */
+    private RecoveryStats restart(int redoThreads) {
+        wal.close();
+        start();
+        return new WalRecovery(storage, transactionManager, redoThreads).recover(directory);
+    }
+
+    private Transaction begin() {
+        return transactionManager.beginVirtualTransaction(IsolationLevel.READ_COMMITTED);
+    }
+
+    private TupleId insert(Transaction txn, String tableName, int id, String owner) {
+        TupleId tupleId = TupleIdGenerator.nextId(tableName);
+        TableMetadata metadata = storage.getTableMetadata(tableName);
+        storage.insertTuple(new Tuple(tupleId, List.of(id, owner), new TupleHeader(metadata, 0, 0), 0), txn);
+        return tupleId;
+    }
+
+    private Set<String> owners(String tableName) {
+        return storage.scanTuples(tableName, null, begin()).stream()
+            .map(tuple -> (String) tuple.getValue(1))
+            .collect(Collectors.toSet());
+    }
+
+    @Test
+    void testCommittedChangesAreRebuilt() {
+        Transaction writer = begin();
+        TupleId alice = insert(writer, "accounts", 1, "alice");
+        TupleId bob = insert(writer, "accounts", 2, "bob");
+        insert(writer, "accounts", 3, "carol");
+        transactionManager.commit(writer);
+
+        Transaction updater = begin();
+        storage.updateTuple(alice, List.of(1, "alice2"), updater);
+        storage.deleteTuple(bob, updater);
+        transactionManager.commit(updater);
+
+        Transaction aborted = begin();
+        insert(aborted, "accounts", 4, "dave");
+        transactionManager.rollback(aborted);
+        Transaction running = begin();
+        insert(running, "accounts", 5, "erin");
+        long lastXid = running.getXid();
+
+        RecoveryStats stats = restart(2);
+        assertEquals(2, stats.getCommittedTransactions());
+        assertEquals(2, stats.getAbortedTransactions());
+        assertEquals(5, stats.getRecordsRedone());
+
+        assertEquals(Set.of("alice2", "carol"), owners("accounts"));
+        assertEquals(List.of(alice.rowId()), storage.lookupIndex("accounts_owner", IndexKeyRange.equalTo(List.of("alice2")))
+            .stream().map(TupleId::rowId).distinct().toList());
+        assertTrue(storage.lookupIndex("accounts_owner", IndexKeyRange.equalTo(List.of("erin"))).isEmpty());
+
+        // New transactions continue past the replayed ones, and are logged
+        Transaction next = begin();
+        insert(next, "accounts", 6, "frank");
+        assertTrue(next.getXid() > lastXid);
+        transactionManager.commit(next);
+        restart(1);
+        assertEquals(Set.of("alice2", "carol", "frank"), owners("accounts"));
+    }
+
+    @Test
+    void testTablesAreRedoneInParallel() {
+        List<String> tables = List.of("accounts", "branches", "tellers", "history");
+        for (String name : tables.subList(1, tables.size())) {
+            storage.createTable(new TableMetadata(name, table.columns()));
+        }
+        for (int i = 0; i < 50; i++) {
+            Transaction txn = begin();
+            for (String name : tables) {
+                insert(txn, name, i, name + i);
+            }
+            transactionManager.commit(txn);
+        }
+
+        RecoveryStats stats = restart(tables.size());
+        assertEquals(50 * tables.size(), stats.getRecordsRedone());
+        assertTrue(stats.getRecordsPerSecond() > 0);
+        for (String name : tables) {
+            assertEquals(50, owners(name).size());
+            assertTrue(owners(name).contains(name + 49));
+        }
+    }
+
+    @Test
+    void testRecoveryStopsAtTornRecord() throws IOException {
+        Transaction first = begin();
+        insert(first, "accounts", 1, "alice");
+        transactionManager.commit(first);
+        Transaction second = begin();
+        insert(second, "accounts", 2, "bob");
+        long commitEnd = wal.getInsertLsn() + FileWriteAheadLog.HEADER_SIZE;
+        transactionManager.commit(second);
+        assertEquals(commitEnd, wal.getFlushedLsn());
+
+        // Corrupt the last commit record, as if the crash cut its write
+        Path segment = directory.resolve(FileWriteAheadLog.segmentFileName(0));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), commitEnd - 1);
+        }
+
+        RecoveryStats stats = restart(1);
+        assertEquals(1, stats.getAbortedTransactions());
+        assertEquals(Set.of("alice"), owners("accounts"));
+    }
+}
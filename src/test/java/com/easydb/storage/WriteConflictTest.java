@@ -0,0 +1,241 @@
+package com.easydb.storage;
+
+import com.easydb.core.Column;
+import com.easydb.core.DataType;
+import com.easydb.storage.transaction.DeadlockException;
+import com.easydb.storage.transaction.IsolationLevel;
+import com.easydb.storage.transaction.SerializationException;
+import com.easydb.storage.transaction.Transaction;
+import com.easydb.storage.transaction.TransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteConflictTest {
+    private StorageFixture fixture;
+    private TransactionManager transactionManager;
+    private InMemoryStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new StorageFixture("counters",
+            new Column("id", DataType.INTEGER),
+            new Column("value", DataType.INTEGER));
+        transactionManager = fixture.transactionManager;
+        storage = fixture.storage;
+        transactionManager.getLockManager().setDeadlockTimeout(50);
+    }
+
+    private Tuple read(TupleId id) {
+        return storage.getTuple(id, fixture.begin()).orElse(null);
+    }
+
+    private static void assertBlocked(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(100, TimeUnit.MILLISECONDS);
+            fail("Expected the writer to wait");
+        } catch (TimeoutException expected) {
+            // Still waiting for the first updater
+        }
+    }
+
+    @Test
+    void testReadCommittedWaitsForFirstUpdater() throws Exception {
+        TupleId id = fixture.insertCommitted(1, 0);
+        Transaction first = fixture.begin();
+        Transaction second = fixture.begin();
+        storage.updateTuple(id, List.of(1, 1), first);
+
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+            storage.updateTuple(id, List.of(1, 2), second);
+            transactionManager.commit(second);
+        });
+        assertBlocked(waiting);
+
+        transactionManager.commit(first);
+        waiting.get(5, TimeUnit.SECONDS);
+
+        // The second update went on top of the first one instead of replacing it
+        Tuple head = read(id);
+        assertEquals(2, head.getValue(1));
+        assertEquals(2, head.id().version());
+    }
+
+    @Test
+    void testReadCommittedTakesOverAfterAbort() throws Exception {
+        TupleId id = fixture.insertCommitted(1, 0);
+        Transaction first = fixture.begin();
+        Transaction second = fixture.begin();
+        storage.updateTuple(id, List.of(1, 1), first);
+
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() -> {
+            storage.updateTuple(id, List.of(1, 2), second);
+            transactionManager.commit(second);
+        });
+        assertBlocked(waiting);
+
+        transactionManager.rollback(first);
+        waiting.get(5, TimeUnit.SECONDS);
+
+        Tuple head = read(id);
+        assertEquals(2, head.getValue(1));
+        assertEquals(1, head.id().version());
+    }
+
+    @Test
+    void testReadCommittedSkipsConcurrentlyDeletedRow() throws Exception {
+        TupleId id = fixture.insertCommitted(1, 0);
+        Transaction deleter = fixture.begin();
+        Transaction updater = fixture.begin();
+        storage.deleteTuple(id, deleter);
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() ->
+            storage.updateTuple(id, List.of(1, 2), updater));
+        assertBlocked(waiting);
+
+        transactionManager.commit(deleter);
+        // Nothing was updated, so the row does not count as affected
+        assertFalse(waiting.get(5, TimeUnit.SECONDS));
+        transactionManager.commit(updater);
+        assertNull(read(id));
+    }
+
+    @Test
+    void testRepeatableReadFailsFast() {
+        TupleId id = fixture.insertCommitted(1, 0);
+        Transaction first = fixture.begin(IsolationLevel.REPEATABLE_READ);
+        Transaction running = fixture.begin(IsolationLevel.REPEATABLE_READ);
+        Transaction later = fixture.begin(IsolationLevel.REPEATABLE_READ);
+        storage.updateTuple(id, List.of(1, 1), first);
+
+        // In progress: no waiting
+        assertThrows(SerializationException.class, () -> storage.updateTuple(id, List.of(1, 2), running));
+
+        // Committed after the snapshot was taken
+        transactionManager.commit(first);
+        assertThrows(SerializationException.class, () -> storage.deleteTuple(id, later));
+        transactionManager.rollback(running);
+        transactionManager.rollback(later);
+
+        assertEquals(1, read(id).getValue(1));
+    }
+
+    @Test
+    void testRepeatableReadUpdatesOwnVersions() {
+        TupleId id = fixture.insertCommitted(1, 0);
+        Transaction txn = fixture.begin(IsolationLevel.REPEATABLE_READ);
+        storage.updateTuple(id, List.of(1, 1), txn);
+        storage.updateTuple(id.nextVersion(), List.of(1, 2), txn);
+        transactionManager.commit(txn);
+
+        assertEquals(2, read(id).getValue(1));
+    }
+
+    @Test
+    void testReplacedVersionIsNotWrittenAgain() {
+        TupleId id = fixture.insertCommitted(1, 0);
+        Transaction txn = fixture.begin();
+        assertTrue(storage.updateTuple(id, List.of(1, 1), txn));
+
+        // Like a second match of the same row in one statement
+        assertFalse(storage.updateTuple(id, List.of(1, 2), txn));
+        assertFalse(storage.deleteTuple(id, txn));
+        transactionManager.commit(txn);
+        assertEquals(1, read(id).getValue(1));
+    }
+
+    @Test
+    void testRowLockBlocksWritersButNotReaders() throws Exception {
+        TupleId id = fixture.insertCommitted(1, 0);
+        Transaction locker = fixture.begin();
+        Tuple locked = storage.lockTuple(id, locker).orElseThrow();
+        assertEquals(id, locked.id());
+
+        // Locking does not hide or replace the row
+        assertEquals(0, read(id).getValue(1));
+        Transaction snapshot = fixture.begin(IsolationLevel.REPEATABLE_READ);
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() ->
+            storage.updateTuple(id, List.of(1, 1), snapshot));
+        assertBlocked(waiting);
+
+        // The locker can still update the row itself
+        storage.updateTuple(id, List.of(1, 2), locker);
+        transactionManager.commit(locker);
+
+        // It did update the row, so the snapshot cannot go on
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(SerializationException.class, e.getCause());
+        transactionManager.rollback(snapshot);
+        assertEquals(2, read(id).getValue(1));
+    }
+
+    @Test
+    void testCommittedRowLockIsReleased() {
+        TupleId id = fixture.insertCommitted(1, 0);
+        Transaction locker = fixture.begin();
+        Transaction snapshot = fixture.begin(IsolationLevel.REPEATABLE_READ);
+        storage.lockTuple(id, locker);
+        transactionManager.commit(locker);
+
+        // A lock is not an update: no serialization failure
+        storage.updateTuple(id, List.of(1, 1), snapshot);
+        transactionManager.commit(snapshot);
+        assertEquals(1, read(id).getValue(1));
+    }
+
+    @Test
+    void testUpdateDeadlockIsDetected() throws Exception {
+        TupleId a = fixture.insertCommitted(1, 0);
+        TupleId b = fixture.insertCommitted(2, 0);
+        Transaction older = fixture.begin();
+        Transaction younger = fixture.begin();
+        storage.updateTuple(a, List.of(1, 1), older);
+        storage.updateTuple(b, List.of(2, 2), younger);
+
+        CompletableFuture<Void> olderWaits = CompletableFuture.runAsync(() ->
+            storage.updateTuple(b, List.of(2, 1), older));
+        assertBlocked(olderWaits);
+
+        // Closing the cycle aborts the younger transaction
+        assertThrows(DeadlockException.class, () -> storage.updateTuple(a, List.of(1, 2), younger));
+        transactionManager.rollback(younger);
+        olderWaits.get(5, TimeUnit.SECONDS);
+        transactionManager.commit(older);
+
+        assertEquals(1, read(a).getValue(1));
+        assertEquals(1, read(b).getValue(1));
+    }
+
+    @Test
+    void testConcurrentUpdatesAreNotLost() throws Exception {
+        TupleId id = fixture.insertCommitted(1, 0);
+        int writers = 8;
+        int updatesPerWriter = 50;
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < updatesPerWriter; i++) {
+                    Transaction txn = fixture.begin();
+                    Tuple current = storage.getTuple(id, txn).orElseThrow();
+                    storage.updateTuple(current.id(), List.of(1, 0), txn);
+                    transactionManager.commit(txn);
+                }
+            }));
+        }
+        for (CompletableFuture<Void> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        // Every update added its own version to the chain
+        assertEquals(writers * updatesPerWriter, read(id).id().version());
+    }
+}
@@ -0,0 +1,69 @@
+package com.easydb.storage.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitLogTest {
+
+    @Test
+    void testStatusesArePackedPerXid() {
+        CommitLog log = new CommitLog();
+        for (long xid = 1; xid < 100_000; xid++) {
+            if (xid % 3 == 0) {
+                log.setAborted(xid);
+            } else if (xid % 3 == 1) {
+                log.setCommitted(xid);
+            }
+        }
+
+        for (long xid = 1; xid < 100_000; xid++) {
+            int expected = xid % 3 == 0 ? CommitLog.ABORTED
+                : xid % 3 == 1 ? CommitLog.COMMITTED
+                : CommitLog.IN_PROGRESS;
+            assertEquals(expected, log.getStatus(xid), "xid " + xid);
+        }
+        // 100,000 xids fit in four 32,768-xid pages
+        assertEquals(4, log.getPageCount());
+        assertEquals(CommitLog.IN_PROGRESS, log.getStatus(1_000_000));
+    }
+
+    @Test
+    void testLaterStatusReplacesEarlierOne() {
+        CommitLog log = new CommitLog();
+        log.setCommitted(42);
+        log.setAborted(42);
+        assertTrue(log.isAborted(42));
+        assertFalse(log.isCommitted(42));
+        assertEquals(CommitLog.IN_PROGRESS, log.getStatus(41));
+        assertEquals(CommitLog.IN_PROGRESS, log.getStatus(43));
+    }
+
+    @Test
+    void testTruncateDropsPagesBelowCutoff() {
+        CommitLog log = new CommitLog();
+        for (long xid = 1; xid < 200_000; xid++) {
+            log.setAborted(xid);
+        }
+        assertEquals(7, log.getPageCount());
+
+        log.truncate(150_000);
+        assertEquals(150_000, log.getFrozenXid());
+        // Pages 0-3 end below the cutoff; page 4 still holds xids above it
+        assertEquals(3, log.getPageCount());
+        assertTrue(log.isCommitted(1));
+        assertTrue(log.isCommitted(149_999));
+        assertTrue(log.isAborted(150_000));
+        assertTrue(log.isAborted(199_999));
+
+        log.setCommitted(300_000);
+        assertTrue(log.isCommitted(300_000));
+        assertThrows(IllegalStateException.class, () -> log.setCommitted(10));
+
+        log.truncate(1_000_000);
+        assertEquals(0, log.getPageCount());
+        log.setAborted(1_000_001);
+        assertEquals(1, log.getPageCount());
+        assertTrue(log.isAborted(1_000_001));
+    }
+}
@@ -0,0 +1,47 @@
+package com.easydb.storage.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsnLogTest {
+
+    @Test
+    void testCommitsDrawIncreasingCsns() {
+        CsnLog log = new CsnLog();
+        long first = log.commit(5);
+        long second = log.commit(3);
+        assertTrue(second > first);
+        assertEquals(first, log.getCsn(5));
+        assertEquals(second, log.getCsn(3));
+        assertEquals(second, log.getLatestCsn());
+        assertEquals(CsnLog.INVALID_CSN, log.getCsn(4));
+    }
+
+    @Test
+    void testCommitLogIsSetBeforeCsnIsDrawn() {
+        Snapshot[] during = new Snapshot[1];
+        boolean[] committedAtCsn = new boolean[1];
+        TransactionManager[] manager = new TransactionManager[1];
+        CsnLog csnLog = new CsnLog() {
+            @Override
+            public long commit(long xid) {
+                // A snapshot taken just before the CSN is drawn
+                committedAtCsn[0] = manager[0].isCommitted(xid);
+                during[0] = manager[0].beginTransaction(IsolationLevel.REPEATABLE_READ).getSnapshot();
+                return super.commit(xid);
+            }
+        };
+        manager[0] = new TransactionManager(SnapshotMode.CSN, null, csnLog);
+
+        Transaction txn = manager[0].beginTransaction(IsolationLevel.READ_COMMITTED);
+        manager[0].commit(txn);
+
+        // Whoever sees the CSN finds the commit recorded, and the snapshot
+        // from the window keeps the transaction running for good
+        assertTrue(committedAtCsn[0]);
+        assertTrue(during[0].isRunning(txn.getXid()));
+        Snapshot after = manager[0].beginTransaction(IsolationLevel.REPEATABLE_READ).getSnapshot();
+        assertFalse(after.isRunning(txn.getXid()));
+    }
+}
@@ -0,0 +1,173 @@
+package com.easydb.storage.transaction;
+
+import com.easydb.storage.TableOids;
+import com.easydb.storage.Tuple;
+import com.easydb.storage.WriteAheadLog;
+import com.easydb.storage.metadata.IndexMetadata;
+import com.easydb.storage.metadata.TableMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitTest {
+    private SlowLog wal;
+    private TransactionManager transactionManager;
+    private GroupCommit groupCommit;
+
+    /**
+     * Counts records and takes a while to flush, like a disk would.
+     */
+    private static class SlowLog implements WriteAheadLog {
+        final AtomicLong insertLsn = new AtomicLong();
+        final AtomicLong aborts = new AtomicLong();
+        final ThreadLocal<Long> lastCommitLsn = new ThreadLocal<>();
+        volatile long durableLsn;
+        volatile boolean failFlush;
+
+        @Override
+        public long logCommit(Long transactionId) {
+            long lsn = insertLsn.incrementAndGet();
+            lastCommitLsn.set(lsn);
+            return lsn;
+        }
+
+        @Override
+        public long flush() {
+            if (failFlush) {
+                throw new UncheckedIOException(new IOException("No space left on device"));
+            }
+            long end = insertLsn.get();
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            durableLsn = Math.max(durableLsn, end);
+            return end;
+        }
+
+        @Override
+        public void logAbort(Long transactionId) {
+            aborts.incrementAndGet();
+        }
+
+        @Override
+        public void logBegin(Long transactionId) {
+        }
+
+        @Override
+        public void logInsert(Long transactionId, String tableName, Tuple tuple) {
+        }
+
+        @Override
+        public void logUpdate(Long transactionId, String tableName, Tuple oldTuple, Tuple newTuple) {
+        }
+
+        @Override
+        public void logDelete(Long transactionId, String tableName, Tuple tuple) {
+        }
+
+        @Override
+        public void logCreateTable(TableMetadata metadata) {
+        }
+
+        @Override
+        public void logCreateIndex(IndexMetadata metadata) {
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        wal = new SlowLog();
+        transactionManager = new TransactionManager(SnapshotMode.XID, wal);
+        groupCommit = transactionManager.getGroupCommit();
+    }
+
+    @Test
+    void testConcurrentCommitsShareFlushes() throws Exception {
+        int clients = 32;
+        int commitsPerClient = 20;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < commitsPerClient; i++) {
+                    Transaction txn = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+                    transactionManager.commit(txn);
+                    // Never visible before its record is durable
+                    assertTrue(wal.durableLsn >= wal.lastCommitLsn.get());
+                    assertTrue(transactionManager.isCommitted(txn.getXid()));
+                }
+            }));
+        }
+        for (CompletableFuture<Void> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        assertEquals(clients * commitsPerClient, wal.insertLsn.get());
+        assertTrue(groupCommit.getFlushCount() < clients * commitsPerClient);
+        assertEquals(wal.insertLsn.get(), groupCommit.getFlushedLsn());
+    }
+
+    @Test
+    void testCommitDelayNeedsSiblings() {
+        groupCommit.setCommitDelay(TimeUnit.MILLISECONDS.toMicros(200));
+        groupCommit.setCommitSiblings(1);
+
+        // Alone: no reason to wait for company
+        long start = System.nanoTime();
+        transactionManager.commit(transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(200));
+
+        Transaction sibling = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        start = System.nanoTime();
+        transactionManager.commit(transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        transactionManager.commit(sibling);
+    }
+
+    @Test
+    void testOnlyCommitsOfWritersAreFlushed() {
+        transactionManager.commit(transactionManager.beginVirtualTransaction(IsolationLevel.REPEATABLE_READ));
+        assertEquals(0, wal.insertLsn.get());
+        assertEquals(0, groupCommit.getFlushCount());
+
+        transactionManager.rollback(transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED));
+        assertEquals(1, wal.aborts.get());
+        assertEquals(0, groupCommit.getFlushCount());
+    }
+
+    @Test
+    void testFailedFlushShutsDownManager() throws Exception {
+        LockTag tag = LockTag.table(TableOids.assign("group_commit_failed"));
+        Transaction failing = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        Transaction other = transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+        transactionManager.getLockManager().lock(failing, tag, LockMode.EXCLUSIVE);
+        CompletableFuture<Void> waiter = CompletableFuture.runAsync(() ->
+            transactionManager.getLockManager().lock(other, tag, LockMode.SHARED));
+
+        wal.failFlush = true;
+        assertThrows(UncheckedIOException.class, () -> transactionManager.commit(failing));
+
+        // The outcome is left to recovery, but the transaction no longer
+        // pins the xmin horizon or blocks the waiter
+        assertFalse(transactionManager.isCommitted(failing.getXid()));
+        assertFalse(transactionManager.isAborted(failing.getXid()));
+        assertEquals(other.getXid(), transactionManager.getOldestXmin());
+        waiter.get(5, TimeUnit.SECONDS);
+
+        // Nothing else commits or starts
+        assertThrows(IllegalStateException.class, () -> transactionManager.commit(other));
+        assertTrue(transactionManager.isAborted(other.getXid()));
+        assertThrows(IllegalStateException.class,
+            () -> transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED));
+    }
+}
@@ -0,0 +1,176 @@
+package com.easydb.storage.transaction;
+
+import com.easydb.storage.TableOids;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockManagerTest {
+    private TransactionManager transactionManager;
+    private LockManager lockManager;
+    private LockTag table;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = new TransactionManager();
+        lockManager = transactionManager.getLockManager();
+        lockManager.setDeadlockTimeout(50);
+        table = LockTag.table(TableOids.assign("lock_manager_test"));
+    }
+
+    private Transaction begin() {
+        return transactionManager.beginTransaction(IsolationLevel.READ_COMMITTED);
+    }
+
+    private static void assertBlocked(Future<?> future) throws Exception {
+        try {
+            future.get(100, TimeUnit.MILLISECONDS);
+            fail("Expected the lock request to wait");
+        } catch (TimeoutException expected) {
+            // Still waiting
+        }
+    }
+
+    @Test
+    void testSharedLocksAreCompatible() {
+        Transaction first = begin();
+        Transaction second = begin();
+        lockManager.lock(first, table, LockMode.SHARED);
+        lockManager.lock(second, table, LockMode.SHARED);
+
+        assertFalse(lockManager.tryLock(second, table, LockMode.EXCLUSIVE));
+        assertEquals(LockMode.SHARED, lockManager.getHeldMode(first, table));
+        assertEquals(LockMode.SHARED, lockManager.getHeldMode(second, table));
+
+        transactionManager.commit(first);
+        assertNull(lockManager.getHeldMode(first, table));
+        // The only remaining holder can upgrade
+        assertTrue(lockManager.tryLock(second, table, LockMode.EXCLUSIVE));
+    }
+
+    @Test
+    void testExclusiveLockWaitsUntilHolderEnds() throws Exception {
+        Transaction holder = begin();
+        Transaction waiter = begin();
+        lockManager.lock(holder, table, LockMode.SHARED);
+
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() ->
+            lockManager.lock(waiter, table, LockMode.EXCLUSIVE));
+        assertBlocked(waiting);
+
+        // A later shared request queues behind the exclusive one
+        Transaction later = begin();
+        assertFalse(lockManager.tryLock(later, table, LockMode.SHARED));
+
+        transactionManager.rollback(holder);
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(LockMode.EXCLUSIVE, lockManager.getHeldMode(waiter, table));
+    }
+
+    @Test
+    void testWaitingUpgradeGoesAheadOfQueue() throws Exception {
+        Transaction upgrader = begin();
+        Transaction waiter = begin();
+        Transaction other = begin();
+        lockManager.lock(upgrader, table, LockMode.SHARED);
+        lockManager.lock(other, table, LockMode.SHARED);
+
+        CompletableFuture<Void> waiting = CompletableFuture.runAsync(() ->
+            lockManager.lock(waiter, table, LockMode.EXCLUSIVE));
+        assertBlocked(waiting);
+        // Queued behind the waiter, which waits for its shared lock, the
+        // upgrade would deadlock
+        CompletableFuture<Void> upgrading = CompletableFuture.runAsync(() ->
+            lockManager.lock(upgrader, table, LockMode.EXCLUSIVE));
+        assertBlocked(upgrading);
+
+        transactionManager.commit(other);
+        upgrading.get(5, TimeUnit.SECONDS);
+        assertEquals(LockMode.EXCLUSIVE, lockManager.getHeldMode(upgrader, table));
+        assertBlocked(waiting);
+
+        transactionManager.commit(upgrader);
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(LockMode.EXCLUSIVE, lockManager.getHeldMode(waiter, table));
+    }
+
+    @Test
+    void testDeadlockAbortsYoungestTransaction() throws Exception {
+        Transaction older = begin();
+        Transaction younger = begin();
+        LockTag rowA = new LockTag(LockTag.Kind.ROW, table.tableOid(), 1);
+        LockTag rowB = new LockTag(LockTag.Kind.ROW, table.tableOid(), 2);
+        lockManager.lock(older, rowA, LockMode.EXCLUSIVE);
+        lockManager.lock(younger, rowB, LockMode.EXCLUSIVE);
+
+        CompletableFuture<Void> olderWaits = CompletableFuture.runAsync(() ->
+            lockManager.lock(older, rowB, LockMode.EXCLUSIVE));
+        assertBlocked(olderWaits);
+        CompletableFuture<Void> youngerWaits = CompletableFuture.runAsync(() ->
+            lockManager.lock(younger, rowA, LockMode.EXCLUSIVE));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> youngerWaits.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlockException.class, e.getCause());
+
+        transactionManager.rollback(younger);
+        olderWaits.get(5, TimeUnit.SECONDS);
+        assertEquals(LockMode.EXCLUSIVE, lockManager.getHeldMode(older, rowB));
+    }
+
+    @Test
+    void testWaitForTransactionJoinsDeadlockDetection() throws Exception {
+        Transaction older = begin();
+        Transaction younger = begin();
+        lockManager.lock(older, table, LockMode.EXCLUSIVE);
+
+        CompletableFuture<Void> olderWaits = CompletableFuture.runAsync(() ->
+            transactionManager.waitForTransaction(older, younger.getXid()));
+        assertBlocked(olderWaits);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () ->
+            CompletableFuture.runAsync(() -> lockManager.lock(younger, table, LockMode.SHARED))
+                .get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlockException.class, e.getCause());
+
+        transactionManager.commit(younger);
+        olderWaits.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testBlockedVirtualThreadsDoNotHoldCarriers() throws Exception {
+        Transaction holder = begin();
+        lockManager.lock(holder, table, LockMode.EXCLUSIVE);
+
+        int sessions = 2000;
+        CountDownLatch started = new CountDownLatch(sessions);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                futures.add(executor.submit(() -> {
+                    Transaction txn = begin();
+                    started.countDown();
+                    lockManager.lock(txn, table, LockMode.SHARED);
+                    transactionManager.commit(txn);
+                }));
+            }
+            // More blocked sessions than carrier threads: all of them got to run
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            transactionManager.commit(holder);
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+}
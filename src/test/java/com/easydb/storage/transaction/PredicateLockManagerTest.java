@@ -0,0 +1,94 @@
+package com.easydb.storage.transaction;
+
+import com.easydb.storage.TableOids;
+import com.easydb.storage.TupleId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PredicateLockManagerTest {
+    private TransactionManager transactionManager;
+    private PredicateLockManager predicateLockManager;
+    private int tableOid;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = new TransactionManager();
+        predicateLockManager = transactionManager.getPredicateLockManager();
+        tableOid = TableOids.assign("predicate_lock_test");
+    }
+
+    private Transaction begin() {
+        return transactionManager.beginTransaction(IsolationLevel.SERIALIZABLE);
+    }
+
+    private TupleId row(long rowId) {
+        return new TupleId(tableOid, rowId, 0);
+    }
+
+    @Test
+    void testRowLocksArePromotedToPage() {
+        Transaction txn = begin();
+        predicateLockManager.lockTuple(txn, row(0));
+        predicateLockManager.lockTuple(txn, row(1));
+        predicateLockManager.lockTuple(txn, row(PredicateLockTag.ROWS_PER_PAGE));
+        assertEquals(3, predicateLockManager.getLocks(txn).size());
+
+        // A third row on the first page replaces its row locks
+        predicateLockManager.lockTuple(txn, row(2));
+        assertEquals(Set.of(PredicateLockTag.page(tableOid, 0), PredicateLockTag.tuple(row(PredicateLockTag.ROWS_PER_PAGE))),
+            predicateLockManager.getLocks(txn));
+
+        // Already covered
+        predicateLockManager.lockTuple(txn, row(3));
+        assertEquals(2, predicateLockManager.getLockCount());
+    }
+
+    @Test
+    void testPageLocksArePromotedToRelation() {
+        Transaction txn = begin();
+        for (int page = 0; page <= PredicateLockManager.MAX_PAGE_LOCKS_PER_RELATION; page++) {
+            for (int i = 0; i <= PredicateLockManager.MAX_TUPLE_LOCKS_PER_PAGE; i++) {
+                predicateLockManager.lockTuple(txn, row((long) page * PredicateLockTag.ROWS_PER_PAGE + i));
+            }
+        }
+        assertEquals(Set.of(PredicateLockTag.relation(tableOid)), predicateLockManager.getLocks(txn));
+        assertEquals(1, predicateLockManager.getLockCount());
+    }
+
+    @Test
+    void testMemoryPressureTakesRelationLocks() {
+        predicateLockManager.setMaxLocks(2);
+        Transaction first = begin();
+        Transaction second = begin();
+        predicateLockManager.lockTuple(first, row(0));
+        predicateLockManager.lockTuple(first, row(PredicateLockTag.ROWS_PER_PAGE));
+
+        predicateLockManager.lockTuple(second, row(0));
+        assertEquals(Set.of(PredicateLockTag.relation(tableOid)), predicateLockManager.getLocks(second));
+    }
+
+    @Test
+    void testOtherIsolationLevelsTakeNoLocks() {
+        Transaction txn = transactionManager.beginTransaction(IsolationLevel.REPEATABLE_READ);
+        predicateLockManager.lockTuple(txn, row(0));
+        predicateLockManager.lockRelation(txn, tableOid);
+        assertEquals(0, predicateLockManager.getLockCount());
+    }
+
+    @Test
+    void testAbortDropsLocksAtOnce() {
+        Transaction reader = begin();
+        Transaction concurrent = begin();
+        predicateLockManager.lockRelation(reader, tableOid);
+        transactionManager.rollback(reader);
+        assertEquals(0, predicateLockManager.getLockCount());
+
+        // Nothing left to conflict with
+        predicateLockManager.checkConflictIn(concurrent, row(0));
+        transactionManager.commit(concurrent);
+    }
+}
@@ -0,0 +1,148 @@
+package com.easydb.storage.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcArrayTest {
+
+    @Test
+    void testSnapshotListsRunningTransactions() {
+        ProcArray procArray = new ProcArray(1);
+        int first = procArray.register();
+        int second = procArray.register();
+        int third = procArray.register();
+        procArray.remove(second);
+
+        int reader = procArray.register();
+        XidSnapshot snapshot = procArray.takeSnapshot(reader);
+
+        assertEquals(1, snapshot.getXmin());
+        assertEquals(5, snapshot.getXmax());
+        assertEquals(2, snapshot.getRunningCount());
+        assertTrue(snapshot.isRunning(procArray.getXid(first)));
+        assertFalse(snapshot.isRunning(2));
+        assertTrue(snapshot.isRunning(procArray.getXid(third)));
+        // Own xid and the ones after the snapshot
+        assertFalse(snapshot.isRunning(procArray.getXid(reader)));
+        assertTrue(snapshot.isRunning(5));
+    }
+
+    @Test
+    void testOldestXminCoversSnapshots() {
+        ProcArray procArray = new ProcArray(1);
+        int old = procArray.register();
+        int reader = procArray.register();
+        procArray.takeSnapshot(reader);
+        assertEquals(1, procArray.getOldestXmin());
+
+        // The reader's snapshot still treats xid 1 as running
+        procArray.remove(old);
+        assertEquals(1, procArray.getOldestXmin());
+
+        procArray.remove(reader);
+        assertEquals(3, procArray.getOldestXmin());
+    }
+
+    @Test
+    void testVirtualTransactionsHoldNoXid() {
+        ProcArray procArray = new ProcArray(1);
+        int virtual = procArray.registerVirtual();
+        int reader = procArray.register();
+        XidSnapshot snapshot = procArray.takeSnapshot(reader);
+        assertEquals(0, procArray.getXid(virtual));
+        assertEquals(0, snapshot.getRunningCount());
+
+        // Its xmin still holds back vacuum
+        procArray.remove(reader);
+        assertEquals(1, procArray.getOldestXmin());
+
+        // An xid assigned later is running to earlier snapshots
+        long xid = procArray.assignXid(virtual);
+        assertEquals(2, xid);
+        assertTrue(snapshot.isRunning(xid));
+
+        // The next transaction in the slot gets a new local ID
+        long localXid = procArray.getLocalXid(virtual);
+        procArray.remove(virtual);
+        assertEquals(virtual, procArray.registerVirtual());
+        assertEquals(localXid + 1, procArray.getLocalXid(virtual));
+    }
+
+    @Test
+    void testSlotsGrowAndAreReused() {
+        ProcArray procArray = new ProcArray(1);
+        List<Integer> slots = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            slots.add(procArray.register());
+        }
+        int reader = procArray.register();
+        assertEquals(200, procArray.takeSnapshot(reader).getRunningCount());
+
+        for (int slot : slots) {
+            procArray.remove(slot);
+        }
+        assertEquals(0, procArray.takeSnapshot(reader).getRunningCount());
+        // The slot freed last is the first one tried
+        assertEquals(slots.get(199), procArray.register());
+    }
+
+    @Test
+    void testConcurrentSnapshotsNeverMissRunningTransactions() throws InterruptedException {
+        ProcArray procArray = new ProcArray(1);
+        CommitLog commitLog = new CommitLog();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    int slot = procArray.register();
+                    XidSnapshot snapshot = procArray.takeSnapshot(slot);
+                    // Below xmax, every xid the snapshot takes as ended has ended
+                    for (long xid = snapshot.getXmin(); xid < snapshot.getXmax(); xid++) {
+                        if (xid != procArray.getXid(slot) && !snapshot.isRunning(xid)
+                            && commitLog.getStatus(xid) == CommitLog.IN_PROGRESS) {
+                            failed.set(true);
+                        }
+                    }
+                    commitLog.setCommitted(procArray.getXid(slot));
+                    procArray.remove(slot);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed.get());
+    }
+
+    @Test
+    void testCsnSnapshotUsesLastHorizon() {
+        ProcArray procArray = new ProcArray(1);
+        CsnLog csnLog = new CsnLog();
+        int old = procArray.register();
+        int committed = procArray.register();
+        csnLog.commit(procArray.getXid(committed));
+        procArray.remove(committed);
+        assertEquals(1, procArray.getOldestXmin());
+
+        int reader = procArray.register();
+        CsnSnapshot snapshot = procArray.takeCsnSnapshot(reader, csnLog);
+        assertEquals(1, snapshot.getXmin());
+        assertTrue(snapshot.isRunning(procArray.getXid(old)));
+        assertFalse(snapshot.isRunning(2));
+
+        // A commit after the snapshot stays invisible to it
+        csnLog.commit(procArray.getXid(old));
+        procArray.remove(old);
+        assertTrue(snapshot.isRunning(1));
+        assertEquals(1, procArray.getOldestXmin());
+        procArray.remove(reader);
+        assertEquals(4, procArray.getOldestXmin());
+    }
+}